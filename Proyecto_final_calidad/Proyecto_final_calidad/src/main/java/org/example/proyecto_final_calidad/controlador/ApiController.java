@@ -1,22 +1,42 @@
 package org.example.proyecto_final_calidad.controlador;
 
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.PaginaProductos;
+import org.example.proyecto_final_calidad.dto.ProductoDto;
+import org.example.proyecto_final_calidad.dto.ResultadoConciliacion;
+import org.example.proyecto_final_calidad.dto.ResultadoMovimiento;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
 import org.example.proyecto_final_calidad.model.*;
-import org.example.proyecto_final_calidad.security.JwtUtils;
+import org.example.proyecto_final_calidad.security.AuthenticationExecutor;
+import org.example.proyecto_final_calidad.security.RefreshTokenService;
+import org.example.proyecto_final_calidad.servicios.ExportacionServicio;
+import org.example.proyecto_final_calidad.servicios.ImportacionProductosServicio;
+import org.example.proyecto_final_calidad.servicios.LibroStockServicio;
 import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.example.proyecto_final_calidad.servicios.ResumenStockServicio;
 import org.example.proyecto_final_calidad.servicios.StockServicio;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Controlador REST que proporciona autenticación y manejo de productos y stock
@@ -26,11 +46,16 @@ import java.util.Map;
 @RequestMapping("/api")
 public class ApiController {
 
+    private static final int MAX_MOVIMIENTOS_POR_CARGA = 10_000;
+    private static final int MAX_TAMANO_PAGINA = 1_000;
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+
     @Autowired
-    private AuthenticationManager authenticationManager;
+    private AuthenticationExecutor authenticationExecutor;
 
     @Autowired
-    private JwtUtils jwtUtils;
+    private RefreshTokenService refreshTokenService;
 
     @Autowired
     private ProductoServicio productoServicio;
@@ -38,21 +63,89 @@ public class ApiController {
     @Autowired
     private StockServicio stockServicio;
 
+    @Autowired
+    private LibroStockServicio libroStockServicio;
+
+    @Autowired
+    private ResumenStockServicio resumenStockServicio;
+
+    @Autowired
+    private ExportacionServicio exportacionServicio;
+
+    @Autowired
+    private ImportacionProductosServicio importacionProductosServicio;
+
     /**
-     * Autentica al usuario y retorna un JWT.
+     * Autentica al usuario y retorna un JWT. La verificación de la contraseña corre en
+     * el pool de autenticación, sin ocupar el hilo de la petición; si el pool está
+     * saturado responde 429 de inmediato.
      *
      * @param username nombre de usuario
      * @param password contraseña
      * @return JWT como String en el cuerpo de la respuesta
      */
     @PostMapping("/auth")
-    public ResponseEntity<?> autenticar(@RequestParam String username, @RequestParam String password) {
-        Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(username, password));
+    public CompletableFuture<ResponseEntity<?>> autenticar(@RequestParam String username, @RequestParam String password) {
+        try {
+            return authenticationExecutor.authenticate(username, password)
+                    .<ResponseEntity<?>>thenApply(authentication -> respuestaTokens(refreshTokenService.issue(authentication.getName())))
+                    .exceptionally(ex -> {
+                        Throwable causa = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        if (causa instanceof AuthenticationException) {
+                            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .body("{\"error\":\"No autorizado\"}");
+                        }
+                        throw ex instanceof CompletionException ce ? ce : new CompletionException(ex);
+                    });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body("{\"error\":\"Demasiados intentos de autenticación, reintente en unos segundos\"}"));
+        }
+    }
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
-        String jwt = jwtUtils.generateJwtToken(authentication);
+    /**
+     * Cambia un refresh token por un nuevo par de tokens. El refresh token usado queda
+     * revocado, así que cada uno sirve una sola vez.
+     *
+     * @param refreshToken refresh token recibido en el header X-Refresh-Token
+     * @return nuevo JWT en el cuerpo y nuevo refresh token en el header X-Refresh-Token
+     */
+    @PostMapping("/auth/refresh")
+    public ResponseEntity<?> refrescar(@RequestHeader(REFRESH_TOKEN_HEADER) String refreshToken) {
+        return refreshTokenService.refresh(refreshToken)
+                .<ResponseEntity<?>>map(this::respuestaTokens)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"error\":\"No autorizado\"}"));
+    }
 
-        return ResponseEntity.ok(jwt);
+    /**
+     * Revoca el token de acceso y el refresh token recibidos antes de que expiren
+     * (cierre de sesión). Los tokens inválidos o ya expirados se ignoran.
+     *
+     * @param authorization header Authorization con el JWT (opcional)
+     * @param refreshToken refresh token del header X-Refresh-Token (opcional)
+     * @return 204 sin contenido
+     */
+    @PostMapping("/auth/revocar")
+    public ResponseEntity<?> revocar(@RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization,
+                                     @RequestHeader(value = REFRESH_TOKEN_HEADER, required = false) String refreshToken) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            refreshTokenService.revokeAccessToken(authorization.substring(7));
+        }
+        if (refreshToken != null) {
+            refreshTokenService.revokeRefreshToken(refreshToken);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<?> respuestaTokens(RefreshTokenService.TokenPair tokens) {
+        return ResponseEntity.ok()
+                .header(REFRESH_TOKEN_HEADER, tokens.refreshToken())
+                .body(tokens.accessToken());
     }
 
     @GetMapping("/documentacion")
@@ -60,24 +153,42 @@ public class ApiController {
         Map<String, Object> docs = new HashMap<>();
 
         docs.put("auth", Map.of(
-                "POST /api/auth", "Autentica un usuario y retorna un token JWT (params: username, password)"
+                "POST /api/auth", "Autentica un usuario y retorna un token JWT de corta duración; el refresh token va en el header X-Refresh-Token (params: username, password); responde 429 con Retry-After si hay demasiados intentos en curso",
+                "POST /api/auth/refresh", "Cambia el refresh token del header X-Refresh-Token por un nuevo JWT y un nuevo refresh token; cada refresh token sirve una sola vez",
+                "POST /api/auth/revocar", "Revoca el JWT del header Authorization y el refresh token del header X-Refresh-Token antes de que expiren"
         ));
 
         docs.put("productos", Map.ofEntries(
-                Map.entry("GET /api/productos", "Lista productos con filtros opcionales (rol: ADMINISTRADOR)"),
+                Map.entry("GET /api/productos", "Lista productos por páginas con filtros opcionales (params: pagina, tamano, orden, cursor, campos, facetas; rol: ADMINISTRADOR)"),
                 Map.entry("GET /api/productos/{id}", "Obtiene un producto por su ID (rol: ADMINISTRADOR)"),
                 Map.entry("POST /api/productos", "Crea un nuevo producto (rol: ADMINISTRADOR)"),
                 Map.entry("PUT /api/productos/{id}", "Actualiza un producto existente (rol: ADMINISTRADOR)"),
-                Map.entry("DELETE /api/productos/{id}", "Desactiva (no elimina) un producto (rol: ADMINISTRADOR)")
+                Map.entry("DELETE /api/productos/{id}", "Desactiva (no elimina) un producto (rol: ADMINISTRADOR)"),
+                Map.entry("POST /api/productos/importaciones", "Importa productos desde un CSV en segundo plano; los nombres existentes se actualizan (param multipart: archivo; rol: ADMINISTRADOR)"),
+                Map.entry("GET /api/productos/importaciones/{id}", "Avance de una importación y errores por línea (rol: ADMINISTRADOR)")
         ));
 
         docs.put("stock", Map.ofEntries(
                 Map.entry("POST /api/stock/movimiento", "Registra un movimiento de stock (rol: ADMINISTRADOR)"),
-                Map.entry("GET /api/stock/historial", "Obtiene historial de movimientos con filtros opcionales (rol: ADMINISTRADOR)")
+                Map.entry("POST /api/stock/movimientos/bulk", "Registra una lista de movimientos y retorna el resultado de cada uno (rol: ADMINISTRADOR)"),
+                Map.entry("GET /api/stock/historial", "Obtiene historial de movimientos por páginas con filtros opcionales (params: productoId, tipo, desde, hasta, cursor, tamano; desde y hasta inclusive; rol: ADMINISTRADOR)"),
+                Map.entry("GET /api/stock/saldo/{productoId}", "Saldo del producto calculado desde el libro de movimientos (rol: ADMINISTRADOR)"),
+                Map.entry("POST /api/stock/conciliacion", "Compara la cantidad de cada producto con el libro de movimientos (rol: ADMINISTRADOR)"),
+                Map.entry("GET /api/stock/resumen", "Totales diarios de movimientos por producto y tipo (params: desde, hasta, productoId, tipo; rol: ADMINISTRADOR)"),
+                Map.entry("POST /api/stock/resumen/reconstruir", "Recalcula los totales diarios desde el historial (params: desde, hasta; hasta 92 días por llamada por defecto; rol: ADMINISTRADOR)"),
+                Map.entry("POST /api/stock/reservas", "Reserva unidades de un producto por un tiempo limitado (params: productoId, cantidad, usuario; rol: ADMINISTRADOR)"),
+                Map.entry("POST /api/stock/reservas/{id}/confirmar", "Confirma una reserva registrando la salida de stock (param: usuario; rol: ADMINISTRADOR)"),
+                Map.entry("DELETE /api/stock/reservas/{id}", "Libera una reserva sin mover stock (rol: ADMINISTRADOR)")
+        ));
+
+        docs.put("exportacion", Map.of(
+                "GET /api/export/productos", "Exporta todos los productos en NDJSON, un producto por línea (rol: ADMINISTRADOR)",
+                "GET /api/export/stock", "Exporta los movimientos de stock en NDJSON (params: productoId, desde, hasta; desde y hasta inclusive, como en /api/stock/historial; rol: ADMINISTRADOR)",
+                "Compresión", "Con Accept-Encoding: gzip la respuesta se comprime mientras se escribe"
         ));
 
         docs.put("autenticacion", Map.of(
-                "Token JWT", "Todos los endpoints excepto /api/auth requieren el token JWT en el header Authorization: Bearer <token>"
+                "Token JWT", "Todos los endpoints excepto /api/auth, /api/auth/refresh y /api/auth/revocar requieren el token JWT en el header Authorization: Bearer <token>"
         ));
 
         return ResponseEntity.ok(docs);
@@ -86,7 +197,9 @@ public class ApiController {
 
     // --- PRODUCTOS ---
     /**
-     * Obtiene una lista de productos filtrados según los parámetros dados.
+     * Obtiene el catálogo de productos por páginas, con filtros opcionales. Las filas son
+     * DTO armados en la consulta, no entidades. Para recorrer todo el catálogo conviene
+     * seguir {@code siguienteCursor}: cada página cuesta lo mismo sin importar su posición.
      * Requiere rol ADMINISTRADOR.
      *
      * @param searchTerm texto de búsqueda en nombre o descripción (opcional)
@@ -95,19 +208,61 @@ public class ApiController {
      * @param maxPrecio precio máximo (opcional)
      * @param minCantidad cantidad mínima (opcional)
      * @param maxCantidad cantidad máxima (opcional)
-     * @return lista de productos que cumplen los filtros
+     * @param pagina número de página desde 0 (se ignora si hay cursor)
+     * @param tamano productos por página (por defecto 100, máximo 1000)
+     * @param orden "campo" o "campo,desc"; campo entre id, nombre, precio y cantidad (por defecto id)
+     * @param cursor cursor de la página anterior (opcional; conserva el orden con que se generó)
+     * @param campos campos a incluir separados por coma (opcional, por defecto todos)
+     * @param facetas si es true, agrega los conteos por categoría, banda de precio y stock
+     *                bajo (null si su consulta superó el tiempo máximo)
+     * @return productos, pagina, total, siguienteCursor (y facetas), o 400 si algún parámetro no es válido
      */
     @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
     @GetMapping("/productos")
-    public List<Producto> obtenerProductosFiltrados(
+    public ResponseEntity<?> obtenerProductosFiltrados(
             @RequestParam(required = false) String searchTerm,
             @RequestParam(required = false) CategoriaProducto categoria,
             @RequestParam(required = false) Double minPrecio,
             @RequestParam(required = false) Double maxPrecio,
             @RequestParam(required = false) Integer minCantidad,
-            @RequestParam(required = false) Integer maxCantidad
+            @RequestParam(required = false) Integer maxCantidad,
+            @RequestParam(defaultValue = "0") int pagina,
+            @RequestParam(defaultValue = "100") int tamano,
+            @RequestParam(required = false) String orden,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) List<String> campos,
+            @RequestParam(defaultValue = "false") boolean facetas
     ) {
-        return productoServicio.findByFilters(searchTerm, categoria, minPrecio, maxPrecio, minCantidad, maxCantidad);
+        if (tamano <= 0 || tamano > MAX_TAMANO_PAGINA) {
+            return ResponseEntity.badRequest().body("El tamaño de página debe estar entre 1 y " + MAX_TAMANO_PAGINA);
+        }
+        if (campos != null) {
+            for (String campo : campos) {
+                if (!ProductoDto.CAMPOS.contains(campo)) {
+                    return ResponseEntity.badRequest().body("Campo desconocido: " + campo + " (use " + String.join(", ", ProductoDto.CAMPOS) + ")");
+                }
+            }
+        }
+
+        FiltroProducto filtro = new FiltroProducto(searchTerm, categoria, minPrecio, maxPrecio, minCantidad, maxCantidad);
+        PaginaProductos resultado;
+        try {
+            resultado = productoServicio.paginarProductos(filtro, orden, cursor, pagina, tamano);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+
+        Map<String, Object> respuesta = new LinkedHashMap<>();
+        respuesta.put("productos", campos == null || campos.isEmpty()
+                ? resultado.productos()
+                : resultado.productos().stream().map(p -> p.soloCampos(campos)).toList());
+        respuesta.put("pagina", resultado.pagina());
+        respuesta.put("total", resultado.total());
+        respuesta.put("siguienteCursor", resultado.siguienteCursor());
+        if (facetas) {
+            respuesta.put("facetas", productoServicio.calcularFacetas(filtro).orElse(null));
+        }
+        return ResponseEntity.ok(respuesta);
     }
 
     /**
@@ -182,6 +337,44 @@ public class ApiController {
         }).orElse(ResponseEntity.notFound().build());
     }
 
+    /**
+     * Inicia la importación de productos desde un archivo CSV con encabezado
+     * (nombre, descripcion, categoria, precio, cantidad, stockMinimo). Un producto con
+     * el mismo nombre se actualiza; el resto se crea. El archivo se procesa en segundo
+     * plano por lotes, así que la respuesta vuelve antes de que termine.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param archivo archivo CSV en UTF-8
+     * @return 202 con el estado inicial del trabajo, cuyo ID sirve para consultar el avance
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/productos/importaciones")
+    public ResponseEntity<?> importarProductos(@RequestParam MultipartFile archivo) {
+        if (archivo.isEmpty()) {
+            return ResponseEntity.badRequest().body("El archivo está vacío");
+        }
+        try (InputStream contenido = archivo.getInputStream()) {
+            return ResponseEntity.accepted().body(importacionProductosServicio.iniciar(archivo.getOriginalFilename(), contenido));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body("No se pudo leer el archivo: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Consulta el avance de una importación de productos.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param id ID del trabajo de importación
+     * @return filas leídas, insertadas, actualizadas y rechazadas (con su línea y motivo), o 404 si no existe
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @GetMapping("/productos/importaciones/{id}")
+    public ResponseEntity<?> estadoImportacionProductos(@PathVariable String id) {
+        return importacionProductosServicio.estado(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     // --- STOCK ---
     /**
      * Registra un movimiento de stock (entrada o salida).
@@ -206,23 +399,229 @@ public class ApiController {
     }
 
     /**
-     * Obtiene el historial de movimientos de stock, con filtros opcionales.
+     * Registra varios movimientos de stock en una sola llamada. Los movimientos se
+     * agrupan por producto y cada producto recibe un único ajuste con su cambio neto.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param movimientos lista de movimientos (productoId, cantidad, tipo, usuario)
+     * @return resultado de cada movimiento, en el mismo orden de la solicitud
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/stock/movimientos/bulk")
+    public ResponseEntity<?> registrarMovimientos(@RequestBody List<SolicitudMovimiento> movimientos) {
+        if (movimientos == null || movimientos.isEmpty()) {
+            return ResponseEntity.badRequest().body("Debe enviar al menos un movimiento");
+        }
+        if (movimientos.size() > MAX_MOVIMIENTOS_POR_CARGA) {
+            return ResponseEntity.badRequest().body("Máximo " + MAX_MOVIMIENTOS_POR_CARGA + " movimientos por carga");
+        }
+        List<ResultadoMovimiento> resultados = stockServicio.registrarMovimientos(movimientos);
+        return ResponseEntity.ok(resultados);
+    }
+
+    /**
+     * Obtiene el historial de movimientos de stock por páginas, con filtros opcionales.
+     * Los movimientos se ordenan por fecha e ID descendentes; para la página siguiente
+     * se envía el {@code siguienteCursor} de la respuesta anterior.
      * Requiere rol ADMINISTRADOR.
      *
      * @param productoId ID del producto (opcional)
      * @param tipo tipo de movimiento (opcional)
-     * @param desde fecha/hora desde (opcional, formato ISO 8601)
-     * @param hasta fecha/hora hasta (opcional, formato ISO 8601)
-     * @return lista de movimientos de stock
+     * @param desde fecha/hora desde, inclusive (opcional, formato ISO 8601)
+     * @param hasta fecha/hora hasta, inclusive (opcional, formato ISO 8601)
+     * @param cursor cursor de la página anterior (opcional)
+     * @param tamano cantidad de movimientos por página (por defecto 100, máximo 1000)
+     * @return página de movimientos y cursor siguiente, o 400 si el cursor no es válido
      */
     @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
     @GetMapping("/stock/historial")
-    public List<Stock> historialStock(
+    public ResponseEntity<?> historialStock(
             @RequestParam(required = false) Long productoId,
             @RequestParam(required = false) TipoMovimiento tipo,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
-            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "100") int tamano) {
+
+        if (tamano <= 0 || tamano > MAX_TAMANO_PAGINA) {
+            return ResponseEntity.badRequest().body("El tamaño de página debe estar entre 1 y " + MAX_TAMANO_PAGINA);
+        }
+        try {
+            return ResponseEntity.ok(stockServicio.paginarMovimientos(productoId, tipo, desde, hasta, cursor, tamano));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Obtiene el saldo de un producto calculado desde el libro de movimientos
+     * (último saldo guardado más los movimientos posteriores).
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param productoId ID del producto
+     * @return productoId, cantidad actual y saldo del libro, o 404 si no existe
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @GetMapping("/stock/saldo/{productoId}")
+    public ResponseEntity<?> saldoStock(@PathVariable Long productoId) {
+        return productoServicio.findById(productoId)
+                .<ResponseEntity<?>>map(p -> ResponseEntity.ok(Map.of(
+                        "productoId", p.getId(),
+                        "cantidad", p.getCantidad(),
+                        "saldoLibro", libroStockServicio.saldoActual(productoId))))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Ejecuta la conciliación entre producto.cantidad y el libro de movimientos.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @return particiones verificadas, productos con diferencia y duración
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/stock/conciliacion")
+    public ResultadoConciliacion conciliarStock() {
+        return libroStockServicio.conciliar();
+    }
+
+    /**
+     * Obtiene los totales diarios de movimientos (cantidad de movimientos y unidades)
+     * por producto y tipo, desde la tabla de resúmenes.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param desde primer día (formato ISO 8601, yyyy-MM-dd)
+     * @param hasta último día, inclusive
+     * @param productoId ID del producto (opcional)
+     * @param tipo tipo de movimiento (opcional)
+     * @return lista de resúmenes ordenada por día y producto
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @GetMapping("/stock/resumen")
+    public ResponseEntity<?> resumenStock(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+            @RequestParam(required = false) Long productoId,
+            @RequestParam(required = false) TipoMovimiento tipo) {
+        if (desde.isAfter(hasta)) {
+            return ResponseEntity.badRequest().body("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        return ResponseEntity.ok(resumenStockServicio.obtenerResumen(desde, hasta, productoId, tipo));
+    }
+
+    /**
+     * Recalcula los totales diarios de un rango de días a partir del historial de movimientos.
+     * La respuesta llega al terminar, por eso el rango admite como máximo
+     * app.stock.resumen.max-dias días (92 por defecto). Requiere rol ADMINISTRADOR.
+     *
+     * @param desde primer día (formato ISO 8601, yyyy-MM-dd)
+     * @param hasta último día, inclusive
+     * @return bloques procesados, filas escritas y duración, o 400 si el rango es demasiado largo
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/stock/resumen/reconstruir")
+    public ResponseEntity<?> reconstruirResumenStock(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta) {
+        try {
+            return ResponseEntity.ok(resumenStockServicio.reconstruir(desde, hasta));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Reserva unidades de un producto. Las unidades quedan retenidas hasta que la
+     * reserva se confirma, se libera o vence; mientras tanto ninguna salida puede tomarlas.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param productoId ID del producto
+     * @param cantidad unidades a reservar
+     * @param usuario usuario que reserva
+     * @return la reserva con su ID y vencimiento, o 400 si no hay stock disponible
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/stock/reservas")
+    public ResponseEntity<?> reservarStock(@RequestParam Long productoId,
+                                           @RequestParam int cantidad,
+                                           @RequestParam String usuario) {
+        try {
+            return ResponseEntity.ok(stockServicio.reservar(productoId, cantidad, usuario));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
 
-        return stockServicio.filtrarMovimientos(productoId, tipo, desde, hasta);
+    /**
+     * Confirma una reserva: descuenta las unidades y registra el movimiento de salida.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param id ID de la reserva
+     * @param usuario usuario que confirma (opcional, por defecto el de la reserva)
+     * @return 200 si se registró la salida, 400 si la reserva no existe, venció o ya se confirmó
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @PostMapping("/stock/reservas/{id}/confirmar")
+    public ResponseEntity<?> confirmarReservaStock(@PathVariable String id,
+                                                   @RequestParam(required = false) String usuario) {
+        try {
+            stockServicio.confirmarReserva(id, usuario);
+            return ResponseEntity.ok("Reserva confirmada");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Libera una reserva sin mover stock.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param id ID de la reserva
+     * @return 200 si se liberó, 404 si no existe
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @DeleteMapping("/stock/reservas/{id}")
+    public ResponseEntity<?> liberarReservaStock(@PathVariable String id) {
+        try {
+            stockServicio.liberarReserva(id);
+            return ResponseEntity.ok("Reserva liberada");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    // --- EXPORTACION ---
+    /**
+     * Exporta el catálogo completo en NDJSON. Las filas se escriben a medida que se leen
+     * de la base de datos, así que el tamaño del catálogo no afecta la memoria.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @return un producto por línea, ordenados por ID
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @GetMapping("/export/productos")
+    public ResponseEntity<StreamingResponseBody> exportarProductos() {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(salida -> exportacionServicio.exportarProductos(salida));
+    }
+
+    /**
+     * Exporta los movimientos de stock en NDJSON, leídos y escritos por tandas.
+     * Requiere rol ADMINISTRADOR.
+     *
+     * @param productoId ID del producto (opcional)
+     * @param desde fecha/hora desde, inclusive (opcional, formato ISO 8601)
+     * @param hasta fecha/hora hasta, inclusive (opcional, formato ISO 8601)
+     * @return un movimiento por línea, ordenados por fecha e ID
+     */
+    @PreAuthorize("hasRole('ROLE_ADMINISTRADOR')")
+    @GetMapping("/export/stock")
+    public ResponseEntity<StreamingResponseBody> exportarStock(
+            @RequestParam(required = false) Long productoId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime desde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime hasta) {
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .body(salida -> exportacionServicio.exportarMovimientos(productoId, desde, hasta, salida));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,37 @@
+package org.example.proyecto_final_calidad.controlador;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Caché de conteos de un grid lazy, por filtro. Vaadin pide el total en cada
+ * refresco y cambio de orden; el COUNT solo se ejecuta de nuevo si cambia el
+ * filtro, si se invalida tras una escritura o si pasa el tiempo de vigencia.
+ * Vive en la vista, así que es por sesión y no necesita sincronización.
+ */
+class ConteoPorFiltro<F> {
+
+    private static final long VIGENCIA_MS = 30_000;
+
+    private final Map<F, long[]> conteos = new HashMap<>(); // filtro -> [total, instante]
+    private final ToLongFunction<F> consulta;
+
+    ConteoPorFiltro(ToLongFunction<F> consulta) {
+        this.consulta = consulta;
+    }
+
+    int contar(F filtro) {
+        long ahora = System.currentTimeMillis();
+        long[] guardado = conteos.get(filtro);
+        if (guardado == null || ahora - guardado[1] > VIGENCIA_MS) {
+            guardado = new long[]{consulta.applyAsLong(filtro), ahora};
+            conteos.put(filtro, guardado);
+        }
+        return (int) Math.min(guardado[0], Integer.MAX_VALUE);
+    }
+
+    void invalidar() {
+        conteos.clear();
+    }
+}
@@ -16,25 +16,21 @@ import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteAlias;
 import com.vaadin.flow.server.VaadinSession;
 import org.example.proyecto_final_calidad.model.Role;
-import org.example.proyecto_final_calidad.model.User;
-import org.example.proyecto_final_calidad.repositorio.UserRepository;
-import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.DashboardMetricsService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 @Route("dashboard")
 @RouteAlias("")
 public class DashboardView extends VerticalLayout implements BeforeEnterObserver {
 
-    private final UserRepository userRepository;
-    private final ProductoRepositorio productoRepositorio;
+    private final DashboardMetricsService metricas;
 
     @Autowired
-    public DashboardView(UserRepository userRepository,
-                         ProductoRepositorio productoRepositorio) {
-        this.userRepository = userRepository;
-        this.productoRepositorio = productoRepositorio;
+    public DashboardView(DashboardMetricsService metricas) {
+        this.metricas = metricas;
         setId("dashboard-view");
         setSizeFull();
         setPadding(true);
@@ -51,10 +47,23 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
             event.forwardTo(LoginView.class);
             return;
         }
-        buildDashboard((User) authentication.getPrincipal());
+        buildDashboard(authentication.getName(), rolDe(authentication));
     }
 
-    private void buildDashboard(User currentUser) {
+    /**
+     * Obtiene el rol desde las autoridades, sea cual sea el tipo del principal
+     * (entidad de la sesión de Vaadin o principal cacheado del token JWT).
+     */
+    private static Role rolDe(Authentication authentication) {
+        return authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .filter(a -> a.startsWith("ROLE_"))
+                .map(a -> Role.valueOf(a.substring("ROLE_".length())))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private void buildDashboard(String username, Role role) {
         removeAll();
 
         HorizontalLayout header = new HorizontalLayout();
@@ -62,7 +71,7 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
         header.setWidthFull();
         header.setJustifyContentMode(JustifyContentMode.BETWEEN);
 
-        H1 welcome = new H1("Bienvenido, " + currentUser.getUsername());
+        H1 welcome = new H1("Bienvenido, " + username);
         welcome.setId("dashboard-welcome");
         Button logout = new Button("Cerrar sesión");
         logout.setId("logout-button");
@@ -81,10 +90,10 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
         statsLayout.setWidthFull();
         statsLayout.getStyle().set("gap", "1rem");
 
-        if (currentUser.getRole() == Role.ADMINISTRADOR) {
-            long totalProductos = productoRepositorio.count();
-            long lowStockCount = productoRepositorio.countByCantidadLessThanMinima();
-            long totalUsuarios = userRepository.count();
+        if (role == Role.ADMINISTRADOR) {
+            long totalProductos = metricas.totalProductos();
+            long lowStockCount = metricas.productosStockBajo();
+            long totalUsuarios = metricas.totalUsuarios();
 
             statsLayout.add(
                 createStatCard("Total de productos", totalProductos, "total-productos"),
@@ -92,9 +101,9 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
                 createStatCard("Total de usuarios", totalUsuarios, "total-usuarios")
             );
             add(statsLayout);
-        } else if (currentUser.getRole() == Role.EMPLEADO) {
-            long totalProductos = productoRepositorio.count();
-            long lowStockCount = productoRepositorio.countByCantidadLessThanMinima();
+        } else if (role == Role.EMPLEADO) {
+            long totalProductos = metricas.totalProductos();
+            long lowStockCount = metricas.productosStockBajo();
 
             statsLayout.add(
                 createStatCard("Total de productos", totalProductos, "total-productos"),
@@ -102,7 +111,7 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
             );
             add(statsLayout);
         } else {
-            long totalProductos = productoRepositorio.count();
+            long totalProductos = metricas.totalProductos();
 
             statsLayout.add(
                 createStatCard("Total de productos", totalProductos, "total-productos")
@@ -121,7 +130,7 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
         btnProductos.addClickListener(e -> UI.getCurrent().navigate("productos"));
         navLayout.add(btnProductos);
 
-        if (currentUser.getRole() == Role.ADMINISTRADOR) {
+        if (role == Role.ADMINISTRADOR) {
             Button btnUsuarios = new Button("Ver usuarios");
             btnUsuarios.setId("btn-ver-usuarios");
             btnUsuarios.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
@@ -129,7 +138,7 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
             navLayout.add(btnUsuarios);
         }
 
-        if (currentUser.getRole() == Role.ADMINISTRADOR || currentUser.getRole() == Role.EMPLEADO) {
+        if (role == Role.ADMINISTRADOR || role == Role.EMPLEADO) {
             Button btnStock = new Button("Control de stock");
             btnStock.setId("btn-control-stock");
             btnStock.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
@@ -165,6 +174,7 @@ public class DashboardView extends VerticalLayout implements BeforeEnterObserver
     private void logout() {
         SecurityContextHolder.clearContext();
         VaadinSession.getCurrent().setAttribute("jwt", null);
+        VaadinSession.getCurrent().setAttribute("refreshToken", null);
         UI.getCurrent().navigate("login");
     }
 }
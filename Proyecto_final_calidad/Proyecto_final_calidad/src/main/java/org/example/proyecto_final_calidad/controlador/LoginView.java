@@ -14,7 +14,7 @@ import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.router.RouteAlias;
 import com.vaadin.flow.server.VaadinSession;
-import org.example.proyecto_final_calidad.security.JwtUtils;
+import org.example.proyecto_final_calidad.security.RefreshTokenService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -36,12 +36,12 @@ public class LoginView extends VerticalLayout implements BeforeEnterObserver {
     private final PasswordField contrasena = new PasswordField("Contraseña");
 
     private final AuthenticationManager authenticationManager;
-    private final JwtUtils jwtUtils;
+    private final RefreshTokenService refreshTokenService;
 
     @Autowired
-    public LoginView(AuthenticationManager authenticationManager, JwtUtils jwtUtils) {
+    public LoginView(AuthenticationManager authenticationManager, RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
-        this.jwtUtils = jwtUtils;
+        this.refreshTokenService = refreshTokenService;
 
         setSizeFull();
         setAlignItems(Alignment.CENTER);
@@ -93,8 +93,10 @@ public class LoginView extends VerticalLayout implements BeforeEnterObserver {
 
             SecurityContextHolder.getContext().setAuthentication(authentication);
 
-            String jwt = jwtUtils.generateJwtToken(authentication);
-            VaadinSession.getCurrent().setAttribute("jwt", jwt);
+            // El token de acceso dura poco: VaadinJwtInitializer lo renueva con el refresh token
+            RefreshTokenService.TokenPair tokens = refreshTokenService.issue(authentication.getName());
+            VaadinSession.getCurrent().setAttribute("jwt", tokens.accessToken());
+            VaadinSession.getCurrent().setAttribute("refreshToken", tokens.refreshToken());
             UI.getCurrent().navigate("dashboard");
 
         } catch (AuthenticationException e) {
@@ -7,6 +7,7 @@ import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.formlayout.FormLayout;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.H2;
+import com.vaadin.flow.component.html.Span;
 import com.vaadin.flow.component.notification.Notification;
 import com.vaadin.flow.component.notification.NotificationVariant;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
@@ -18,7 +19,12 @@ import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.RangoPrecio;
 import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.ModoBusqueda;
 import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.servicios.ProductoServicio;
 import org.springframework.security.core.Authentication;
@@ -49,8 +55,10 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
 
     private final Dialog filterDialog = new Dialog();
     private final Button openFilterButton = new Button("Filtros");
+    private final Span resumenFacetas = new Span();
 
     private final TextField searchField = new TextField("Buscar por nombre o descripción");
+    private final Select<ModoBusqueda> modoBusqueda = new Select<>();
     private final Select<CategoriaProducto> categoriaFilter = new Select<>();
     private final NumberField minPrecio = new NumberField("Precio mínimo");
     private final NumberField maxPrecio = new NumberField("Precio máximo");
@@ -61,8 +69,13 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
 
     private Producto productoSeleccionado;
 
+    // El grid pide solo la página visible; el filtro actual se aplica en la consulta
+    private FiltroProducto filtroActual = FiltroProducto.vacio();
+    private final ConteoPorFiltro<FiltroProducto> conteos;
+
     public ProductoView(ProductoServicio productoServicio) {
         this._productoServicio = productoServicio;
+        this.conteos = new ConteoPorFiltro<>(productoServicio::countByFilters);
         verificarRoles();
         configurarEncabezado();
         configurarFiltros();
@@ -165,15 +178,20 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
     }
 
     private void configurarGrid() {
-        HorizontalLayout filtrosBoton = new HorizontalLayout(openFilterButton);
+        resumenFacetas.setId("resumen-facetas");
+        HorizontalLayout filtrosBoton = new HorizontalLayout(resumenFacetas, openFilterButton);
         filtrosBoton.setWidthFull();
-        filtrosBoton.setJustifyContentMode(JustifyContentMode.END);
+        filtrosBoton.setJustifyContentMode(JustifyContentMode.BETWEEN);
+        filtrosBoton.setAlignItems(Alignment.CENTER);
         openFilterButton.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
         openFilterButton.setId("btn-abrir-filtros");
         add(filtrosBoton);
 
         grid.setColumns("id", "nombre", "descripcion", "categoria", "precio", "cantidad", "stockMinimo");
         grid.setId("grid-productos");
+        grid.setItems(
+                query -> _productoServicio.findByFilters(filtroActual, VaadinSpringDataHelpers.toSpringPageRequest(query)).stream(),
+                query -> conteos.contar(filtroActual));
         if (isAdmin || isEmployee) {
             grid.addComponentColumn(producto -> {
                 Button editar = new Button("Editar", e -> {
@@ -231,7 +249,46 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
     }
 
     private void cargarProductos() {
-        grid.setItems(_productoServicio.findAll());
+        conteos.invalidar();
+        grid.getDataProvider().refreshAll();
+        actualizarFacetas();
+    }
+
+    /**
+     * Muestra cuántos productos daría cada categoría y banda de precio con el filtro
+     * actual, y cuántos tienen stock bajo. Si la consulta tarda demasiado se omite.
+     */
+    private void actualizarFacetas() {
+        FacetasProducto facetas = _productoServicio.calcularFacetas(filtroActual).orElse(null);
+        if (facetas == null) {
+            resumenFacetas.setText("");
+            categoriaFilter.setItemLabelGenerator(CategoriaProducto::getDisplayName);
+            return;
+        }
+
+        List<String> categorias = new ArrayList<>();
+        facetas.porCategoria().forEach((c, n) -> {
+            if (n > 0) {
+                categorias.add(c.getDisplayName() + ": " + n);
+            }
+        });
+        List<String> precios = new ArrayList<>();
+        for (RangoPrecio r : facetas.porPrecio()) {
+            if (r.productos() > 0) {
+                String rango = r.desde() == null ? "< " + r.hasta()
+                        : r.hasta() == null ? ">= " + r.desde()
+                        : r.desde() + "-" + r.hasta();
+                precios.add(rango + ": " + r.productos());
+            }
+        }
+        resumenFacetas.setText(facetas.total() + " productos"
+                + (categorias.isEmpty() ? "" : " | " + String.join(", ", categorias))
+                + (precios.isEmpty() ? "" : " | Precio " + String.join(", ", precios))
+                + " | Stock bajo: " + facetas.stockBajo() + ", sin stock: " + facetas.sinStock());
+
+        // El selector de categoría muestra cuántos resultados daría cada opción
+        categoriaFilter.setItemLabelGenerator(c ->
+                c.getDisplayName() + " (" + facetas.porCategoria().getOrDefault(c, 0L) + ")");
     }
 
     private void llenarFormulario(Producto producto) {
@@ -296,6 +353,7 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
 
     private void configurarFiltros() {
         searchField.setId("filtro-busqueda");
+        modoBusqueda.setId("filtro-modo-busqueda");
         categoriaFilter.setId("filtro-categoria");
         minPrecio.setId("filtro-precio-min");
         maxPrecio.setId("filtro-precio-max");
@@ -309,6 +367,11 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
         searchField.setClearButtonVisible(true);
         searchField.setWidthFull(); // Make search field take full width
 
+        modoBusqueda.setLabel("Tipo de búsqueda");
+        modoBusqueda.setItems(ModoBusqueda.values());
+        modoBusqueda.setValue(ModoBusqueda.CONTIENE);
+        modoBusqueda.setWidthFull();
+
         categoriaFilter.setLabel("Filtrar por categoría");
         categoriaFilter.setItems(CategoriaProducto.values());
         categoriaFilter.setPlaceholder("Todas las categorías");
@@ -345,7 +408,7 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
         });
 
         // Create a vertical layout for the search and category fields
-        VerticalLayout searchAndCategoryLayout = new VerticalLayout(searchField, categoriaFilter);
+        VerticalLayout searchAndCategoryLayout = new VerticalLayout(searchField, modoBusqueda, categoriaFilter);
         searchAndCategoryLayout.setSpacing(true);
         searchAndCategoryLayout.setPadding(false);
         searchAndCategoryLayout.setWidthFull();
@@ -395,26 +458,30 @@ public class ProductoView extends VerticalLayout implements BeforeEnterObserver
         }
 
         // Apply filters
-        List<Producto> filteredProducts = _productoServicio.findByFilters(
+        filtroActual = new FiltroProducto(
                 searchTerm,
                 categoriaSelected,
                 minPrecioValue,
                 maxPrecioValue,
                 minCantidadValue,
-                maxCantidadValue
+                maxCantidadValue,
+                modoBusqueda.getValue()
         );
 
-        grid.setItems(filteredProducts);
+        grid.getDataProvider().refreshAll();
+        actualizarFacetas();
     }
 
     private void limpiarFiltros() {
         searchField.clear();
+        modoBusqueda.setValue(ModoBusqueda.CONTIENE);
         categoriaFilter.clear();
         minPrecio.clear();
         maxPrecio.clear();
         minCantidad.clear();
         maxCantidad.clear();
 
+        filtroActual = FiltroProducto.vacio();
         cargarProductos(); // Reset to show all products
     }
 }
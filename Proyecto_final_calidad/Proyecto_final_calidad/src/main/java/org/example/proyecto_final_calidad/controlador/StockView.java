@@ -16,30 +16,35 @@ import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.VaadinSession;
-import org.example.proyecto_final_calidad.model.Stock;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
 import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.model.Role;
 import org.example.proyecto_final_calidad.model.TipoMovimiento;
 import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.DiarioMovimientos;
 import org.example.proyecto_final_calidad.servicios.StockServicio;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 
 import java.time.LocalDateTime;
-import java.util.List;
 
 @Route("stock")
 public class StockView extends VerticalLayout implements BeforeEnterObserver {
 
     private final ProductoRepositorio productoRepositorio;
     private final StockServicio controlStockServicio;
+    private final DiarioMovimientos diarioMovimientos; // null si el modo write-behind está desactivado
 
     private final ComboBox<Producto> comboProducto = new ComboBox<>("Producto");
     private final ComboBox<TipoMovimiento> comboTipo = new ComboBox<>("Tipo de movimiento");
     private final IntegerField cantidadField = new IntegerField("Cantidad");
     private final Button registrarButton = new Button("Registrar Movimiento");
 
-    private final Grid<Stock> grid = new Grid<>(Stock.class);
+    private final Grid<MovimientoStockDto> grid = new Grid<>(MovimientoStockDto.class, false);
 
     private String currentUsername;
     private boolean isAdmin = false;
@@ -52,9 +57,15 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
     private final Button botonFiltrar = new Button("Aplicar Filtros");
     private final Button botonLimpiar = new Button("Limpiar Filtros");
 
-    public StockView(ProductoRepositorio productoRepositorio, StockServicio controlStockServicio) {
+    private FiltroStock filtroActual = FiltroStock.vacio();
+    private final ConteoPorFiltro<FiltroStock> conteos;
+
+    public StockView(ProductoRepositorio productoRepositorio, StockServicio controlStockServicio,
+                     ObjectProvider<DiarioMovimientos> diarioMovimientos) {
         this.productoRepositorio = productoRepositorio;
         this.controlStockServicio = controlStockServicio;
+        this.diarioMovimientos = diarioMovimientos.getIfAvailable();
+        this.conteos = new ConteoPorFiltro<>(controlStockServicio::contarMovimientos);
 
         comboProducto.setId("comboProducto");
         comboTipo.setId("comboTipoMovimiento");
@@ -98,7 +109,9 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
 
         configurarHeader();
 
-        comboProducto.setItems(productoRepositorio.findAllByEstaActivo(true));
+        // Los ComboBox de productos buscan por nombre en la base de datos, página a página
+        comboProducto.setItems(query -> productoRepositorio.findByEstaActivoAndNombreContainingIgnoreCaseOrderByNombre(
+                true, query.getFilter().orElse(""), VaadinSpringDataHelpers.toSpringPageRequest(query)).stream());
         comboProducto.setItemLabelGenerator(Producto::getNombre);
 
         comboTipo.setItems(TipoMovimiento.values());
@@ -120,7 +133,8 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
     }
 
     private void configurarFiltros() {
-        filtroProducto.setItems(productoRepositorio.findAll());
+        filtroProducto.setItems(query -> productoRepositorio.findByNombreContainingIgnoreCaseOrderByNombre(
+                query.getFilter().orElse(""), VaadinSpringDataHelpers.toSpringPageRequest(query)).stream());
         filtroProducto.setItemLabelGenerator(Producto::getNombre);
         filtroTipo.setItems(TipoMovimiento.values());
 
@@ -146,8 +160,8 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
         LocalDateTime fechaInicio = filtroFechaInicio.getValue();
         LocalDateTime fechaFin = filtroFechaFin.getValue();
 
-        List<Stock> resultados = controlStockServicio.filtrarMovimientos(productoId, tipo, fechaInicio, fechaFin);
-        grid.setItems(resultados);
+        filtroActual = new FiltroStock(productoId, tipo, fechaInicio, fechaFin);
+        grid.getDataProvider().refreshAll();
     }
 
     private void limpiarFiltros() {
@@ -155,18 +169,22 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
         filtroTipo.clear();
         filtroFechaInicio.clear();
         filtroFechaFin.clear();
+        filtroActual = FiltroStock.vacio();
         cargarHistorial();
     }
 
     private void configurarGrid() {
         grid.removeAllColumns();
-        grid.addColumn(stock -> stock.getProducto().getNombre()).setHeader("Producto");
-        grid.addColumn(Stock::getTipo).setHeader("Movimiento");
-        grid.addColumn(Stock::getCantidad).setHeader("Cantidad");
-        grid.addColumn(Stock::getFecha).setHeader("Fecha");
-        grid.addColumn(Stock::getUsuario).setHeader("Registrado por");
+        grid.addColumn(MovimientoStockDto::productoNombre).setHeader("Producto").setSortProperty("producto.nombre");
+        grid.addColumn(MovimientoStockDto::tipo).setHeader("Movimiento").setSortProperty("tipo");
+        grid.addColumn(MovimientoStockDto::cantidad).setHeader("Cantidad").setSortProperty("cantidad");
+        grid.addColumn(MovimientoStockDto::fecha).setHeader("Fecha").setSortProperty("fecha");
+        grid.addColumn(MovimientoStockDto::usuario).setHeader("Registrado por").setSortProperty("usuario");
         grid.setWidthFull();
         grid.setId("gridStock");
+        grid.setItems(
+                query -> controlStockServicio.filtrarMovimientos(filtroActual, VaadinSpringDataHelpers.toSpringPageRequest(query)).stream(),
+                query -> conteos.contar(filtroActual));
         add(grid);
     }
 
@@ -263,18 +281,52 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
                                     int cantidad,
                                     TipoMovimiento tipo,
                                     String currentUsername) {
-        controlStockServicio.registrarMovimiento(producto, cantidad, tipo, currentUsername);
-        Notification.show("Movimiento registrado exitosamente");
+        // El diario solo responde false si el movimiento no llegó a escribirse en él, así
+        // que el registro síncrono no puede aplicarlo dos veces
+        if (diarioMovimientos != null && registrarEnDiario(producto, cantidad, tipo, currentUsername)) {
+            Notification.show("Movimiento registrado; se aplicará al inventario en segundo plano");
+        } else {
+            controlStockServicio.registrarMovimiento(producto, cantidad, tipo, currentUsername);
+            Notification.show("Movimiento registrado exitosamente");
+        }
         comboProducto.clear();
         comboTipo.clear();
         cantidadField.clear();
         cargarHistorial();
     }
 
+    /**
+     * Modo write-behind: deja el movimiento en el diario local y retorna en cuanto está
+     * en disco. La validación definitiva de stock ocurre al aplicarlo en la base de datos.
+     */
+    private boolean registrarEnDiario(Producto producto,
+                                      int cantidad,
+                                      TipoMovimiento tipo,
+                                      String currentUsername) {
+        if (tipo == TipoMovimiento.SALIDA && producto.getCantidad() < cantidad) {
+            throw new IllegalArgumentException("No hay suficiente stock disponible");
+        }
+        boolean registrado;
+        try {
+            registrado = diarioMovimientos.registrar(
+                    new SolicitudMovimiento(producto.getId(), cantidad, tipo, currentUsername));
+        } catch (IllegalStateException e) {
+            // Ya está en el diario y se aplicará al drenar: no se repite por la vía síncrona
+            Notification.show(e.getMessage(), 4000, Notification.Position.MIDDLE)
+                    .addThemeVariants(NotificationVariant.LUMO_CONTRAST);
+            registrado = true;
+        }
+        if (registrado) {
+            producto.setCantidad(tipo == TipoMovimiento.ENTRADA
+                    ? producto.getCantidad() + cantidad
+                    : producto.getCantidad() - cantidad);
+        }
+        return registrado;
+    }
 
     private void cargarHistorial() {
-        List<Stock> historial = controlStockServicio.obtenerHistorial();
-        grid.setItems(historial);
+        conteos.invalidar();
+        grid.getDataProvider().refreshAll();
     }
 
     private void logout() {
@@ -282,6 +334,7 @@ public class StockView extends VerticalLayout implements BeforeEnterObserver {
         VaadinSession session = VaadinSession.getCurrent();
         if (session != null) {
             session.setAttribute("jwt", null);
+            session.setAttribute("refreshToken", null);
         }
         getUI().ifPresent(ui -> ui.navigate("login"));
     }
@@ -19,9 +19,12 @@ import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
 import com.vaadin.flow.router.Route;
 import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
 import org.example.proyecto_final_calidad.model.Role;
 import org.example.proyecto_final_calidad.model.User;
 import org.example.proyecto_final_calidad.repositorio.UserRepository;
+import org.example.proyecto_final_calidad.servicios.UsuarioServicio;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -33,6 +36,7 @@ import java.util.List;
 public class UserView extends VerticalLayout implements BeforeEnterObserver {
 
     private final UserRepository userRepository;
+    private final UsuarioServicio usuarioServicio;
     private final PasswordEncoder passwordEncoder;
 
     private final Grid<User> grid = new Grid<>(User.class);
@@ -50,13 +54,17 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
     private final Dialog filtroDialog = new Dialog();
 
     private User selectedUser;
+    private Role rolFiltrado; // null = todos
+    private final ConteoPorFiltro<Role> conteos;
     private String currentUsername;
     private boolean isAdmin = false;
     private boolean isEmployee = false;
 
-    public UserView(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserView(UserRepository userRepository, UsuarioServicio usuarioServicio, PasswordEncoder passwordEncoder) {
         this.userRepository = userRepository;
+        this.usuarioServicio = usuarioServicio;
         this.passwordEncoder = passwordEncoder;
+        this.conteos = new ConteoPorFiltro<>(rol -> rol != null ? userRepository.countByRole(rol) : userRepository.count());
 
         save.addClickListener(e -> saveUser());
         clear.addClickListener(e -> clearForm());
@@ -146,20 +154,15 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
         filtroRol.setPlaceholder("Todos");
 
         Button aplicar = new Button("Aplicar", e -> {
-            Role seleccionado = filtroRol.getValue();
-            if (seleccionado != null) {
-                grid.setItems(userRepository.findAll().stream()
-                        .filter(u -> u.getRole() == seleccionado)
-                        .toList());
-            } else {
-                loadUsers();
-            }
+            rolFiltrado = filtroRol.getValue();
+            grid.getDataProvider().refreshAll();
             filtroDialog.close();
         });
         aplicar.addThemeVariants(ButtonVariant.LUMO_PRIMARY);
 
         Button limpiar = new Button("Limpiar", e -> {
             filtroRol.clear();
+            rolFiltrado = null;
             loadUsers();
             filtroDialog.close();
         });
@@ -197,6 +200,12 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
 
     private void configurarGrid() {
         grid.setColumns("id", "username", "email", "role");
+        grid.setItems(query -> {
+            Pageable pagina = VaadinSpringDataHelpers.toSpringPageRequest(query);
+            return rolFiltrado != null
+                    ? userRepository.findByRole(rolFiltrado, pagina).stream()
+                    : userRepository.findAll(pagina).stream();
+        }, query -> conteos.contar(rolFiltrado));
 
         if (isAdmin) {
             grid.addComponentColumn(user -> {
@@ -224,7 +233,7 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
 
                     dialogo.addConfirmListener(event -> {
                         user.setEnabled(!user.isEnabled());
-                        userRepository.save(user);
+                        usuarioServicio.save(user);
 
                         Notification.show("Usuario " + (user.isEnabled() ? "activado" : "desactivado"));
 
@@ -249,7 +258,8 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
     }
 
     private void loadUsers() {
-        grid.setItems(userRepository.findAll());
+        conteos.invalidar();
+        grid.getDataProvider().refreshAll();
     }
 
     private void fillForm(User user) {
@@ -290,7 +300,7 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
         selectedUser.setEmail(email.getValue());
         selectedUser.setRole(role.getValue());
 
-        userRepository.save(selectedUser);
+        usuarioServicio.save(selectedUser);
         Notification.show("Usuario guardado exitosamente");
         clearForm();
         loadUsers();
@@ -322,6 +332,7 @@ public class UserView extends VerticalLayout implements BeforeEnterObserver {
         VaadinSession session = VaadinSession.getCurrent();
         if (session != null) {
             session.setAttribute("jwt", null);
+            session.setAttribute("refreshToken", null);
         }
         getUI().ifPresent(ui -> ui.navigate("login"));
     }
@@ -0,0 +1,32 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición en el historial de stock para paginación por clave (fecha, id).
+ * Se entrega al cliente como texto opaco.
+ *
+ * @param fecha fecha del último movimiento de la página anterior
+ * @param id ID del último movimiento de la página anterior
+ */
+public record CursorHistorial(LocalDateTime fecha, Long id) {
+
+    public String codificar() {
+        String texto = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorHistorial decodificar(String cursor) {
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = texto.indexOf('|');
+            return new CursorHistorial(LocalDateTime.parse(texto.substring(0, separador)),
+                    Long.parseLong(texto.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición en el catálogo para paginación por clave (campo de orden, id). Lleva el
+ * orden con el que se generó, así la página siguiente usa el mismo aunque el cliente
+ * no lo repita. Se entrega al cliente como texto opaco.
+ *
+ * @param campo campo de orden
+ * @param ascendente dirección del orden
+ * @param id ID del último producto de la página anterior
+ * @param valor valor del campo de orden en ese producto
+ */
+public record CursorProducto(String campo, boolean ascendente, Long id, String valor) {
+
+    public String codificar() {
+        // El valor va al final porque puede contener el separador (nombres)
+        String texto = campo + "|" + (ascendente ? "asc" : "desc") + "|" + id + "|" + valor;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorProducto decodificar(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", 4);
+            if (!"asc".equals(partes[1]) && !"desc".equals(partes[1])) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new CursorProducto(partes[0], "asc".equals(partes[1]), Long.parseLong(partes[2]), partes[3]);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.proyecto_final_calidad.dto;
+
+/**
+ * Producto cuya cantidad no coincide con el saldo calculado desde el libro de movimientos.
+ *
+ * @param productoId ID del producto
+ * @param cantidadProducto valor de producto.cantidad
+ * @param saldoLibro saldo reproducido desde los movimientos
+ */
+public record DiferenciaStock(Long productoId, int cantidadProducto, long saldoLibro) {
+}
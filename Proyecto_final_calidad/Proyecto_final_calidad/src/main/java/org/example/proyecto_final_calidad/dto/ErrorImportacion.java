@@ -0,0 +1,10 @@
+package org.example.proyecto_final_calidad.dto;
+
+/**
+ * Fila rechazada de una importación de productos.
+ *
+ * @param linea línea del archivo donde empieza la fila
+ * @param mensaje motivo del rechazo
+ */
+public record ErrorImportacion(long linea, String mensaje) {
+}
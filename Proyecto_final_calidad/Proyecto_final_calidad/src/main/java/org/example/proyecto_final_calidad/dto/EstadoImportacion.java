@@ -0,0 +1,24 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Progreso de una importación de productos desde CSV.
+ *
+ * @param filasLeidas filas de datos leídas del archivo hasta el momento
+ * @param insertados productos nuevos
+ * @param actualizados productos existentes (mismo nombre) actualizados
+ * @param rechazadas filas que no pasaron la validación
+ * @param errores detalle de las primeras filas rechazadas
+ * @param falla motivo si la importación se detuvo por un error general
+ */
+public record EstadoImportacion(String id, Fase fase, String archivo,
+                                long filasLeidas, long insertados, long actualizados, long rechazadas,
+                                List<ErrorImportacion> errores,
+                                LocalDateTime inicio, LocalDateTime fin, String falla) {
+
+    public enum Fase {
+        PENDIENTE, EN_CURSO, COMPLETADA, FALLIDA
+    }
+}
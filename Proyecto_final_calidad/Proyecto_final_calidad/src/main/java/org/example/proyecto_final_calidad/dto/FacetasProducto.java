@@ -0,0 +1,18 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Conteos que acompañan a una búsqueda de productos. porCategoria no aplica el filtro de
+ * categoría y porPrecio no aplica el de precio; total, stockBajo (cantidad &lt; stock
+ * mínimo) y sinStock aplican todos los filtros.
+ */
+public record FacetasProducto(long total,
+                              Map<CategoriaProducto, Long> porCategoria,
+                              List<RangoPrecio> porPrecio,
+                              long stockBajo,
+                              long sinStock) {
+}
@@ -0,0 +1,37 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.ModoBusqueda;
+
+/**
+ * Filtros de la búsqueda de productos. Todos los campos son opcionales (null = sin filtro).
+ * Al ser un record se puede usar como clave de caché.
+ */
+public record FiltroProducto(String searchTerm, CategoriaProducto categoria,
+                             Double minPrecio, Double maxPrecio,
+                             Integer minCantidad, Integer maxCantidad,
+                             ModoBusqueda modo) {
+
+    public FiltroProducto {
+        if (modo == null) {
+            modo = ModoBusqueda.CONTIENE;
+        }
+    }
+
+    public FiltroProducto(String searchTerm, CategoriaProducto categoria,
+                          Double minPrecio, Double maxPrecio,
+                          Integer minCantidad, Integer maxCantidad) {
+        this(searchTerm, categoria, minPrecio, maxPrecio, minCantidad, maxCantidad, ModoBusqueda.CONTIENE);
+    }
+
+    public static FiltroProducto vacio() {
+        return new FiltroProducto(null, null, null, null, null, null);
+    }
+
+    /**
+     * @return true si hay texto de búsqueda y debe resolverse con el índice de texto completo
+     */
+    public boolean textoCompleto() {
+        return modo == ModoBusqueda.TEXTO_COMPLETO && searchTerm != null && !searchTerm.isBlank();
+    }
+}
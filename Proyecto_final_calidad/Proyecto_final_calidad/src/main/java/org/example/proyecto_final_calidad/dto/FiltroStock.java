@@ -0,0 +1,15 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filtros del historial de stock. Todos los campos son opcionales (null = sin filtro).
+ */
+public record FiltroStock(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+
+    public static FiltroStock vacio() {
+        return new FiltroStock(null, null, null, null);
+    }
+}
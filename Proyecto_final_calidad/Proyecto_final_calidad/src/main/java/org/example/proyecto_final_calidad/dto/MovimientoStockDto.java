@@ -0,0 +1,13 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fila del historial de stock. Se construye directamente en la consulta (JOIN con
+ * producto), sin cargar entidades Stock ni Producto.
+ */
+public record MovimientoStockDto(Long id, Long productoId, String productoNombre, TipoMovimiento tipo,
+                                 int cantidad, LocalDateTime fecha, String usuario) {
+}
@@ -0,0 +1,12 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.util.List;
+
+/**
+ * Página del historial de stock, ordenada por fecha e ID descendentes.
+ *
+ * @param movimientos movimientos de la página
+ * @param siguienteCursor cursor para pedir la página siguiente, null si no hay más
+ */
+public record PaginaHistorial(List<MovimientoStockDto> movimientos, String siguienteCursor) {
+}
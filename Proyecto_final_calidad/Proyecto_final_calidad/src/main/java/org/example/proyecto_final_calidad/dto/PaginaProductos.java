@@ -0,0 +1,14 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.util.List;
+
+/**
+ * Página del catálogo de productos.
+ *
+ * @param productos productos de la página
+ * @param pagina número de página (desde 0), null si se pidió con cursor
+ * @param total productos que cumplen el filtro, null si se pidió con cursor
+ * @param siguienteCursor cursor para pedir la página siguiente, null si no hay más
+ */
+public record PaginaProductos(List<ProductoDto> productos, Integer pagina, Long total, String siguienteCursor) {
+}
@@ -0,0 +1,46 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Producto para la API, armado directamente en la consulta (proyección): no es una
+ * entidad administrada, así que no pasa por el contexto de persistencia.
+ */
+public record ProductoDto(Long id, String nombre, String descripcion, CategoriaProducto categoria,
+                          double precio, int cantidad, int stockMinimo, boolean estaActivo) {
+
+    public static final List<String> CAMPOS = List.of(
+            "id", "nombre", "descripcion", "categoria", "precio", "cantidad", "stockMinimo", "estaActivo");
+
+    /**
+     * @return solo los campos pedidos, en el orden de CAMPOS
+     */
+    public Map<String, Object> soloCampos(Collection<String> campos) {
+        Map<String, Object> resultado = new LinkedHashMap<>();
+        for (String campo : CAMPOS) {
+            if (campos.contains(campo)) {
+                resultado.put(campo, valor(campo));
+            }
+        }
+        return resultado;
+    }
+
+    private Object valor(String campo) {
+        return switch (campo) {
+            case "id" -> id;
+            case "nombre" -> nombre;
+            case "descripcion" -> descripcion;
+            case "categoria" -> categoria;
+            case "precio" -> precio;
+            case "cantidad" -> cantidad;
+            case "stockMinimo" -> stockMinimo;
+            case "estaActivo" -> estaActivo;
+            default -> throw new IllegalArgumentException("Campo desconocido: " + campo);
+        };
+    }
+}
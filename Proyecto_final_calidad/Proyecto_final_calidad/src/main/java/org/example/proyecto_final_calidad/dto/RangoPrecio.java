@@ -0,0 +1,21 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Banda de precio de las facetas de productos: [desde, hasta). null = sin límite.
+ */
+public record RangoPrecio(Double desde, Double hasta, long productos) {
+
+    /**
+     * Arma las bandas a partir de sus límites; conteos tiene un elemento más que limites.
+     */
+    public static List<RangoPrecio> de(double[] limites, long[] conteos) {
+        List<RangoPrecio> rangos = new ArrayList<>();
+        for (int i = 0; i <= limites.length; i++) {
+            rangos.add(new RangoPrecio(i == 0 ? null : limites[i - 1], i == limites.length ? null : limites[i], conteos[i]));
+        }
+        return rangos;
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reserva temporal de stock para una salida en curso.
+ *
+ * @param id identificador de la reserva (UUID)
+ * @param productoId ID del producto
+ * @param cantidad unidades reservadas
+ * @param usuario usuario que reservó
+ * @param expira momento en que la reserva vence si no se confirma
+ */
+public record Reserva(String id, Long productoId, int cantidad, String usuario, LocalDateTime expira) {
+
+    public boolean vencida(LocalDateTime ahora) {
+        return !expira.isAfter(ahora);
+    }
+}
@@ -0,0 +1,13 @@
+package org.example.proyecto_final_calidad.dto;
+
+import java.util.List;
+
+/**
+ * Resultado de una conciliación del libro de stock contra producto.cantidad.
+ *
+ * @param particiones número de rangos de productos verificados en paralelo
+ * @param diferencias productos con diferencia
+ * @param milisegundos duración total
+ */
+public record ResultadoConciliacion(int particiones, List<DiferenciaStock> diferencias, long milisegundos) {
+}
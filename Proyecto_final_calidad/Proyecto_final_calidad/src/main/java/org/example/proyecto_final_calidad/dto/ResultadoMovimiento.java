@@ -0,0 +1,20 @@
+package org.example.proyecto_final_calidad.dto;
+
+/**
+ * Resultado de un movimiento dentro de una carga masiva.
+ *
+ * @param indice posición del movimiento en la solicitud original
+ * @param productoId ID del producto
+ * @param exitoso true si el movimiento fue aplicado
+ * @param error motivo del rechazo, null si fue exitoso
+ */
+public record ResultadoMovimiento(int indice, Long productoId, boolean exitoso, String error) {
+
+    public static ResultadoMovimiento exito(int indice, Long productoId) {
+        return new ResultadoMovimiento(indice, productoId, true, null);
+    }
+
+    public static ResultadoMovimiento fallo(int indice, Long productoId, String error) {
+        return new ResultadoMovimiento(indice, productoId, false, error);
+    }
+}
@@ -0,0 +1,11 @@
+package org.example.proyecto_final_calidad.dto;
+
+/**
+ * Resultado de la reconstrucción de los resúmenes diarios desde el historial.
+ *
+ * @param bloques rangos de días procesados en paralelo
+ * @param filas filas de resumen escritas
+ * @param milisegundos duración total
+ */
+public record ResultadoReconstruccion(int bloques, long filas, long milisegundos) {
+}
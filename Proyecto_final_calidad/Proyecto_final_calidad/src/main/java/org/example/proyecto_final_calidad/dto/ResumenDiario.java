@@ -0,0 +1,17 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+
+import java.time.LocalDate;
+
+/**
+ * Totales de movimientos de un producto en un día, por tipo.
+ *
+ * @param productoId ID del producto
+ * @param dia día de los movimientos
+ * @param tipo tipo de movimiento
+ * @param movimientos número de movimientos
+ * @param cantidad suma de las cantidades movidas
+ */
+public record ResumenDiario(Long productoId, LocalDate dia, TipoMovimiento tipo, long movimientos, long cantidad) {
+}
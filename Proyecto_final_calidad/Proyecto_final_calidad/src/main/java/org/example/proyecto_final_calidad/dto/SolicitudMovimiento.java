@@ -0,0 +1,21 @@
+package org.example.proyecto_final_calidad.dto;
+
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+
+/**
+ * Movimiento de stock recibido en una carga masiva.
+ *
+ * @param productoId ID del producto
+ * @param cantidad cantidad a mover (positiva)
+ * @param tipo tipo de movimiento (ENTRADA o SALIDA)
+ * @param usuario nombre del usuario que realiza el movimiento
+ */
+public record SolicitudMovimiento(Long productoId, int cantidad, TipoMovimiento tipo, String usuario) {
+
+    /**
+     * @return la cantidad con signo: positiva para ENTRADA, negativa para SALIDA
+     */
+    public int delta() {
+        return tipo == TipoMovimiento.ENTRADA ? cantidad : -cantidad;
+    }
+}
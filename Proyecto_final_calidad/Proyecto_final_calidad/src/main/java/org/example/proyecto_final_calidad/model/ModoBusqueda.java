@@ -0,0 +1,26 @@
+package org.example.proyecto_final_calidad.model;
+
+/**
+ * Forma de aplicar el texto de búsqueda de productos.
+ */
+public enum ModoBusqueda {
+    /** El nombre o la descripción contienen el texto (LIKE, sin orden por relevancia). */
+    CONTIENE("Contiene el texto"),
+    /** Texto completo en español más similitud por nombre, ordenado por relevancia. */
+    TEXTO_COMPLETO("Por relevancia");
+
+    private final String displayName;
+
+    ModoBusqueda(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
@@ -1,11 +1,20 @@
 package org.example.proyecto_final_calidad.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.envers.AuditTable;
 import org.hibernate.envers.Audited;
+import org.hibernate.envers.NotAudited;
 
 @Entity
 @Table(name = "producto")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "producto")
+// Solo se escriben las columnas cambiadas: una edición que no toca la cantidad no pisa
+// los movimientos de stock que la cambiaron mientras tanto
+@DynamicUpdate
 @Audited
 @AuditTable(value = "au_producto")
 public class Producto {
@@ -23,6 +32,29 @@ public class Producto {
     private int stockMinimo;
     private boolean estaActivo = true;
 
+    // Unidades retenidas por reservas (ver ReservasStock). Solo la modifican UPDATE
+    // condicionales; la entidad nunca la escribe y se usa únicamente en las consultas
+    @NotAudited
+    @Column(insertable = false, updatable = false)
+    private int reservado;
+
+    // Cantidad leída de la base al cargar la entidad; ProductoServicio.save la compara
+    // con la actual para no sobrescribir cambios hechos mientras se editaba
+    @Transient
+    private Integer cantidadCargada;
+
+    @PostLoad
+    void recordarCantidadCargada() {
+        cantidadCargada = cantidad;
+    }
+
+    /**
+     * @return la cantidad que tenía el producto al leerlo de la base, o null si no se leyó
+     */
+    public Integer cantidadCargada() {
+        return cantidadCargada;
+    }
+
     // Getters y setters
     public Long getId() {
         return id;
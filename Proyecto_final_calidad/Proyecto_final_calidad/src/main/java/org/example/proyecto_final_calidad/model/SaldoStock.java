@@ -0,0 +1,92 @@
+package org.example.proyecto_final_calidad.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Saldo de un producto en el libro de movimientos de stock: la suma de todos los
+ * movimientos del producto hasta la secuencia {@code ultimaSecuencia} inclusive.
+ */
+@Entity
+@Table(name = "stock_saldo")
+public class SaldoStock {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "producto_id", nullable = false)
+    private Long productoId;
+
+    @Column(name = "ultima_secuencia", nullable = false)
+    private Long ultimaSecuencia;
+
+    private int saldo;
+
+    @Enumerated(EnumType.STRING)
+    private TipoSaldo tipo;
+
+    private LocalDateTime fecha;
+
+    public SaldoStock() {
+    }
+
+    public SaldoStock(Long productoId, Long ultimaSecuencia, int saldo, TipoSaldo tipo) {
+        this.productoId = productoId;
+        this.ultimaSecuencia = ultimaSecuencia;
+        this.saldo = saldo;
+        this.tipo = tipo;
+        this.fecha = LocalDateTime.now();
+    }
+
+    // Getters y Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getProductoId() {
+        return productoId;
+    }
+
+    public void setProductoId(Long productoId) {
+        this.productoId = productoId;
+    }
+
+    public Long getUltimaSecuencia() {
+        return ultimaSecuencia;
+    }
+
+    public void setUltimaSecuencia(Long ultimaSecuencia) {
+        this.ultimaSecuencia = ultimaSecuencia;
+    }
+
+    public int getSaldo() {
+        return saldo;
+    }
+
+    public void setSaldo(int saldo) {
+        this.saldo = saldo;
+    }
+
+    public TipoSaldo getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(TipoSaldo tipo) {
+        this.tipo = tipo;
+    }
+
+    public LocalDateTime getFecha() {
+        return fecha;
+    }
+
+    public void setFecha(LocalDateTime fecha) {
+        this.fecha = fecha;
+    }
+}
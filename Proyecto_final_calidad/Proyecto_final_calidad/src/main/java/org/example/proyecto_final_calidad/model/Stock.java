@@ -11,11 +11,14 @@ import java.time.LocalDateTime;
 @AuditTable(value = "au_stock")
 public class Stock {
 
+    // Secuencia con asignación en bloques para que Hibernate pueda agrupar los INSERT en lotes JDBC
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_seq")
+    @SequenceGenerator(name = "stock_seq", sequenceName = "stock_id_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne(optional = false)
+    // LAZY: el historial se lee con MovimientoStockDto y no necesita cargar el producto
+    @ManyToOne(optional = false, fetch = FetchType.LAZY)
     private Producto producto;
 
     private int cantidad;
@@ -23,10 +26,17 @@ public class Stock {
     @Enumerated(EnumType.STRING)
     private TipoMovimiento tipo;
 
+    // Columna de partición de la tabla stock (ver V1_0_6)
+    @Column(nullable = false)
     private LocalDateTime fecha;
 
     private String usuario;
 
+    // Posición del movimiento dentro de su producto (producto.movimientos). Se asigna con
+    // la fila del producto bloqueada, así que a diferencia del id sigue el orden de commit
+    @Column(nullable = false)
+    private Long secuencia;
+
     // Getters y Setters
 
     public Long getId() {
@@ -76,4 +86,12 @@ public class Stock {
     public void setUsuario(String usuario) {
         this.usuario = usuario;
     }
+
+    public Long getSecuencia() {
+        return secuencia;
+    }
+
+    public void setSecuencia(Long secuencia) {
+        this.secuencia = secuencia;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package org.example.proyecto_final_calidad.model;
+
+/**
+ * Origen de un saldo guardado en el libro de stock.
+ */
+public enum TipoSaldo {
+    /** Saldo de partida de un producto (al crearlo o al migrar datos existentes). */
+    INICIAL,
+    /** Saldo calculado cada N movimientos para acortar la reproducción del libro. */
+    PERIODICO,
+    /** Cambio directo de la cantidad del producto fuera de un movimiento de stock. */
+    AJUSTE,
+    /** Saldo del libro guardado antes de archivar una partición mensual de movimientos. */
+    CIERRE
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.envers.AuditTable;
 import org.hibernate.envers.Audited;
 import org.springframework.security.core.GrantedAuthority;
@@ -19,6 +21,8 @@ import java.util.Collections;
  */
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuario")
 @Audited
 @AuditTable(value = "au_users")
 public class User implements UserDetails {
@@ -33,7 +37,7 @@ public class User implements UserDetails {
     private String username;
 
     @NotBlank
-    @Size(min = 8, max = 120)
+    @Size(min = 8, max = 255)
     private String password;
 
     @Email
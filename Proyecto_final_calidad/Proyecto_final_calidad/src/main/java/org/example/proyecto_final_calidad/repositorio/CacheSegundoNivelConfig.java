@@ -0,0 +1,97 @@
+package org.example.proyecto_final_calidad.repositorio;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.util.OptionalLong;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caché de segundo nivel de Hibernate sobre Caffeine (JCache). Cada región tiene su
+ * límite de entradas y su vencimiento; Hibernate invalida las entidades y las consultas
+ * cacheadas cuando las modifica, incluidas las sentencias UPDATE en JPQL. Lo que se
+ * escribe con SQL nativo (la importación de productos) debe desalojarse a mano.
+ */
+@Configuration
+public class CacheSegundoNivelConfig {
+
+    public static final String REGION_PRODUCTO = "producto";
+    public static final String REGION_USUARIO = "usuario";
+    public static final String REGION_CONSULTAS_PRODUCTO = "productos-consultas";
+    public static final String REGION_CONSULTAS_USUARIO = "usuarios-consultas";
+
+    // Regiones propias de Hibernate; la de marcas de tiempo valida las consultas
+    // cacheadas y no debe vencer antes que ellas
+    private static final String REGION_MARCAS_TIEMPO = "default-update-timestamps-region";
+    private static final String REGION_CONSULTAS_DEFECTO = "default-query-results-region";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheSegundoNivel(
+            @Value("${app.cache.productos.maximo:10000}") long maximoProductos,
+            @Value("${app.cache.productos.expira-segundos:1800}") long expiraProductos,
+            @Value("${app.cache.usuarios.maximo:1000}") long maximoUsuarios,
+            @Value("${app.cache.usuarios.expira-segundos:1800}") long expiraUsuarios,
+            @Value("${app.cache.consultas.maximo:200}") long maximoConsultas,
+            @Value("${app.cache.consultas.expira-segundos:300}") long expiraConsultas) {
+        CachingProvider proveedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = proveedor.getCacheManager(proveedor.getDefaultURI(), getClass().getClassLoader());
+
+        cacheManager.createCache(REGION_PRODUCTO, configuracion(maximoProductos, expiraProductos));
+        cacheManager.createCache(REGION_USUARIO, configuracion(maximoUsuarios, expiraUsuarios));
+        cacheManager.createCache(REGION_CONSULTAS_PRODUCTO, configuracion(maximoConsultas, expiraConsultas));
+        cacheManager.createCache(REGION_CONSULTAS_USUARIO, configuracion(maximoUsuarios, expiraConsultas));
+        cacheManager.createCache(REGION_CONSULTAS_DEFECTO, configuracion(maximoConsultas, expiraConsultas));
+        cacheManager.createCache(REGION_MARCAS_TIEMPO, configuracion(0, 0));
+        return cacheManager;
+    }
+
+    /**
+     * Entrega a Hibernate el CacheManager con las regiones ya creadas, en lugar de que
+     * cree uno propio con valores por defecto.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer cacheSegundoNivelHibernate(CacheManager cacheSegundoNivel) {
+        return propiedades -> propiedades.put(ConfigSettings.CACHE_MANAGER, cacheSegundoNivel);
+    }
+
+    /**
+     * Publica aciertos, fallos, escrituras y desalojos de cada región (cache_gets_total,
+     * cache_puts_total, cache_evictions_total... con la etiqueta cache=región).
+     */
+    @Bean
+    public MeterBinder cacheSegundoNivelMetricas(CacheManager cacheSegundoNivel) {
+        return registry -> {
+            for (String region : cacheSegundoNivel.getCacheNames()) {
+                JCacheMetrics.monitor(registry, cacheSegundoNivel.getCache(region));
+            }
+        };
+    }
+
+    /**
+     * @param maximo entradas como máximo, 0 sin límite
+     * @param expiraSegundos vencimiento desde la escritura, 0 sin vencimiento
+     */
+    private static CaffeineConfiguration<Object, Object> configuracion(long maximo, long expiraSegundos) {
+        CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+        // Hibernate guarda entradas inmutables; copiarlas en cada lectura no aporta nada
+        configuracion.setStoreByValue(false);
+        configuracion.setStatisticsEnabled(true);
+        if (maximo > 0) {
+            configuracion.setMaximumSize(OptionalLong.of(maximo));
+        }
+        if (expiraSegundos > 0) {
+            configuracion.setExpireAfterWrite(OptionalLong.of(TimeUnit.SECONDS.toNanos(expiraSegundos)));
+        }
+        return configuracion;
+    }
+}
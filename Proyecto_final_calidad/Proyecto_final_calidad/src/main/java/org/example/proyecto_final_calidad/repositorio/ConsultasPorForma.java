@@ -0,0 +1,49 @@
+package org.example.proyecto_final_calidad.repositorio;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Consultas JPQL de filtros guardadas como named queries según su forma (qué filtros
+ * vienen y en qué orden). La primera vez que aparece una forma se arma el JPQL y
+ * Hibernate lo traduce; las siguientes crean la consulta desde la named query ya
+ * compilada, sin armar un árbol Criteria ni volver a traducir. Los valores de los
+ * filtros siempre van como parámetros, nunca en el texto.
+ */
+final class ConsultasPorForma {
+
+    // Las formas son combinaciones finitas de filtros y orden; el límite solo protege
+    // de un orden armado a mano con muchas columnas
+    private static final int MAX_FORMAS = 256;
+
+    private final String prefijo;
+    private final Map<String, String> nombres = new ConcurrentHashMap<>();
+
+    ConsultasPorForma(String prefijo) {
+        this.prefijo = prefijo;
+    }
+
+    /**
+     * @param forma clave de la forma, por ejemplo la máscara de filtros presentes
+     * @param jpql arma el JPQL de la forma; solo se llama la primera vez
+     */
+    <T> TypedQuery<T> crear(EntityManager entityManager, String forma, Class<T> tipo, Supplier<String> jpql) {
+        String nombre = nombres.get(forma);
+        if (nombre == null) {
+            if (nombres.size() >= MAX_FORMAS) {
+                // Sin registrar: igual aprovecha la caché de planes HQL de Hibernate
+                return entityManager.createQuery(jpql.get(), tipo);
+            }
+            nombre = nombres.computeIfAbsent(forma, f -> {
+                String n = prefijo + "[" + f + "]";
+                entityManager.getEntityManagerFactory().addNamedQuery(n, entityManager.createQuery(jpql.get(), tipo));
+                return n;
+            });
+        }
+        return entityManager.createNamedQuery(nombre, tipo);
+    }
+}
@@ -1,15 +1,130 @@
 package org.example.proyecto_final_calidad.repositorio;
 
+import jakarta.persistence.QueryHint;
 import org.example.proyecto_final_calidad.model.Producto;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ProductoRepositorio extends JpaRepository<Producto, Long>, ProductoRepositorioCustom {
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.cantidad < p.stockMinimo")
     long countByCantidadLessThanMinima();
+
+    // Las consultas cacheadas guardan solo los IDs; las filas salen de la región producto.
+    // findAll no se cachea: la reconstrucción del índice de búsqueda necesita datos frescos
+    // y con un catálogo grande los IDs cacheados se resolverían fila por fila
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGION_CONSULTAS_PRODUCTO)
+    })
     List<Producto> findAllByEstaActivo(boolean estaActivo);
+
+    // Búsqueda por nombre para ComboBox lazy (sin consulta de conteo)
+    List<Producto> findByNombreContainingIgnoreCaseOrderByNombre(String nombre, Pageable pageable);
+    List<Producto> findByEstaActivoAndNombreContainingIgnoreCaseOrderByNombre(boolean estaActivo, String nombre, Pageable pageable);
+
+    @Query("SELECT MAX(p.id) FROM Producto p")
+    Long findMaxId();
+
+    /**
+     * Suma la cantidad indicada al stock del producto en una sola sentencia,
+     * sin leer ni reescribir la entidad completa.
+     *
+     * @return número de filas actualizadas (0 si el producto no existe)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.cantidad = p.cantidad + :cantidad WHERE p.id = :id")
+    int incrementarCantidad(@Param("id") Long id, @Param("cantidad") int cantidad);
+
+    /**
+     * Descuenta la cantidad indicada solo si hay stock suficiente sin tocar las unidades
+     * reservadas (columna reservado). La condición se evalúa dentro del mismo UPDATE,
+     * por lo que dos salidas o reservas concurrentes nunca pueden dejar el stock en
+     * negativo, tomar unidades reservadas ni perder una actualización.
+     *
+     * @return número de filas actualizadas (0 si no hay stock suficiente o el producto no existe)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.cantidad = p.cantidad - :cantidad WHERE p.id = :id AND p.cantidad - p.reservado >= :cantidad")
+    int descontarCantidad(@Param("id") Long id, @Param("cantidad") int cantidad);
+
+    /**
+     * Aplica un cambio neto (positivo o negativo) al stock del producto. Un cambio
+     * negativo solo se aplica si el resultado no queda por debajo de lo reservado.
+     *
+     * @return número de filas actualizadas (0 si el stock no alcanza o el producto no existe)
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.cantidad = p.cantidad + :delta WHERE p.id = :id AND (:delta >= 0 OR p.cantidad + :delta >= p.reservado)")
+    int ajustarCantidad(@Param("id") Long id, @Param("delta") int delta);
+
+    /**
+     * Bloquea la fila del producto hasta el fin de la transacción y devuelve su cantidad
+     * actual, leída de la base. Ningún movimiento puede cambiarla hasta el commit.
+     */
+    @Query(value = "SELECT cantidad FROM producto WHERE id = :id FOR UPDATE", nativeQuery = true)
+    int bloquearCantidad(@Param("id") Long id);
+
+    /**
+     * Reserva {@code n} números de la secuencia de movimientos del producto. Se llama
+     * después del UPDATE de cantidad, con la fila ya bloqueada hasta el commit, de modo
+     * que la secuencia sigue el orden de commit de los movimientos del producto. La
+     * columna no está mapeada en Producto, así que no afecta la caché de segundo nivel.
+     *
+     * @return el último número reservado
+     */
+    @Query(value = "UPDATE producto SET movimientos = movimientos + :n WHERE id = :id RETURNING movimientos",
+            nativeQuery = true)
+    long reservarSecuencias(@Param("id") Long id, @Param("n") int n);
+
+    /**
+     * @return la última secuencia de movimientos asignada al producto (0 si no tiene)
+     */
+    @Query(value = "SELECT movimientos FROM producto WHERE id = :id", nativeQuery = true)
+    long findUltimaSecuencia(@Param("id") Long id);
+
+    /**
+     * Obtiene las unidades disponibles (cantidad menos reservado) de varios productos en
+     * una sola consulta.
+     *
+     * @return pares [id, disponible]
+     */
+    @Query("SELECT p.id, p.cantidad - p.reservado FROM Producto p WHERE p.id IN :ids")
+    List<Object[]> findDisponiblesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @return unidades retenidas por reservas vigentes, leídas de la base (la entidad en
+     * caché puede tener un valor anterior)
+     */
+    @Query("SELECT p.reservado FROM Producto p WHERE p.id = :id")
+    int findReservado(@Param("id") Long id);
+
+    /**
+     * @return cantidad del producto leída de la base, vacía si no existe (la entidad en
+     * caché puede tener un valor anterior)
+     */
+    @Query("SELECT p.cantidad FROM Producto p WHERE p.id = :id")
+    Optional<Integer> findCantidad(@Param("id") Long id);
+
+    /**
+     * @return ids de los productos con stock bajo (cantidad &lt; stock mínimo)
+     */
+    @Query("SELECT p.id FROM Producto p WHERE p.cantidad < p.stockMinimo")
+    List<Long> findIdsStockBajo();
+
+    /**
+     * @return pares [id, stock bajo] de los productos indicados que existen
+     */
+    @Query("SELECT p.id, CASE WHEN p.cantidad < p.stockMinimo THEN true ELSE false END FROM Producto p WHERE p.id IN :ids")
+    List<Object[]> findStockBajoByIdIn(@Param("ids") Collection<Long> ids);
 }
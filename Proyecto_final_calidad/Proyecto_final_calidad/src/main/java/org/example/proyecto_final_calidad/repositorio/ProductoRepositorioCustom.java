@@ -1,7 +1,12 @@
 package org.example.proyecto_final_calidad.repositorio;
 
+import org.example.proyecto_final_calidad.dto.CursorProducto;
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.ProductoDto;
 import org.example.proyecto_final_calidad.model.CategoriaProducto;
 import org.example.proyecto_final_calidad.model.Producto;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 
@@ -10,4 +15,28 @@ public interface ProductoRepositorioCustom {
     List<Producto> findByFilters(String searchTerm, CategoriaProducto categoria,
                                     Double minPrecio, Double maxPrecio,
                                     Integer minCantidad, Integer maxCantidad);
+
+    /**
+     * Página de productos que cumplen el filtro, con el orden del Pageable
+     * (por ID si no tiene orden).
+     */
+    List<Producto> findByFilters(FiltroProducto filtro, Pageable pageable);
+
+    long countByFilters(FiltroProducto filtro);
+
+    /**
+     * Productos como DTO, ordenados por el campo indicado y luego por ID en la misma
+     * dirección. Con cursor devuelve los que siguen a esa posición (paginación por
+     * clave); sin cursor salta offset filas.
+     */
+    List<ProductoDto> findProductos(FiltroProducto filtro, String campo, boolean ascendente,
+                                    CursorProducto cursor, int offset, int limite);
+
+    /**
+     * Conteos por categoría, por banda de precio y de stock bajo para el filtro dado.
+     *
+     * @param limitesPrecio límites crecientes de las bandas de precio
+     * @param timeoutMs tiempo máximo de la consulta; si se supera, PostgreSQL la cancela
+     */
+    FacetasProducto calcularFacetas(FiltroProducto filtro, double[] limitesPrecio, int timeoutMs);
 }
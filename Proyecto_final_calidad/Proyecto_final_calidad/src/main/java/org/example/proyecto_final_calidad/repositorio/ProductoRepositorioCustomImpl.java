@@ -2,19 +2,64 @@ package org.example.proyecto_final_calidad.repositorio;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.example.proyecto_final_calidad.dto.CursorProducto;
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.ProductoDto;
+import org.example.proyecto_final_calidad.dto.RangoPrecio;
 import org.example.proyecto_final_calidad.model.CategoriaProducto;
 import org.example.proyecto_final_calidad.model.Producto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Repository
 public class ProductoRepositorioCustomImpl implements ProductoRepositorioCustom {
 
+    // Columnas por las que se puede ordenar la búsqueda de texto completo (SQL nativo)
+    private static final Map<String, String> COLUMNAS_ORDEN = Map.of(
+            "id", "p.id",
+            "nombre", "p.nombre",
+            "descripcion", "p.descripcion",
+            "categoria", "p.categoria",
+            "precio", "p.precio",
+            "cantidad", "p.cantidad",
+            "stockMinimo", "p.stock_minimo",
+            "estaActivo", "p.esta_activo");
+
+    // Coincidencia por texto completo o por similitud de trigramas en el nombre (tolera errores de tipeo)
+    private static final String COINCIDE_TEXTO =
+            "(p.busqueda @@ websearch_to_tsquery('spanish', :termino) OR lower(p.nombre) % lower(:termino))";
+
+    private static final String RELEVANCIA =
+            "ts_rank(p.busqueda, websearch_to_tsquery('spanish', :termino)) + similarity(lower(p.nombre), lower(:termino))";
+
+    // Bits de la máscara de filtros presentes, que define la forma de la consulta
+    private static final int TEXTO = 1;
+    private static final int CATEGORIA = 1 << 1;
+    private static final int MIN_PRECIO = 1 << 2;
+    private static final int MAX_PRECIO = 1 << 3;
+    private static final int MIN_CANTIDAD = 1 << 4;
+    private static final int MAX_CANTIDAD = 1 << 5;
+
+    private final ConsultasPorForma consultas = new ConsultasPorForma("Producto.filtros");
+    private final ConsultasPorForma conteos = new ConsultasPorForma("Producto.conteo");
+
     @PersistenceContext
     private EntityManager entityManager;
 
@@ -22,11 +67,373 @@ public class ProductoRepositorioCustomImpl implements ProductoRepositorioCustom
     public List<Producto> findByFilters(String searchTerm, CategoriaProducto categoria,
                                            Double minPrecio, Double maxPrecio,
                                            Integer minCantidad, Integer maxCantidad) {
+        FiltroProducto filtro = new FiltroProducto(searchTerm, categoria, minPrecio, maxPrecio, minCantidad, maxCantidad);
+        int mascara = mascara(filtro);
+        TypedQuery<Producto> query = consultas.crear(entityManager, Integer.toString(mascara), Producto.class,
+                () -> "SELECT p FROM Producto p" + donde(mascara));
+        return asignar(query, mascara, filtro).getResultList();
+    }
 
+    @Override
+    public List<Producto> findByFilters(FiltroProducto filtro, Pageable pageable) {
+        if (filtro.textoCompleto()) {
+            return buscarTextoCompleto(filtro, pageable);
+        }
+        String orden = ordenJpql(pageable.getSort());
+        if (orden != null) {
+            int mascara = mascara(filtro);
+            TypedQuery<Producto> query = consultas.crear(entityManager, mascara + ":" + orden, Producto.class,
+                    () -> "SELECT p FROM Producto p" + donde(mascara) + " ORDER BY " + orden);
+            return asignar(query, mascara, filtro)
+                    .setFirstResult((int) pageable.getOffset())
+                    .setMaxResults(pageable.getPageSize())
+                    .getResultList();
+        }
+
+        // Orden que no es una lista simple de columnas: se arma con Criteria
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
         CriteriaQuery<Producto> cq = cb.createQuery(Producto.class);
         Root<Producto> root = cq.from(Producto.class);
 
+        cq.where(cb.and(filtros(cb, root, filtro).toArray(new Predicate[0])));
+
+        // El ID al final deja un orden total, necesario para que las páginas no se solapen
+        List<Order> orden = new ArrayList<>(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        orden.add(cb.asc(root.get("id")));
+        cq.orderBy(orden);
+
+        return entityManager.createQuery(cq)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public List<ProductoDto> findProductos(FiltroProducto filtro, String campo, boolean ascendente,
+                                           CursorProducto cursor, int offset, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductoDto> cq = cb.createQuery(ProductoDto.class);
+        Root<Producto> root = cq.from(Producto.class);
+        cq.select(cb.construct(ProductoDto.class,
+                root.get("id"), root.get("nombre"), root.get("descripcion"), root.get("categoria"),
+                root.get("precio"), root.get("cantidad"), root.get("stockMinimo"), root.get("estaActivo")));
+
+        List<Predicate> predicates = filtros(cb, root, filtro);
+        if (cursor != null) {
+            predicates.add(despuesDe(cb, root, campo, ascendente, cursor));
+        }
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+
+        List<Order> orden = new ArrayList<>();
+        if (!"id".equals(campo)) {
+            orden.add(ascendente ? cb.asc(root.get(campo)) : cb.desc(root.get(campo)));
+        }
+        orden.add(ascendente ? cb.asc(root.get("id")) : cb.desc(root.get("id")));
+        cq.orderBy(orden);
+
+        return entityManager.createQuery(cq)
+                .setFirstResult(offset)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+
+    /**
+     * (campo, id) estrictamente después de la posición del cursor, en la dirección del orden.
+     */
+    private Predicate despuesDe(CriteriaBuilder cb, Root<Producto> root, String campo, boolean ascendente, CursorProducto cursor) {
+        Path<Long> id = root.get("id");
+        Predicate idSiguiente = ascendente ? cb.greaterThan(id, cursor.id()) : cb.lessThan(id, cursor.id());
+        return switch (campo) {
+            case "id" -> idSiguiente;
+            case "nombre" -> siguiente(cb, root.get("nombre"), cursor.valor(), ascendente, idSiguiente);
+            case "precio" -> siguiente(cb, root.get("precio"), Double.valueOf(cursor.valor()), ascendente, idSiguiente);
+            case "cantidad" -> siguiente(cb, root.get("cantidad"), Integer.valueOf(cursor.valor()), ascendente, idSiguiente);
+            default -> throw new IllegalArgumentException("Cursor inválido");
+        };
+    }
+
+    private static <T extends Comparable<? super T>> Predicate siguiente(CriteriaBuilder cb, Path<T> columna, T valor,
+                                                                          boolean ascendente, Predicate idSiguiente) {
+        Predicate mayor = ascendente ? cb.greaterThan(columna, valor) : cb.lessThan(columna, valor);
+        return cb.or(mayor, cb.and(cb.equal(columna, valor), idSiguiente));
+    }
+
+    @Override
+    public long countByFilters(FiltroProducto filtro) {
+        if (filtro.textoCompleto()) {
+            Map<String, Object> parametros = new LinkedHashMap<>();
+            Query query = entityManager.createNativeQuery(
+                    "SELECT COUNT(*) FROM producto p WHERE " + condicionesNativas(filtro, parametros));
+            parametros.forEach(query::setParameter);
+            return ((Number) query.getSingleResult()).longValue();
+        }
+        int mascara = mascara(filtro);
+        TypedQuery<Long> query = conteos.crear(entityManager, Integer.toString(mascara), Long.class,
+                () -> "SELECT COUNT(p) FROM Producto p" + donde(mascara));
+        return asignar(query, mascara, filtro).getSingleResult();
+    }
+
+    /**
+     * @return los filtros presentes, con los mismos criterios que {@link #filtros}
+     */
+    private static int mascara(FiltroProducto filtro) {
+        int mascara = 0;
+        if (filtro.searchTerm() != null && !filtro.searchTerm().trim().isEmpty()) {
+            mascara |= TEXTO;
+        }
+        if (filtro.categoria() != null) {
+            mascara |= CATEGORIA;
+        }
+        if (filtro.minPrecio() != null && filtro.minPrecio() > 0) {
+            mascara |= MIN_PRECIO;
+        }
+        if (filtro.maxPrecio() != null && filtro.maxPrecio() > 0) {
+            mascara |= MAX_PRECIO;
+        }
+        if (filtro.minCantidad() != null && filtro.minCantidad() > 0) {
+            mascara |= MIN_CANTIDAD;
+        }
+        if (filtro.maxCantidad() != null && filtro.maxCantidad() > 0) {
+            mascara |= MAX_CANTIDAD;
+        }
+        return mascara;
+    }
+
+    private static String donde(int mascara) {
+        List<String> condiciones = new ArrayList<>();
+        if ((mascara & TEXTO) != 0) {
+            condiciones.add("(lower(p.nombre) LIKE :patron OR lower(p.descripcion) LIKE :patron)");
+        }
+        if ((mascara & CATEGORIA) != 0) {
+            condiciones.add("p.categoria = :categoria");
+        }
+        if ((mascara & MIN_PRECIO) != 0) {
+            condiciones.add("p.precio >= :minPrecio");
+        }
+        if ((mascara & MAX_PRECIO) != 0) {
+            condiciones.add("p.precio <= :maxPrecio");
+        }
+        if ((mascara & MIN_CANTIDAD) != 0) {
+            condiciones.add("p.cantidad >= :minCantidad");
+        }
+        if ((mascara & MAX_CANTIDAD) != 0) {
+            condiciones.add("p.cantidad <= :maxCantidad");
+        }
+        return condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+    }
+
+    private static <T> TypedQuery<T> asignar(TypedQuery<T> query, int mascara, FiltroProducto filtro) {
+        if ((mascara & TEXTO) != 0) {
+            query.setParameter("patron", "%" + filtro.searchTerm().toLowerCase() + "%");
+        }
+        if ((mascara & CATEGORIA) != 0) {
+            query.setParameter("categoria", filtro.categoria());
+        }
+        if ((mascara & MIN_PRECIO) != 0) {
+            query.setParameter("minPrecio", filtro.minPrecio());
+        }
+        if ((mascara & MAX_PRECIO) != 0) {
+            query.setParameter("maxPrecio", filtro.maxPrecio());
+        }
+        if ((mascara & MIN_CANTIDAD) != 0) {
+            query.setParameter("minCantidad", filtro.minCantidad());
+        }
+        if ((mascara & MAX_CANTIDAD) != 0) {
+            query.setParameter("maxCantidad", filtro.maxCantidad());
+        }
+        return query;
+    }
+
+    /**
+     * ORDER BY en JPQL para un orden sobre columnas de producto, con el ID al final para
+     * que las páginas no se solapen.
+     *
+     * @return null si el orden usa algo que no sea una columna simple (otra entidad,
+     * mayúsculas indistintas, posición de nulos)
+     */
+    private static String ordenJpql(Sort sort) {
+        List<String> orden = new ArrayList<>();
+        for (Sort.Order o : sort) {
+            if (!COLUMNAS_ORDEN.containsKey(o.getProperty()) || o.isIgnoreCase()
+                    || o.getNullHandling() != Sort.NullHandling.NATIVE) {
+                return null;
+            }
+            orden.add("p." + o.getProperty() + (o.isAscending() ? " ASC" : " DESC"));
+        }
+        orden.add("p.id ASC");
+        return String.join(", ", orden);
+    }
+
+    /**
+     * Facetas en una sola pasada sobre los productos que cumplen el texto y la cantidad:
+     * GROUPING SETS da una fila por categoría, una por banda de precio y una de totales.
+     * Cada faceta ignora su propio filtro (los conteos por categoría respetan el rango de
+     * precio pero no la categoría elegida, y al revés), así muestran qué daría cambiarlo.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public FacetasProducto calcularFacetas(FiltroProducto filtro, double[] limitesPrecio, int timeoutMs) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        String donde = unir(condicionTexto(filtro, parametros), condicionCantidad(filtro, parametros));
+        String enCategoria = unir(condicionCategoria(filtro, parametros));
+        String enPrecio = unir(condicionPrecio(filtro, parametros));
+
+        StringBuilder banda = new StringBuilder("CASE");
+        for (int i = 0; i < limitesPrecio.length; i++) {
+            banda.append(" WHEN p.precio < ").append(limitesPrecio[i]).append(" THEN ").append(i);
+        }
+        banda.append(" ELSE ").append(limitesPrecio.length).append(" END");
+
+        String sql = "SELECT f.categoria, f.banda, GROUPING(f.categoria), GROUPING(f.banda),"
+                + " COUNT(*) FILTER (WHERE f.en_precio),"
+                + " COUNT(*) FILTER (WHERE f.en_categoria),"
+                + " COUNT(*) FILTER (WHERE f.en_precio AND f.en_categoria),"
+                + " COUNT(*) FILTER (WHERE f.en_precio AND f.en_categoria AND f.cantidad < f.stock_minimo),"
+                + " COUNT(*) FILTER (WHERE f.en_precio AND f.en_categoria AND f.cantidad = 0)"
+                + " FROM (SELECT p.categoria, " + banda + " AS banda, p.cantidad, p.stock_minimo,"
+                + " (" + enCategoria + ") AS en_categoria, (" + enPrecio + ") AS en_precio"
+                + " FROM producto p WHERE " + donde + ") f"
+                + " GROUP BY GROUPING SETS ((f.categoria), (f.banda), ())";
+
+        // statement_timeout local a esta transacción: PostgreSQL cancela la consulta si se pasa
+        entityManager.createNativeQuery("SELECT set_config('statement_timeout', :timeout, true)")
+                .setParameter("timeout", String.valueOf(timeoutMs))
+                .getSingleResult();
+
+        Query query = entityManager.createNativeQuery(sql);
+        parametros.forEach(query::setParameter);
+
+        Map<CategoriaProducto, Long> porCategoria = new EnumMap<>(CategoriaProducto.class);
+        for (CategoriaProducto c : CategoriaProducto.values()) {
+            porCategoria.put(c, 0L);
+        }
+        long[] porBanda = new long[limitesPrecio.length + 1];
+        long total = 0;
+        long stockBajo = 0;
+        long sinStock = 0;
+
+        for (Object fila : query.getResultList()) {
+            Object[] f = (Object[]) fila;
+            boolean filaCategoria = ((Number) f[2]).intValue() == 0;
+            boolean filaBanda = ((Number) f[3]).intValue() == 0;
+            if (filaCategoria) {
+                // Los productos sin categoría no tienen faceta
+                if (f[0] != null) {
+                    porCategoria.put(CategoriaProducto.valueOf((String) f[0]), ((Number) f[4]).longValue());
+                }
+            } else if (filaBanda) {
+                porBanda[((Number) f[1]).intValue()] = ((Number) f[5]).longValue();
+            } else {
+                total = ((Number) f[6]).longValue();
+                stockBajo = ((Number) f[7]).longValue();
+                sinStock = ((Number) f[8]).longValue();
+            }
+        }
+        return new FacetasProducto(total, porCategoria, RangoPrecio.de(limitesPrecio, porBanda), stockBajo, sinStock);
+    }
+
+    /**
+     * Búsqueda con el índice GIN de busqueda y los de trigramas. Sin orden explícito
+     * en el Pageable los resultados salen por relevancia; el ID desempata.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Producto> buscarTextoCompleto(FiltroProducto filtro, Pageable pageable) {
+        Map<String, Object> parametros = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id, p.nombre, p.descripcion, p.categoria, p.precio, p.cantidad, p.stock_minimo, p.esta_activo"
+                        + " FROM producto p WHERE ").append(condicionesNativas(filtro, parametros));
+
+        List<String> orden = new ArrayList<>();
+        for (Sort.Order o : pageable.getSort()) {
+            String columna = COLUMNAS_ORDEN.get(o.getProperty());
+            if (columna == null) {
+                throw new IllegalArgumentException("No se puede ordenar por " + o.getProperty());
+            }
+            orden.add(columna + (o.isAscending() ? " ASC" : " DESC"));
+        }
+        if (orden.isEmpty()) {
+            orden.add(RELEVANCIA + " DESC");
+        }
+        orden.add("p.id ASC");
+        sql.append(" ORDER BY ").append(String.join(", ", orden));
+
+        Query query = entityManager.createNativeQuery(sql.toString(), Producto.class)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize());
+        parametros.forEach(query::setParameter);
+        return query.getResultList();
+    }
+
+    private String condicionesNativas(FiltroProducto filtro, Map<String, Object> parametros) {
+        return unir(condicionTexto(filtro, parametros), condicionCategoria(filtro, parametros),
+                condicionPrecio(filtro, parametros), condicionCantidad(filtro, parametros));
+    }
+
+    private String condicionTexto(FiltroProducto filtro, Map<String, Object> parametros) {
+        String termino = filtro.searchTerm();
+        if (termino == null || termino.trim().isEmpty()) {
+            return null;
+        }
+        if (filtro.textoCompleto()) {
+            parametros.put("termino", termino.trim());
+            return COINCIDE_TEXTO;
+        }
+        parametros.put("patron", "%" + termino.toLowerCase() + "%");
+        return "(lower(p.nombre) LIKE :patron OR lower(p.descripcion) LIKE :patron)";
+    }
+
+    private String condicionCategoria(FiltroProducto filtro, Map<String, Object> parametros) {
+        if (filtro.categoria() == null) {
+            return null;
+        }
+        parametros.put("categoria", filtro.categoria().name());
+        return "p.categoria = :categoria";
+    }
+
+    private String condicionPrecio(FiltroProducto filtro, Map<String, Object> parametros) {
+        List<String> condiciones = new ArrayList<>();
+        if (filtro.minPrecio() != null && filtro.minPrecio() > 0) {
+            condiciones.add("p.precio >= :minPrecio");
+            parametros.put("minPrecio", filtro.minPrecio());
+        }
+        if (filtro.maxPrecio() != null && filtro.maxPrecio() > 0) {
+            condiciones.add("p.precio <= :maxPrecio");
+            parametros.put("maxPrecio", filtro.maxPrecio());
+        }
+        return condiciones.isEmpty() ? null : String.join(" AND ", condiciones);
+    }
+
+    private String condicionCantidad(FiltroProducto filtro, Map<String, Object> parametros) {
+        List<String> condiciones = new ArrayList<>();
+        if (filtro.minCantidad() != null && filtro.minCantidad() > 0) {
+            condiciones.add("p.cantidad >= :minCantidad");
+            parametros.put("minCantidad", filtro.minCantidad());
+        }
+        if (filtro.maxCantidad() != null && filtro.maxCantidad() > 0) {
+            condiciones.add("p.cantidad <= :maxCantidad");
+            parametros.put("maxCantidad", filtro.maxCantidad());
+        }
+        return condiciones.isEmpty() ? null : String.join(" AND ", condiciones);
+    }
+
+    private static String unir(String... condiciones) {
+        List<String> presentes = new ArrayList<>();
+        for (String c : condiciones) {
+            if (c != null) {
+                presentes.add(c);
+            }
+        }
+        return presentes.isEmpty() ? "TRUE" : String.join(" AND ", presentes);
+    }
+
+    private List<Predicate> filtros(CriteriaBuilder cb, Root<Producto> root, FiltroProducto filtro) {
+        String searchTerm = filtro.searchTerm();
+        CategoriaProducto categoria = filtro.categoria();
+        Double minPrecio = filtro.minPrecio();
+        Double maxPrecio = filtro.maxPrecio();
+        Integer minCantidad = filtro.minCantidad();
+        Integer maxCantidad = filtro.maxCantidad();
+
         List<Predicate> predicates = new ArrayList<>();
 
         if (searchTerm != null && !searchTerm.trim().isEmpty()) {
@@ -56,7 +463,6 @@ public class ProductoRepositorioCustomImpl implements ProductoRepositorioCustom
             predicates.add(cb.le(root.get("cantidad"), maxCantidad));
         }
 
-        cq.where(cb.and(predicates.toArray(new Predicate[0])));
-        return entityManager.createQuery(cq).getResultList();
+        return predicates;
     }
 }
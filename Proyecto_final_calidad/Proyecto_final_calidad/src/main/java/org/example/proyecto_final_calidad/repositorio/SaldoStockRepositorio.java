@@ -0,0 +1,39 @@
+package org.example.proyecto_final_calidad.repositorio;
+
+import org.example.proyecto_final_calidad.model.SaldoStock;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface SaldoStockRepositorio extends JpaRepository<SaldoStock, Long> {
+
+    Optional<SaldoStock> findFirstByProductoIdOrderByIdDesc(Long productoId);
+
+    /**
+     * Compara {@code producto.cantidad} con el libro de movimientos para un rango de
+     * productos. El libro se reproduce completo desde el último saldo INICIAL o AJUSTE
+     * (los saldos PERIODICO no se usan, para verificar también la cadena de movimientos).
+     *
+     * @return filas [producto_id, cantidad, saldo_libro] solo para los productos con diferencia
+     */
+    @Query(value = """
+            WITH base AS (
+                SELECT DISTINCT ON (producto_id) producto_id, ultima_secuencia, saldo
+                FROM stock_saldo
+                WHERE producto_id BETWEEN :desde AND :hasta AND tipo <> 'PERIODICO'
+                ORDER BY producto_id, id DESC
+            )
+            SELECT p.id, p.cantidad,
+                   COALESCE(b.saldo, 0) + COALESCE(SUM(CASE WHEN s.tipo = 'ENTRADA' THEN s.cantidad ELSE -s.cantidad END), 0)
+            FROM producto p
+            LEFT JOIN base b ON b.producto_id = p.id
+            LEFT JOIN stock s ON s.producto_id = p.id AND s.secuencia > COALESCE(b.ultima_secuencia, 0)
+            WHERE p.id BETWEEN :desde AND :hasta
+            GROUP BY p.id, p.cantidad, b.saldo
+            HAVING p.cantidad <> COALESCE(b.saldo, 0) + COALESCE(SUM(CASE WHEN s.tipo = 'ENTRADA' THEN s.cantidad ELSE -s.cantidad END), 0)
+            """, nativeQuery = true)
+    List<Object[]> findDiferenciasEnRango(@Param("desde") long desde, @Param("hasta") long hasta);
+}
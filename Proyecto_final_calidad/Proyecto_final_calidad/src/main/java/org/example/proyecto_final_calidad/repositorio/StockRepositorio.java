@@ -1,11 +1,54 @@
 package org.example.proyecto_final_calidad.repositorio;
 
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
 import org.example.proyecto_final_calidad.model.Stock;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface StockRepositorio extends JpaRepository<Stock, Long>, StockRepositorioCustom {
     List<Stock> findByProductoIdOrderByFechaDesc(Long productoId);
     List<Stock> findAllByOrderByFechaDesc();
     int countStockByProductoIsNull();
+
+    /**
+     * Primera página del historial. Usar con {@code PageRequest.of(0, n)}: al retornar
+     * List no se ejecuta la consulta de conteo.
+     */
+    @Query("SELECT new org.example.proyecto_final_calidad.dto.MovimientoStockDto(" +
+            "s.id, p.id, p.nombre, s.tipo, s.cantidad, s.fecha, s.usuario) " +
+            "FROM Stock s JOIN s.producto p ORDER BY s.fecha DESC, s.id DESC")
+    List<MovimientoStockDto> findMovimientos(Pageable pageable);
+
+    /**
+     * Página siguiente a la posición (fecha, id), sin OFFSET. La condición redundante
+     * {@code s.fecha <= :fecha} permite que el índice (fecha DESC, id DESC) empiece en el cursor.
+     */
+    @Query("SELECT new org.example.proyecto_final_calidad.dto.MovimientoStockDto(" +
+            "s.id, p.id, p.nombre, s.tipo, s.cantidad, s.fecha, s.usuario) " +
+            "FROM Stock s JOIN s.producto p " +
+            "WHERE s.fecha <= :fecha AND (s.fecha < :fecha OR s.id < :id) " +
+            "ORDER BY s.fecha DESC, s.id DESC")
+    List<MovimientoStockDto> findMovimientosDespuesDe(@Param("fecha") LocalDateTime fecha, @Param("id") Long id, Pageable pageable);
+
+    @Query("SELECT SUM(CASE WHEN s.tipo = :entrada THEN s.cantidad ELSE -s.cantidad END) FROM Stock s " +
+            "WHERE s.producto.id = :productoId AND s.secuencia > :desde AND s.secuencia <= :hasta")
+    Long sumarDeltas(@Param("productoId") Long productoId,
+                     @Param("desde") long desde,
+                     @Param("hasta") long hasta,
+                     @Param("entrada") TipoMovimiento entrada);
+
+    /**
+     * Suma con signo (ENTRADA positiva, SALIDA negativa) de los movimientos de un
+     * producto con secuencia en el rango (desde, hasta].
+     */
+    default long sumarMovimientos(Long productoId, long desde, long hasta) {
+        Long suma = sumarDeltas(productoId, desde, hasta, TipoMovimiento.ENTRADA);
+        return suma != null ? suma : 0;
+    }
 }
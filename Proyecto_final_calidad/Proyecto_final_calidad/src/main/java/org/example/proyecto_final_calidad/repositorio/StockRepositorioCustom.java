@@ -1,7 +1,10 @@
 package org.example.proyecto_final_calidad.repositorio;
 
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
 import org.example.proyecto_final_calidad.model.Stock;
 import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -9,4 +12,18 @@ import java.util.List;
 public interface StockRepositorioCustom {
 
     List<Stock> findByFilters(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin);
+
+    /**
+     * Historial filtrado, paginado por clave (fecha, id) descendente, en una sola consulta.
+     * Con cursorFecha/cursorId nulos retorna la primera página.
+     */
+    List<MovimientoStockDto> findMovimientos(FiltroStock filtro, LocalDateTime cursorFecha, Long cursorId, int limite);
+
+    /**
+     * Página por desplazamiento para grids, con el orden del Pageable
+     * (fecha descendente si no tiene orden), en una sola consulta.
+     */
+    List<MovimientoStockDto> findMovimientos(FiltroStock filtro, Pageable pageable);
+
+    long countByFilters(FiltroStock filtro);
 }
@@ -2,12 +2,20 @@ package org.example.proyecto_final_calidad.repositorio;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Order;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.model.Stock;
 import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -17,15 +25,137 @@ import java.util.List;
 @Repository
 public class StockRepositorioCustomImpl implements StockRepositorioCustom {
 
+    // Bits de la máscara de filtros presentes, que define la forma de la consulta
+    private static final int PRODUCTO = 1;
+    private static final int TIPO = 1 << 1;
+    private static final int FECHA_INICIO = 1 << 2;
+    private static final int FECHA_FIN = 1 << 3;
+
+    private final ConsultasPorForma consultas = new ConsultasPorForma("Stock.filtros");
+
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * Usa una named query por combinación de filtros presentes (hay 16): no arma Criteria
+     * ni traduce JPQL en cada llamada.
+     */
     @Override
     public List<Stock> findByFilters(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        int mascara = (productoId != null ? PRODUCTO : 0)
+                | (tipo != null ? TIPO : 0)
+                | (fechaInicio != null ? FECHA_INICIO : 0)
+                | (fechaFin != null ? FECHA_FIN : 0);
+
+        TypedQuery<Stock> query = consultas.crear(entityManager, Integer.toString(mascara), Stock.class, () -> {
+            List<String> condiciones = new ArrayList<>();
+            if ((mascara & PRODUCTO) != 0) {
+                condiciones.add("s.producto.id = :productoId");
+            }
+            if ((mascara & TIPO) != 0) {
+                condiciones.add("s.tipo = :tipo");
+            }
+            if ((mascara & FECHA_INICIO) != 0) {
+                condiciones.add("s.fecha >= :fechaInicio");
+            }
+            if ((mascara & FECHA_FIN) != 0) {
+                condiciones.add("s.fecha <= :fechaFin");
+            }
+            String donde = condiciones.isEmpty() ? "" : " WHERE " + String.join(" AND ", condiciones);
+            return "SELECT s FROM Stock s" + donde + " ORDER BY s.fecha DESC"; // orden por fecha descendente
+        });
+
+        if (productoId != null) {
+            query.setParameter("productoId", productoId);
+        }
+        if (tipo != null) {
+            query.setParameter("tipo", tipo);
+        }
+        if (fechaInicio != null) {
+            query.setParameter("fechaInicio", fechaInicio);
+        }
+        if (fechaFin != null) {
+            query.setParameter("fechaFin", fechaFin);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<MovimientoStockDto> findMovimientos(FiltroStock filtro, LocalDateTime cursorFecha, Long cursorId, int limite) {
         CriteriaBuilder cb = entityManager.getCriteriaBuilder();
-        CriteriaQuery<Stock> cq = cb.createQuery(Stock.class);
+        CriteriaQuery<MovimientoStockDto> cq = cb.createQuery(MovimientoStockDto.class);
         Root<Stock> root = cq.from(Stock.class);
+        seleccionarMovimiento(cb, cq, root);
+
+        List<Predicate> predicates = filtros(cb, root, filtro.productoId(), filtro.tipo(), filtro.fechaInicio(), filtro.fechaFin());
+
+        if (cursorFecha != null && cursorId != null) {
+            // (fecha, id) < (cursorFecha, cursorId)
+            predicates.add(cb.lessThanOrEqualTo(root.get("fecha"), cursorFecha));
+            predicates.add(cb.or(
+                    cb.lessThan(root.get("fecha"), cursorFecha),
+                    cb.lessThan(root.get("id"), cursorId)));
+        }
+
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+        cq.orderBy(cb.desc(root.get("fecha")), cb.desc(root.get("id")));
+
+        return entityManager.createQuery(cq).setMaxResults(limite).getResultList();
+    }
 
+    @Override
+    public List<MovimientoStockDto> findMovimientos(FiltroStock filtro, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<MovimientoStockDto> cq = cb.createQuery(MovimientoStockDto.class);
+        Root<Stock> root = cq.from(Stock.class);
+        seleccionarMovimiento(cb, cq, root);
+
+        List<Predicate> predicates = filtros(cb, root, filtro.productoId(), filtro.tipo(), filtro.fechaInicio(), filtro.fechaFin());
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+
+        List<Order> orden = new ArrayList<>(QueryUtils.toOrders(pageable.getSort(), root, cb));
+        if (orden.isEmpty()) {
+            orden.add(cb.desc(root.get("fecha")));
+        }
+        orden.add(cb.desc(root.get("id")));
+        cq.orderBy(orden);
+
+        return entityManager.createQuery(cq)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize())
+                .getResultList();
+    }
+
+    @Override
+    public long countByFilters(FiltroStock filtro) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> cq = cb.createQuery(Long.class);
+        Root<Stock> root = cq.from(Stock.class);
+
+        List<Predicate> predicates = filtros(cb, root, filtro.productoId(), filtro.tipo(), filtro.fechaInicio(), filtro.fechaFin());
+        cq.select(cb.count(root));
+        cq.where(cb.and(predicates.toArray(new Predicate[0])));
+        return entityManager.createQuery(cq).getSingleResult();
+    }
+
+    /**
+     * SELECT new MovimientoStockDto(...) con INNER JOIN a producto: el nombre llega en la
+     * misma fila y no se carga ninguna entidad. El orden por "producto.nombre" reutiliza este join.
+     */
+    private void seleccionarMovimiento(CriteriaBuilder cb, CriteriaQuery<MovimientoStockDto> cq, Root<Stock> root) {
+        Join<Stock, Producto> producto = root.join("producto");
+        cq.select(cb.construct(MovimientoStockDto.class,
+                root.get("id"),
+                producto.get("id"),
+                producto.get("nombre"),
+                root.get("tipo"),
+                root.get("cantidad"),
+                root.get("fecha"),
+                root.get("usuario")));
+    }
+
+    private List<Predicate> filtros(CriteriaBuilder cb, Root<Stock> root, Long productoId, TipoMovimiento tipo,
+                                    LocalDateTime fechaInicio, LocalDateTime fechaFin) {
         List<Predicate> predicates = new ArrayList<>();
 
         if (productoId != null) {
@@ -44,9 +174,6 @@ public class StockRepositorioCustomImpl implements StockRepositorioCustom {
             predicates.add(cb.lessThanOrEqualTo(root.get("fecha"), fechaFin));
         }
 
-        cq.where(cb.and(predicates.toArray(new Predicate[0])));
-        cq.orderBy(cb.desc(root.get("fecha"))); // orden por fecha descendente
-
-        return entityManager.createQuery(cq).getResultList();
+        return predicates;
     }
 }
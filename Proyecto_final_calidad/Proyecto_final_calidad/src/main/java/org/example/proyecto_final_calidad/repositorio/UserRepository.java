@@ -1,9 +1,15 @@
 package org.example.proyecto_final_calidad.repositorio;
 
+import jakarta.persistence.QueryHint;
+import org.example.proyecto_final_calidad.model.Role;
 import org.example.proyecto_final_calidad.model.User;
+import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -15,10 +21,15 @@ public interface UserRepository extends JpaRepository<User, Long> {
     
     /**
      * Find a user by username.
+     * The query result is cached; the user itself comes from the second-level cache.
      * 
      * @param username the username to search for
      * @return an Optional containing the user if found, or empty if not found
      */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheSegundoNivelConfig.REGION_CONSULTAS_USUARIO)
+    })
     Optional<User> findByUsername(String username);
     
     /**
@@ -36,4 +47,21 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true if a user with the email exists, false otherwise
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Find a page of users with the given role, without a count query.
+     *
+     * @param role the role to filter by
+     * @param pageable page, size and sort order
+     * @return the users in the requested page
+     */
+    List<User> findByRole(Role role, Pageable pageable);
+
+    /**
+     * Count the users with the given role.
+     *
+     * @param role the role to filter by
+     * @return the number of users with the role
+     */
+    long countByRole(Role role);
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package org.example.proyecto_final_calidad.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs username/password authentication (and therefore the password hash check) on a
+ * dedicated, bounded pool instead of the servlet thread. When every worker is busy
+ * and the queue is full, new logins are rejected right away so the caller can answer
+ * 429 instead of piling up requests.
+ */
+@Component
+public class AuthenticationExecutor {
+
+    private final AuthenticationManager authenticationManager;
+    private final ThreadPoolExecutor executor;
+    private final Timer loginOk;
+    private final Timer loginFailed;
+    private final Counter rejected;
+
+    public AuthenticationExecutor(AuthenticationManager authenticationManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.auth.hilos:0}") int hilos,
+                                  @Value("${app.auth.cola:64}") int cola) {
+        this.authenticationManager = authenticationManager;
+
+        // Hashing is CPU bound: by default one worker per processor
+        int threads = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(cola),
+                r -> {
+                    Thread thread = new Thread(r, "auth-login-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.loginOk = loginTimer(meterRegistry, "ok");
+        this.loginFailed = loginTimer(meterRegistry, "fallido");
+        this.rejected = Counter.builder("auth.login.rechazados")
+                .description("Logins rejected because the authentication pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("auth.login.cola", executor, e -> e.getQueue().size())
+                .description("Logins waiting for an authentication worker")
+                .register(meterRegistry);
+    }
+
+    private static Timer loginTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("auth.login")
+                .description("Time from queueing a login until its password check finishes")
+                .tag("resultado", result)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue the authentication of the given credentials.
+     *
+     * @param username the username
+     * @param password the raw password
+     * @return a future completed with the authentication, or exceptionally with an
+     *         {@link AuthenticationException} if the credentials are wrong
+     * @throws RejectedExecutionException if the pool and its queue are full
+     */
+    public CompletableFuture<Authentication> authenticate(String username, String password) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    Authentication authentication = authenticationManager.authenticate(
+                            new UsernamePasswordAuthenticationToken(username, password));
+                    loginOk.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    return authentication;
+                } catch (AuthenticationException e) {
+                    loginFailed.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                    throw e;
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
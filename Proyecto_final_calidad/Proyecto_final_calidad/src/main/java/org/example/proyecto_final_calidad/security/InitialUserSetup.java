@@ -3,6 +3,7 @@ package org.example.proyecto_final_calidad.security;
 import org.example.proyecto_final_calidad.model.Role;
 import org.example.proyecto_final_calidad.model.User;
 import org.example.proyecto_final_calidad.repositorio.UserRepository;
+import org.example.proyecto_final_calidad.servicios.UsuarioServicio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +23,9 @@ public class InitialUserSetup implements CommandLineRunner {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
     @Autowired
     private PasswordEncoder passwordEncoder;
 
@@ -45,7 +49,7 @@ public class InitialUserSetup implements CommandLineRunner {
                     Role.ADMINISTRADOR
             );
 
-            userRepository.save(adminUser);
+            usuarioServicio.save(adminUser);
             logger.info("Initial admin user created successfully");
         }
     }
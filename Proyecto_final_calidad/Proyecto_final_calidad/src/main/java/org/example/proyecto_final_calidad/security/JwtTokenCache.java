@@ -0,0 +1,166 @@
+package org.example.proyecto_final_calidad.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.proyecto_final_calidad.model.User;
+import org.example.proyecto_final_calidad.servicios.InvalidacionCompletaEvent;
+import org.example.proyecto_final_calidad.servicios.UsuarioCambiadoEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of already verified JWT tokens, keyed by the SHA-256 digest of the token.
+ * A hit returns the principal snapshot without checking the signature again or
+ * querying the database. Entries expire with the token (or earlier, after the
+ * configured maximum) and are evicted when the user changes on any node. Revocation
+ * is checked on every request, hit or miss, against the in-memory revocation filter.
+ */
+@Component
+public class JwtTokenCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenCache.class);
+
+    private final JwtUtils jwtUtils;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
+    private final Cache<String, VerifiedToken> tokens;
+    private final Timer verification;
+
+    // Incremented on every user change: a verification that started before the change
+    // must not store what it read
+    private final AtomicLong generation = new AtomicLong();
+
+    private record VerifiedToken(UserPrincipal principal, String jti, long expiresAtMillis) {
+    }
+
+    public JwtTokenCache(JwtUtils jwtUtils,
+                         UserDetailsService userDetailsService,
+                         TokenRevocationList revocationList,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.jwt.cache.maximo:10000}") long maximo,
+                         @Value("${app.jwt.cache.expira-segundos:300}") long expiraSegundos) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+
+        long maxTtlNanos = TimeUnit.SECONDS.toNanos(expiraSegundos);
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        long untilExpiration = TimeUnit.MILLISECONDS.toNanos(value.expiresAtMillis() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(maxTtlNanos, untilExpiration));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, tokens, "jwt.tokens");
+        this.verification = Timer.builder("jwt.verification")
+                .description("Signature verification and user lookup on a token cache miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Resolve the principal for a bearer token, verifying it only on a cache miss.
+     *
+     * @param token the JWT token
+     * @return the principal if the token is valid, not revoked and the user is enabled,
+     *         empty otherwise
+     */
+    public Optional<UserPrincipal> authenticate(String token) {
+        String key = digest(token);
+        VerifiedToken cached = tokens.getIfPresent(key);
+        if (cached != null) {
+            if (revocationList.isRevoked(cached.jti())) {
+                tokens.invalidate(key);
+                return Optional.empty();
+            }
+            return Optional.of(cached.principal());
+        }
+
+        long startGeneration = generation.get();
+        VerifiedToken verified = verification.record(() -> verify(token));
+        if (verified == null) {
+            return Optional.empty();
+        }
+        if (generation.get() == startGeneration) {
+            tokens.put(key, verified);
+        }
+        return Optional.of(verified.principal());
+    }
+
+    private VerifiedToken verify(String token) {
+        Optional<Claims> claims = jwtUtils.parseJwtToken(token);
+        if (claims.isEmpty() || revocationList.isRevoked(claims.get().getId())) {
+            return null;
+        }
+        UserDetails userDetails;
+        try {
+            userDetails = userDetailsService.loadUserByUsername(claims.get().getSubject());
+        } catch (UsernameNotFoundException e) {
+            logger.warn("JWT token for unknown user: {}", e.getMessage());
+            return null;
+        }
+        UserPrincipal principal = (userDetails instanceof UserPrincipal p ? p : UserPrincipal.from((User) userDetails))
+                .withoutPassword();
+        if (!principal.isEnabled()) {
+            return null;
+        }
+        return new VerifiedToken(principal, claims.get().getId(), claims.get().getExpiration().getTime());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void userChanged(UsuarioCambiadoEvent event) {
+        generation.incrementAndGet();
+        tokens.asMap().values().removeIf(t -> Objects.equals(t.principal().getId(), event.usuarioId()));
+    }
+
+    @EventListener
+    public void invalidateAll(InvalidacionCompletaEvent event) {
+        generation.incrementAndGet();
+        tokens.invalidateAll();
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
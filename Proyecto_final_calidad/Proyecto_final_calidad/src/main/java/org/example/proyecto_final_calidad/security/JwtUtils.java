@@ -2,6 +2,7 @@ package org.example.proyecto_final_calidad.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SecurityException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -12,20 +13,40 @@ import org.springframework.stereotype.Component;
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
 import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Utility class for JWT token operations.
  * Handles generation, validation, and parsing of JWT tokens.
+ * Access tokens are short-lived; refresh tokens last longer, carry a type claim and
+ * are only accepted to obtain new tokens. Both carry a unique id (jti) so they can
+ * be revoked.
  */
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${app.jwt.secret:defaultSecretKeyForDevelopmentPurposesOnlyChangeInProduction}")
-    private String jwtSecret;
+    private static final String TOKEN_TYPE_CLAIM = "token_type";
+    private static final String REFRESH_TYPE = "refresh";
 
-    @Value("${app.jwt.expiration:86400000}") // Default: 24 hours
-    private int jwtExpirationMs;
+    private final int jwtExpirationMs;
+    private final long refreshExpirationMs;
+
+    // Both are immutable and thread-safe, so they are built once and shared by all requests
+    private final Key signingKey;
+    private final JwtParser jwtParser;
+
+    public JwtUtils(@Value("${app.jwt.secret:defaultSecretKeyForDevelopmentPurposesOnlyChangeInProduction}") String jwtSecret,
+                    @Value("${app.jwt.expiration:900000}") int jwtExpirationMs, // Default: 15 minutes
+                    @Value("${app.jwt.refresh-expiration:604800000}") long refreshExpirationMs) { // Default: 7 days
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.refreshExpirationMs = refreshExpirationMs;
+        this.signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
 
     /**
      * Generate a JWT token for the authenticated user.
@@ -35,63 +56,104 @@ public class JwtUtils {
      */
     public String generateJwtToken(Authentication authentication) {
         UserDetails userPrincipal = (UserDetails) authentication.getPrincipal();
+        return generateJwtToken(userPrincipal.getUsername());
+    }
 
-        return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
-                .compact();
+    /**
+     * Generate a short-lived access token.
+     *
+     * @param username the token subject
+     * @return the generated JWT token
+     */
+    public String generateJwtToken(String username) {
+        return buildToken(username, jwtExpirationMs).compact();
     }
 
     /**
-     * Get the signing key for JWT token generation and validation.
+     * Generate a refresh token, only valid to obtain new tokens.
      *
-     * @return the signing key
+     * @param username the token subject
+     * @return the generated refresh token
      */
-    private Key getSigningKey() {
-        byte[] keyBytes = jwtSecret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public String generateRefreshToken(String username) {
+        return buildToken(username, refreshExpirationMs)
+                .claim(TOKEN_TYPE_CLAIM, REFRESH_TYPE)
+                .compact();
+    }
+
+    private JwtBuilder buildToken(String username, long expirationMs) {
+        Date now = new Date();
+        return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
+                .setSubject(username)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256);
     }
 
     /**
-     * Extract username from JWT token.
+     * Validate an access token and return its claims, parsing and verifying the signature only once.
      *
      * @param token the JWT token
-     * @return the username
+     * @return the claims if the token is a valid access token, empty otherwise
      */
-    public String getUsernameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+    public Optional<Claims> parseJwtToken(String token) {
+        return parse(token).filter(claims -> {
+            if (REFRESH_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM))) {
+                logger.error("Refresh token used as access token");
+                return false;
+            }
+            return true;
+        });
     }
 
     /**
-     * Validate JWT token.
+     * Validate a refresh token and return its claims.
      *
-     * @param authToken the JWT token to validate
-     * @return true if the token is valid, false otherwise
+     * @param token the refresh token
+     * @return the claims if the token is a valid refresh token, empty otherwise
      */
-    public boolean validateJwtToken(String authToken) {
+    public Optional<Claims> parseRefreshToken(String token) {
+        return parse(token).filter(claims -> REFRESH_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM)));
+    }
+
+    private Optional<Claims> parse(String token) {
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(authToken);
-            return true;
+            return Optional.of(jwtParser.parseClaimsJws(token).getBody());
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
             logger.error("JWT token is expired: {}", e.getMessage());
         } catch (UnsupportedJwtException e) {
             logger.error("JWT token is unsupported: {}", e.getMessage());
+        } catch (SecurityException e) {
+            logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
         }
 
-        return false;
+        return Optional.empty();
+    }
+
+    /**
+     * Extract username from JWT token.
+     *
+     * @param token the JWT token
+     * @return the username
+     */
+    public String getUsernameFromJwtToken(String token) {
+        return jwtParser.parseClaimsJws(token)
+                .getBody()
+                .getSubject();
+    }
+
+    /**
+     * Validate JWT token.
+     *
+     * @param authToken the JWT token to validate
+     * @return true if the token is valid, false otherwise
+     */
+    public boolean validateJwtToken(String authToken) {
+        return parseJwtToken(authToken).isPresent();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,108 @@
+package org.example.proyecto_final_calidad.security;
+
+import io.jsonwebtoken.Claims;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+
+/**
+ * Issues access/refresh token pairs and exchanges a refresh token for a new pair.
+ * Refresh tokens are rotated: each one can be used once, and it is revoked when used,
+ * so a stolen refresh token stops working as soon as either party uses it.
+ */
+@Service
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    private final JwtUtils jwtUtils;
+    private final UserDetailsService userDetailsService;
+    private final TokenRevocationList revocationList;
+
+    /**
+     * @param accessToken short-lived token for the Authorization header
+     * @param refreshToken long-lived token, only accepted to obtain a new pair
+     */
+    public record TokenPair(String accessToken, String refreshToken) {
+    }
+
+    public RefreshTokenService(JwtUtils jwtUtils,
+                               UserDetailsService userDetailsService,
+                               TokenRevocationList revocationList) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.revocationList = revocationList;
+    }
+
+    /**
+     * Issue a new token pair.
+     *
+     * @param username the token subject
+     * @return the access and refresh tokens
+     */
+    public TokenPair issue(String username) {
+        return new TokenPair(jwtUtils.generateJwtToken(username), jwtUtils.generateRefreshToken(username));
+    }
+
+    /**
+     * Exchange a refresh token for a new pair, revoking the one used.
+     *
+     * @param refreshToken the refresh token
+     * @return the new pair, or empty if the token is invalid, expired, already used or
+     *         belongs to a user that no longer exists or is disabled
+     */
+    public Optional<TokenPair> refresh(String refreshToken) {
+        Optional<Claims> claims = jwtUtils.parseRefreshToken(refreshToken);
+        if (claims.isEmpty()) {
+            return Optional.empty();
+        }
+        String username = claims.get().getSubject();
+        if (revocationList.isRevoked(claims.get().getId())) {
+            logger.warn("Revoked refresh token used for user {}", username);
+            return Optional.empty();
+        }
+
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(username);
+        } catch (UsernameNotFoundException e) {
+            return Optional.empty();
+        }
+        if (!user.isEnabled()) {
+            return Optional.empty();
+        }
+
+        // Only the request that revokes the token gets a new pair
+        if (!revocationList.revoke(claims.get().getId(), claims.get().getExpiration())) {
+            logger.warn("Refresh token for user {} was used concurrently", username);
+            return Optional.empty();
+        }
+        return Optional.of(issue(user.getUsername()));
+    }
+
+    /**
+     * Revoke an access token before it expires. Invalid or expired tokens are ignored.
+     *
+     * @param accessToken the access token
+     */
+    public void revokeAccessToken(String accessToken) {
+        jwtUtils.parseJwtToken(accessToken)
+                .filter(claims -> claims.getId() != null)
+                .ifPresent(claims -> revocationList.revoke(claims.getId(), claims.getExpiration()));
+    }
+
+    /**
+     * Revoke a refresh token before it expires. Invalid or expired tokens are ignored.
+     *
+     * @param refreshToken the refresh token
+     */
+    public void revokeRefreshToken(String refreshToken) {
+        jwtUtils.parseRefreshToken(refreshToken)
+                .ifPresent(claims -> revocationList.revoke(claims.getId(), claims.getExpiration()));
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.proyecto_final_calidad.security;
+
+import jakarta.annotation.PostConstruct;
+import org.example.proyecto_final_calidad.servicios.InvalidacionCompletaEvent;
+import org.example.proyecto_final_calidad.servicios.TokenRevocadoEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revoked token ids (jti), stored in the token_revocado table and mirrored in an
+ * in-memory Bloom filter. Checking a token that was not revoked, the usual case, is a
+ * memory probe; only a filter hit (a revoked token or a rare false positive) is
+ * confirmed against the table. Revocations from other nodes arrive through the
+ * invalidation bus. Expired rows are purged periodically and the filter is rebuilt.
+ * Until the filter is first loaded every check goes to the table, so requests served
+ * during startup never see a revoked token as valid.
+ */
+@Component
+public class TokenRevocationList {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final long capacidad;
+
+    private volatile BloomFilter filter;
+    private volatile boolean cargado;
+
+    // Revocations received while rebuilding; added again to the new filter
+    private final Set<String> pendientes = ConcurrentHashMap.newKeySet();
+    private volatile boolean reconstruyendo;
+
+    public TokenRevocationList(JdbcTemplate jdbcTemplate,
+                               ApplicationEventPublisher eventos,
+                               @Value("${app.jwt.revocacion.capacidad:100000}") long capacidad) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventos = eventos;
+        this.capacidad = capacidad;
+        this.filter = new BloomFilter(capacidad, FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Revoke a token until it expires.
+     *
+     * @param jti the token id
+     * @param expiresAt the token expiration; the row can be purged after it
+     * @return true if the token was revoked by this call, false if it already was
+     */
+    @Transactional
+    public boolean revoke(String jti, Date expiresAt) {
+        int insertadas = jdbcTemplate.update(
+                "INSERT INTO token_revocado (jti, expira) VALUES (?, ?) ON CONFLICT (jti) DO NOTHING",
+                jti, new Timestamp(expiresAt.getTime()));
+        if (insertadas > 0) {
+            eventos.publishEvent(new TokenRevocadoEvent(jti));
+        }
+        return insertadas > 0;
+    }
+
+    /**
+     * @param jti the token id; tokens without one cannot be revoked
+     * @return true if the token was revoked
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || (cargado && !filter.mightContain(jti))) {
+            return false;
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM token_revocado WHERE jti = ?)", Boolean.class, jti));
+    }
+
+    /**
+     * Add revocations to the filter once committed, from this node or another one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void tokenRevocado(TokenRevocadoEvent evento) {
+        // The row is already committed: a rebuild that starts later reads it from the table
+        if (reconstruyendo) {
+            pendientes.add(evento.jti());
+        }
+        filter.put(evento.jti());
+    }
+
+    @PostConstruct
+    void cargar() {
+        reconstruirProgramado();
+    }
+
+    // If the table was not there yet when the bean was created (migrations pending),
+    // retry once the application is up instead of waiting for the scheduled rebuild
+    @EventListener(ApplicationReadyEvent.class)
+    void alIniciar() {
+        if (!cargado) {
+            reconstruirProgramado();
+        }
+    }
+
+    @EventListener
+    public void invalidacionCompleta(InvalidacionCompletaEvent evento) {
+        reconstruirProgramado();
+    }
+
+    @Scheduled(fixedDelayString = "${app.jwt.revocacion.purga-ms:3600000}",
+            initialDelayString = "${app.jwt.revocacion.purga-ms:3600000}")
+    public void reconstruirProgramado() {
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            logger.error("Falló la reconstrucción del filtro de tokens revocados", e);
+        }
+    }
+
+    /**
+     * Delete rows of tokens that already expired and rebuild the filter from the rest.
+     */
+    public synchronized void reconstruir() {
+        reconstruyendo = true;
+        try {
+            int purgadas = jdbcTemplate.update("DELETE FROM token_revocado WHERE expira < now()");
+            List<String> revocados = jdbcTemplate.queryForList("SELECT jti FROM token_revocado", String.class);
+
+            // Sized for twice the current rows so the false positive rate stays low as it grows
+            BloomFilter nuevo = new BloomFilter(Math.max(capacidad, revocados.size() * 2L), FALSE_POSITIVE_RATE);
+            revocados.forEach(nuevo::put);
+            filter = nuevo;
+            reconstruyendo = false;
+
+            List<String> recibidos = new ArrayList<>(pendientes);
+            pendientes.removeAll(recibidos);
+            recibidos.forEach(nuevo::put);
+            cargado = true;
+            logger.info("Filtro de tokens revocados reconstruido: {} tokens, {} expirados purgados", revocados.size(), purgadas);
+        } finally {
+            reconstruyendo = false;
+        }
+    }
+}
@@ -1,39 +1,108 @@
 package org.example.proyecto_final_calidad.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.example.proyecto_final_calidad.model.User;
 import org.example.proyecto_final_calidad.repositorio.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.example.proyecto_final_calidad.servicios.InvalidacionCompletaEvent;
+import org.example.proyecto_final_calidad.servicios.UsuarioCambiadoEvent;
+import org.example.proyecto_final_calidad.servicios.UsuarioServicio;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 /**
  * Implementation of UserDetailsService for loading user-specific data.
- * It loads user details from the database using the UserRepository.
+ * It loads user details from the database using the UserRepository and keeps
+ * immutable snapshots in a cache keyed by username, evicted whenever the user
+ * changes on this or another node.
  */
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+    private final UsuarioServicio usuarioServicio;
+    private final Cache<String, UserPrincipal> users;
 
-    @Autowired
-    private UserRepository userRepository;
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  UsuarioServicio usuarioServicio,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${app.usuarios.detalles.maximo:1000}") long maximo,
+                                  @Value("${app.usuarios.detalles.expira-segundos:600}") long expiraSegundos) {
+        this.userRepository = userRepository;
+        this.usuarioServicio = usuarioServicio;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(Duration.ofSeconds(expiraSegundos))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "user.details");
+    }
 
     /**
      * Load user by username.
      * This method is used by Spring Security to load user details during authentication.
      *
      * @param username the username to load
-     * @return the UserDetails object
+     * @return an immutable snapshot of the user
      * @throws UsernameNotFoundException if the user is not found
      */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        // Hits are lock-free; concurrent misses for the same username load it only once
+        return users.get(username, this::load);
+    }
+
+    private UserPrincipal load(String username) {
+        return userRepository.findByUsername(username)
+                .map(UserPrincipal::from)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+    }
+
+    /**
+     * Store a re-hashed password after a successful login. Saving through
+     * UsuarioServicio publishes the change, which evicts the cached snapshot.
+     *
+     * @param user the authenticated user
+     * @param newPassword the new password hash
+     * @return the user with the new hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User entity = userRepository.findByUsername(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + user.getUsername()));
+        entity.setPassword(newPassword);
+        return UserPrincipal.from(usuarioServicio.save(entity));
+    }
+
+    /**
+     * Evict the changed user. Entries are also matched by id, so a renamed user does
+     * not stay cached under the old username. Runs before {@link JwtTokenCache} evicts
+     * the user's tokens, so a token verified again already reads the new data.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void userChanged(UsuarioCambiadoEvent event) {
+        if (event.username() != null) {
+            users.invalidate(event.username());
+        }
+        users.asMap().values().removeIf(user -> user.getId().equals(event.usuarioId()));
+    }
 
-        // Our User class already implements UserDetails, so we can return it directly
-        return user;
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void invalidateAll(InvalidacionCompletaEvent event) {
+        users.invalidateAll();
     }
-}
\ No newline at end of file
+}
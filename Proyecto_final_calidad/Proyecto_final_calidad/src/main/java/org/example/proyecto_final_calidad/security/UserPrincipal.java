@@ -0,0 +1,84 @@
+package org.example.proyecto_final_calidad.security;
+
+import org.example.proyecto_final_calidad.model.Role;
+import org.example.proyecto_final_calidad.model.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Immutable snapshot of a user, detached from the JPA entity, so it can be cached
+ * and shared between requests. The password hash is kept only in the copy used for
+ * login; principals of authenticated requests carry none.
+ */
+public final class UserPrincipal implements UserDetails {
+
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final Role role;
+    private final boolean enabled;
+    private final List<GrantedAuthority> authorities;
+
+    public UserPrincipal(Long id, String username, String password, Role role, boolean enabled) {
+        this.id = id;
+        this.username = username;
+        this.password = password;
+        this.role = role;
+        this.enabled = enabled;
+        this.authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    /**
+     * Take a snapshot of the given user.
+     *
+     * @param user the user entity
+     * @return the immutable principal
+     */
+    public static UserPrincipal from(User user) {
+        return new UserPrincipal(user.getId(), user.getUsername(), user.getPassword(), user.getRole(), user.isEnabled());
+    }
+
+    /**
+     * @return the same principal without the password hash
+     */
+    public UserPrincipal withoutPassword() {
+        return password == null ? this : new UserPrincipal(id, username, null, role, enabled);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Role getRole() {
+        return role;
+    }
+
+    @Override
+    public String getUsername() {
+        return username;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public String toString() {
+        return "UserPrincipal[" + username + ", " + role + "]";
+    }
+}
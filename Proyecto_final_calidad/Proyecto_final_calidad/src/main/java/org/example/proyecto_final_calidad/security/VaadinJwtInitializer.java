@@ -8,18 +8,19 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
+import java.util.Optional;
+
 
 @Component
 public class VaadinJwtInitializer implements VaadinServiceInitListener {
 
     @Autowired
-    private JwtUtils jwtUtils;
+    private JwtTokenCache jwtTokenCache;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private RefreshTokenService refreshTokenService;
 
     @Override
     public void serviceInit(ServiceInitEvent event) {
@@ -27,10 +28,14 @@ public class VaadinJwtInitializer implements VaadinServiceInitListener {
             uiInitEvent.getUI().addBeforeEnterListener(beforeEnterEvent -> {
                 Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
                 if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal().equals("anonymousUser")) {
-                    String jwt = (String) VaadinSession.getCurrent().getAttribute("jwt");
-                    if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                        String username = jwtUtils.getUsernameFromJwtToken(jwt);
-                        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    VaadinSession session = VaadinSession.getCurrent();
+                    String jwt = (String) session.getAttribute("jwt");
+                    Optional<UserPrincipal> principal = jwt != null ? jwtTokenCache.authenticate(jwt) : Optional.empty();
+                    if (principal.isEmpty() && jwt != null) {
+                        principal = refresh(session);
+                    }
+                    if (principal.isPresent()) {
+                        UserDetails userDetails = principal.get();
 
                         UsernamePasswordAuthenticationToken newAuthentication =
                                 new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -44,5 +49,22 @@ public class VaadinJwtInitializer implements VaadinServiceInitListener {
             });
         });
     }
-}
 
+    /**
+     * The access token expired or was revoked: exchange the session's refresh token for
+     * a new pair, or end the session if that is not possible.
+     */
+    private Optional<UserPrincipal> refresh(VaadinSession session) {
+        String refreshToken = (String) session.getAttribute("refreshToken");
+        Optional<RefreshTokenService.TokenPair> tokens =
+                refreshToken != null ? refreshTokenService.refresh(refreshToken) : Optional.empty();
+        if (tokens.isEmpty()) {
+            session.setAttribute("jwt", null);
+            session.setAttribute("refreshToken", null);
+            return Optional.empty();
+        }
+        session.setAttribute("jwt", tokens.get().accessToken());
+        session.setAttribute("refreshToken", tokens.get().refreshToken());
+        return jwtTokenCache.authenticate(tokens.get().accessToken());
+    }
+}
@@ -1,7 +1,9 @@
 package org.example.proyecto_final_calidad.security;
 
+import jakarta.servlet.DispatcherType;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -12,10 +14,15 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * Configuration class for Spring Security.
  * Configures security settings, authentication, and authorization.
@@ -31,6 +38,12 @@ public class WebSecurityConfig {
     @Autowired
     private JwtAuthenticationFilter jwtAuthenticationFilter;
 
+    @Value("${app.password.algoritmo:bcrypt}")
+    private String passwordAlgorithm;
+
+    @Value("${app.password.bcrypt-coste:10}")
+    private int bcryptCost;
+
     /**
      * Configure the security filter chain.
      *
@@ -44,6 +57,10 @@ public class WebSecurityConfig {
                 .csrf(csrf -> csrf.disable())
                 .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(auth -> auth
+                        // El despacho ASYNC de las exportaciones (StreamingResponseBody) ya se
+                        // autorizó en la petición original y no vuelve a pasar por el filtro JWT
+                        .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                         // *** Prometheus / Actuator ***
                         .requestMatchers("/actuator/**").permitAll()
 
@@ -54,7 +71,7 @@ public class WebSecurityConfig {
                                 "/icons/**", "/images/**", "/manifest.webmanifest").permitAll()
 
                         // auth públicas de tu API
-                        .requestMatchers("/api/auth", "/api/documentacion").permitAll()
+                        .requestMatchers("/api/auth", "/api/auth/refresh", "/api/auth/revocar", "/api/documentacion").permitAll()
 
                         // API protegida y vistas con roles
                         .requestMatchers("/api/**").hasAuthority("ROLE_ADMINISTRADOR")
@@ -101,6 +118,8 @@ public class WebSecurityConfig {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes the password after a successful login when its hash is outdated
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -117,12 +136,24 @@ public class WebSecurityConfig {
     }
 
     /**
-     * Configure the password encoder.
+     * Configure the password encoder. New hashes use the configured algorithm and are
+     * prefixed with its id; hashes with another algorithm, a lower BCrypt cost or no
+     * prefix still match and are upgraded on the next successful login.
      *
      * @return the configured PasswordEncoder
      */
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put("bcrypt", new BCryptPasswordEncoder(bcryptCost));
+        encoders.put("pbkdf2@SpringSecurity_v5_8", Pbkdf2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(passwordAlgorithm)) {
+            throw new IllegalArgumentException("Algoritmo de contraseñas no soportado: " + passwordAlgorithm);
+        }
+
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(passwordAlgorithm, encoders);
+        // Hashes stored before the prefix was introduced are plain BCrypt
+        encoder.setDefaultPasswordEncoderForMatches(encoders.get("bcrypt"));
+        return encoder;
     }
 }
@@ -0,0 +1,252 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.model.User;
+import org.example.proyecto_final_calidad.repositorio.CacheSegundoNivelConfig;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Invalidación de cachés entre nodos con LISTEN/NOTIFY de PostgreSQL. Los cambios de
+ * productos y usuarios, y las revocaciones de tokens, de este nodo se envían con
+ * pg_notify dentro de la misma transacción, así que PostgreSQL solo los entrega si la
+ * transacción se confirma.
+ * Cada nodo escucha el canal en una conexión propia, ignora sus propios avisos y
+ * desaloja solo las claves afectadas antes de volver a publicar el cambio como
+ * evento remoto para los demás oyentes (índice de productos, etc.).
+ *
+ * Formato del aviso: {@code nodo:producto:cambio:1,2,3} (cambio alta, edicion o baja),
+ * {@code nodo:usuario:cambio:id:username} (alta o edicion) o {@code nodo:token:jti}.
+ */
+@Component
+public class BusInvalidacion {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusInvalidacion.class);
+
+    // El payload de NOTIFY admite hasta 8000 bytes; 300 IDs ocupan menos de 6000
+    private static final int IDS_POR_AVISO = 300;
+    private static final String PRODUCTO = "producto";
+    private static final String USUARIO = "usuario";
+    private static final String TOKEN = "token";
+    private static final String ALTA = "alta";
+    private static final String EDICION = "edicion";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final Cache cacheSegundoNivel;
+    private final boolean habilitado;
+    private final String canal;
+    private final int esperaMs;
+    private final String nodo = UUID.randomUUID().toString();
+
+    private volatile boolean activo;
+    private volatile boolean escuchando;
+    private Thread escucha;
+
+    public BusInvalidacion(DataSource dataSource,
+                           JdbcTemplate jdbcTemplate,
+                           ApplicationEventPublisher eventos,
+                           EntityManagerFactory entityManagerFactory,
+                           @Value("${app.invalidacion.habilitado:true}") boolean habilitado,
+                           @Value("${app.invalidacion.canal:invalidacion_cache}") String canal,
+                           @Value("${app.invalidacion.espera-ms:5000}") int esperaMs) {
+        // LISTEN no admite parámetros: el canal va en el SQL y debe ser un identificador simple
+        if (!canal.matches("[a-z_][a-z0-9_]*")) {
+            throw new IllegalArgumentException("Nombre de canal de invalidación inválido: " + canal);
+        }
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventos = eventos;
+        this.cacheSegundoNivel = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.habilitado = habilitado;
+        this.canal = canal;
+        this.esperaMs = esperaMs;
+    }
+
+    /**
+     * @return identificador de este nodo en los avisos
+     */
+    public String nodo() {
+        return nodo;
+    }
+
+    /**
+     * @return true si la conexión de escucha está activa y recibe avisos
+     */
+    public boolean escuchando() {
+        return escuchando;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void productoCambiado(ProductoCambiadoEvent evento) {
+        if (!habilitado || evento.remoto() || evento.productoIds().isEmpty()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(evento.productoIds());
+        for (int i = 0; i < ids.size(); i += IDS_POR_AVISO) {
+            String claves = ids.subList(i, Math.min(i + IDS_POR_AVISO, ids.size())).stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(","));
+            notificar(PRODUCTO, cambio(evento.cambio()) + ":" + claves);
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void usuarioCambiado(UsuarioCambiadoEvent evento) {
+        if (!habilitado || evento.remoto()) {
+            return;
+        }
+        notificar(USUARIO, (evento.alta() ? ALTA : EDICION) + ":" + evento.usuarioId() + ":" + evento.username());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void tokenRevocado(TokenRevocadoEvent evento) {
+        if (!habilitado || evento.remoto()) {
+            return;
+        }
+        notificar(TOKEN, evento.jti());
+    }
+
+    private static String cambio(ProductoCambiadoEvent.Cambio cambio) {
+        return cambio.name().toLowerCase(Locale.ROOT);
+    }
+
+    private void notificar(String tipo, String claves) {
+        // Usa la conexión de la transacción en curso: el aviso sale al confirmarla
+        jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", canal, nodo + ":" + tipo + ":" + claves);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        activo = true;
+        escucha = new Thread(this::escuchar, "invalidacion-escucha");
+        escucha.setDaemon(true);
+        escucha.start();
+    }
+
+    @PreDestroy
+    void detener() {
+        activo = false;
+        if (escucha != null) {
+            escucha.interrupt();
+        }
+    }
+
+    /**
+     * Mantiene una conexión del pool con LISTEN mientras la aplicación está activa. Si
+     * la conexión se pierde se reintenta; los avisos enviados en ese intervalo no se
+     * recuperan, así que al reconectar se descarta todo lo cacheado.
+     */
+    private void escuchar() {
+        boolean primeraConexion = true;
+        while (activo) {
+            try (Connection conexion = dataSource.getConnection()) {
+                conexion.setAutoCommit(true);
+                try (Statement st = conexion.createStatement()) {
+                    st.execute("LISTEN " + canal);
+                }
+                if (!primeraConexion) {
+                    invalidarTodo();
+                }
+                primeraConexion = false;
+                escuchando = true;
+                logger.info("Escuchando avisos de invalidación en el canal {} (nodo {})", canal, nodo);
+
+                PGConnection pg = conexion.unwrap(PGConnection.class);
+                while (activo) {
+                    PGNotification[] avisos = pg.getNotifications(esperaMs);
+                    if (avisos != null) {
+                        for (PGNotification aviso : avisos) {
+                            procesar(aviso.getParameter());
+                        }
+                    }
+                }
+                // La conexión vuelve al pool: que no siga acumulando avisos
+                try (Statement st = conexion.createStatement()) {
+                    st.execute("UNLISTEN *");
+                }
+            } catch (SQLException e) {
+                escuchando = false;
+                if (!activo) {
+                    return;
+                }
+                logger.warn("Se perdió la conexión de escucha de invalidaciones; se reintentará", e);
+                try {
+                    Thread.sleep(esperaMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    void procesar(String aviso) {
+        String[] partes = aviso.split(":", 3);
+        if (partes.length < 3 || partes[0].equals(nodo)) {
+            return;
+        }
+        try {
+            switch (partes[1]) {
+                case PRODUCTO -> {
+                    String[] producto = partes[2].split(":", 2);
+                    ProductoCambiadoEvent.Cambio cambio = ProductoCambiadoEvent.Cambio.valueOf(producto[0].toUpperCase(Locale.ROOT));
+                    List<Long> ids = Arrays.stream(producto[1].split(",")).map(Long::valueOf).toList();
+                    ids.forEach(id -> cacheSegundoNivel.evictEntityData(Producto.class, id));
+                    cacheSegundoNivel.evictQueryRegion(CacheSegundoNivelConfig.REGION_CONSULTAS_PRODUCTO);
+                    eventos.publishEvent(new ProductoCambiadoEvent(ids, cambio, true));
+                }
+                case USUARIO -> {
+                    String[] usuario = partes[2].split(":", 3);
+                    Long id = Long.valueOf(usuario[1]);
+                    cacheSegundoNivel.evictEntityData(User.class, id);
+                    cacheSegundoNivel.evictQueryRegion(CacheSegundoNivelConfig.REGION_CONSULTAS_USUARIO);
+                    eventos.publishEvent(new UsuarioCambiadoEvent(id, usuario.length > 2 ? usuario[2] : null,
+                            ALTA.equals(usuario[0]), true));
+                }
+                case TOKEN -> eventos.publishEvent(new TokenRevocadoEvent(partes[2], true));
+                default -> logger.warn("Aviso de invalidación desconocido: {}", aviso);
+            }
+        } catch (RuntimeException e) {
+            // Un oyente que falla no debe cortar la escucha
+            logger.error("No se pudo procesar el aviso de invalidación {}", aviso, e);
+        }
+    }
+
+    private void invalidarTodo() {
+        logger.info("Conexión de escucha recuperada: se descartan las cachés locales");
+        cacheSegundoNivel.evictEntityData(Producto.class);
+        cacheSegundoNivel.evictEntityData(User.class);
+        cacheSegundoNivel.evictQueryRegions();
+        eventos.publishEvent(new InvalidacionCompletaEvent());
+    }
+}
@@ -0,0 +1,199 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.repositorio.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contadores del panel de control (productos, productos con stock bajo y usuarios)
+ * servidos desde memoria. Se mantienen con los eventos de cambio de productos (altas,
+ * ediciones, movimientos de stock, importaciones, también de otros nodos) y de usuarios:
+ * las altas y bajas suman o restan a los totales y de los productos afectados solo se
+ * vuelve a leer si tienen stock bajo. En memoria solo se guardan los ids con stock bajo.
+ * Una conciliación periódica con consultas COUNT corrige cualquier desvío.
+ */
+@Service
+public class DashboardMetricsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardMetricsService.class);
+
+    private final ProductoRepositorio productoRepositorio;
+    private final UserRepository userRepository;
+
+    private final AtomicLong totalProductos = new AtomicLong();
+    private final AtomicLong productosStockBajo = new AtomicLong();
+    private final AtomicLong totalUsuarios = new AtomicLong();
+
+    // Productos con stock bajo, para saber si un cambio entra o sale del contador
+    private Set<Long> stockBajo = new HashSet<>();
+
+    // Productos cambiados mientras se concilia; se vuelven a leer al terminar
+    private final Set<Long> cambiosPendientes = ConcurrentHashMap.newKeySet();
+    private volatile boolean conciliando;
+    // Altas o bajas recibidas mientras se concilia: los COUNT leídos pueden no incluirlas
+    private volatile boolean altasPendientes;
+
+    public DashboardMetricsService(ProductoRepositorio productoRepositorio,
+                                   UserRepository userRepository,
+                                   MeterRegistry meterRegistry) {
+        this.productoRepositorio = productoRepositorio;
+        this.userRepository = userRepository;
+
+        Gauge.builder("dashboard.productos", totalProductos, AtomicLong::get)
+                .description("Productos registrados")
+                .register(meterRegistry);
+        Gauge.builder("dashboard.productos.stock.bajo", productosStockBajo, AtomicLong::get)
+                .description("Productos con cantidad menor que su stock mínimo")
+                .register(meterRegistry);
+        Gauge.builder("dashboard.usuarios", totalUsuarios, AtomicLong::get)
+                .description("Usuarios registrados")
+                .register(meterRegistry);
+    }
+
+    public long totalProductos() {
+        return totalProductos.get();
+    }
+
+    public long productosStockBajo() {
+        return productosStockBajo.get();
+    }
+
+    public long totalUsuarios() {
+        return totalUsuarios.get();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void alIniciar() {
+        conciliarProgramado();
+    }
+
+    @EventListener
+    public void invalidacionCompleta(InvalidacionCompletaEvent evento) {
+        conciliarProgramado();
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.conciliacion-ms:300000}",
+            initialDelayString = "${app.dashboard.conciliacion-ms:300000}")
+    public void conciliarProgramado() {
+        try {
+            conciliar();
+        } catch (RuntimeException e) {
+            logger.error("Falló la conciliación de los contadores del panel", e);
+        }
+    }
+
+    /**
+     * Recalcula los contadores desde la base de datos y los reemplaza.
+     */
+    public void conciliar() {
+        conciliando = true;
+        try {
+            // Si llega una alta o baja mientras se cuenta, se vuelve a contar (hasta 3 veces)
+            for (int intento = 0; intento < 3; intento++) {
+                altasPendientes = false;
+                long productos = productoRepositorio.count();
+                Set<Long> bajos = new HashSet<>(productoRepositorio.findIdsStockBajo());
+                long usuarios = userRepository.count();
+
+                synchronized (this) {
+                    if (totalProductos.get() != productos || productosStockBajo.get() != bajos.size()
+                            || totalUsuarios.get() != usuarios) {
+                        logger.info("Contadores del panel conciliados: {} productos ({} con stock bajo), {} usuarios",
+                                productos, bajos.size(), usuarios);
+                    }
+                    stockBajo = bajos;
+                    totalProductos.set(productos);
+                    productosStockBajo.set(bajos.size());
+                    totalUsuarios.set(usuarios);
+                    if (!altasPendientes) {
+                        conciliando = false;
+                        break;
+                    }
+                }
+            }
+        } finally {
+            conciliando = false;
+        }
+
+        if (!cambiosPendientes.isEmpty()) {
+            List<Long> ids = new ArrayList<>(cambiosPendientes);
+            cambiosPendientes.removeAll(ids);
+            actualizar(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void productoCambiado(ProductoCambiadoEvent evento) {
+        Collection<Long> ids = evento.productoIds();
+        if (conciliando) {
+            cambiosPendientes.addAll(ids);
+        }
+        switch (evento.cambio()) {
+            case ALTA -> {
+                sumar(totalProductos, ids.size());
+                actualizar(ids);
+            }
+            case BAJA -> {
+                sumar(totalProductos, -ids.size());
+                synchronized (this) {
+                    stockBajo.removeAll(ids);
+                    productosStockBajo.set(stockBajo.size());
+                }
+            }
+            case EDICION -> actualizar(ids);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void usuarioCambiado(UsuarioCambiadoEvent evento) {
+        // Los usuarios no se eliminan (se desactivan): solo cuentan las altas
+        if (evento.alta()) {
+            sumar(totalUsuarios, 1);
+        }
+    }
+
+    private synchronized void sumar(AtomicLong total, long delta) {
+        if (conciliando) {
+            altasPendientes = true;
+        }
+        total.addAndGet(delta);
+    }
+
+    private void actualizar(Collection<Long> ids) {
+        Set<Long> bajos = new HashSet<>();
+        for (Object[] fila : productoRepositorio.findStockBajoByIdIn(ids)) {
+            if ((Boolean) fila[1]) {
+                bajos.add((Long) fila[0]);
+            }
+        }
+        synchronized (this) {
+            for (Long id : ids) {
+                if (bajos.contains(id)) {
+                    stockBajo.add(id);
+                } else {
+                    stockBajo.remove(id);
+                }
+            }
+            productosStockBajo.set(stockBajo.size());
+        }
+    }
+}
@@ -0,0 +1,515 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.proyecto_final_calidad.dto.ResultadoMovimiento;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Diario local de movimientos de stock para el modo write-behind
+ * ({@code app.stock.write-behind.enabled=true}).
+ *
+ * <p>Los movimientos se agregan a un archivo mapeado en memoria y se confirman al
+ * llamador en cuanto el lote que los contiene se sincroniza a disco (un solo
+ * {@code force()} por lote). Un hilo drenador los aplica después a la base de
+ * datos en transacciones de hasta {@code app.stock.write-behind.lote} movimientos.
+ * Lo que quedó sin drenar en una ejecución anterior se reproduce cuando la aplicación
+ * termina de arrancar ({@code ApplicationReadyEvent}), antes que los movimientos
+ * registrados después.</p>
+ *
+ * <p>Formato del archivo: una cabecera con dos offsets ({@code escrito} y
+ * {@code drenado}), la última secuencia asignada y el identificador del diario,
+ * seguida de registros con longitud y CRC32. Un registro con CRC inválido marca el
+ * final del diario (escritura interrumpida por una caída).</p>
+ *
+ * <p>Cada registro lleva una secuencia creciente. Al drenar, la última secuencia
+ * aplicada se guarda en {@code diario_stock_aplicado} dentro de la misma transacción
+ * que inserta los movimientos; si la aplicación cae entre ese commit y la
+ * actualización de la cabecera, al reproducir se saltan los registros ya aplicados.</p>
+ *
+ * <p>La validación de stock suficiente ocurre al drenar: un movimiento confirmado por
+ * el diario puede ser rechazado más tarde. Los rechazos se guardan en
+ * {@code diario_stock_rechazado} (en la misma transacción que el lote) para que un
+ * operador los revise, y se cuentan en la métrica {@code stock.diario.rechazados}.</p>
+ */
+@Component
+@ConditionalOnProperty(name = "app.stock.write-behind.enabled", havingValue = "true")
+public class DiarioMovimientos {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioMovimientos.class);
+
+    /** [long escrito][long drenado][long secuencia][long id alto][long id bajo] */
+    private static final int CABECERA = 40;
+    /** [int longitud][int crc] antes del cuerpo de cada registro */
+    private static final int PREFIJO_REGISTRO = 8;
+    private static final TipoMovimiento[] TIPOS = TipoMovimiento.values();
+    /** El buffer mapeado se indexa con int: como máximo 2 GB */
+    private static final int CAPACIDAD_MAXIMA_MB = 2047;
+
+    private static final String SQL_RECHAZADO = "INSERT INTO diario_stock_rechazado"
+            + " (diario, secuencia, producto_id, cantidad, tipo, usuario, fecha, motivo) VALUES (?, ?, ?, ?, ?, ?, ?, ?)"
+            + " ON CONFLICT (diario, secuencia) DO NOTHING";
+
+    private final StockServicio stockServicio;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Path archivo;
+    private final int capacidad;
+    private final int tamanoLote;
+    private final long intervaloMs;
+
+    private final BlockingQueue<Pendiente> cola = new LinkedBlockingQueue<>();
+    private final AtomicLong pendientes = new AtomicLong();
+    private final Counter rechazados;
+
+    private FileChannel canal;
+    private MappedByteBuffer buffer;
+    private int escrito;
+    private int drenado;
+    private long secuencia;
+    private String idDiario;
+
+    private volatile boolean activo = true;
+    private Thread escritor;
+    private ScheduledExecutorService drenador;
+
+    /**
+     * Movimiento a la espera del escritor. {@code tomado} lo reclama el escritor antes de
+     * copiarlo al diario o el llamador al vencer la espera: solo uno de los dos gana, así
+     * que un movimiento cancelado nunca llega al archivo.
+     */
+    private record Pendiente(SolicitudMovimiento movimiento, LocalDateTime fecha,
+                             CompletableFuture<Boolean> confirmacion, AtomicBoolean tomado) {
+    }
+
+    /** Registro leído del diario */
+    private record Entrada(long secuencia, SolicitudMovimiento movimiento, LocalDateTime fecha) {
+    }
+
+    public DiarioMovimientos(StockServicio stockServicio,
+                             JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             MeterRegistry meterRegistry,
+                             @Value("${app.stock.write-behind.archivo:data/diario-stock.dat}") String archivo,
+                             @Value("${app.stock.write-behind.capacidad-mb:64}") int capacidadMb,
+                             @Value("${app.stock.write-behind.lote:500}") int tamanoLote,
+                             @Value("${app.stock.write-behind.intervalo-ms:200}") long intervaloMs) {
+        if (capacidadMb < 1 || capacidadMb > CAPACIDAD_MAXIMA_MB) {
+            throw new IllegalArgumentException("app.stock.write-behind.capacidad-mb debe estar entre 1 y "
+                    + CAPACIDAD_MAXIMA_MB + ": " + capacidadMb);
+        }
+        this.stockServicio = stockServicio;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.archivo = Paths.get(archivo).toAbsolutePath();
+        this.capacidad = capacidadMb * 1024 * 1024;
+        this.tamanoLote = tamanoLote;
+        this.intervaloMs = intervaloMs;
+
+        this.rechazados = Counter.builder("stock.diario.rechazados")
+                .description("Movimientos del diario rechazados al aplicarlos en la base de datos")
+                .register(meterRegistry);
+        Gauge.builder("stock.diario.pendientes", pendientes, AtomicLong::get)
+                .description("Movimientos confirmados en el diario que aún no se aplican en la base de datos")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void abrir() throws IOException {
+        Files.createDirectories(archivo.getParent());
+        canal = FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = canal.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(capacidad, canal.size()));
+
+        escrito = (int) buffer.getLong(0);
+        drenado = (int) buffer.getLong(8);
+        secuencia = buffer.getLong(16);
+        UUID id = new UUID(buffer.getLong(24), buffer.getLong(32));
+        if (escrito < CABECERA || escrito > buffer.capacity() || drenado < CABECERA || drenado > escrito
+                || secuencia < 0 || id.getMostSignificantBits() == 0) {
+            // Diario nuevo o ilegible: otro identificador, para no chocar con las
+            // secuencias que un diario anterior dejó registradas en la base
+            escrito = CABECERA;
+            drenado = CABECERA;
+            secuencia = 0;
+            id = UUID.randomUUID();
+            buffer.putLong(24, id.getMostSignificantBits());
+            buffer.putLong(32, id.getLeastSignificantBits());
+            escribirCabecera();
+            buffer.force();
+        }
+        idDiario = id.toString();
+        jdbcTemplate.update("INSERT INTO diario_stock_aplicado (diario, ultima_secuencia) VALUES (?, 0)"
+                + " ON CONFLICT (diario) DO NOTHING", idDiario);
+
+        // Recorre lo pendiente para contarlo y descartar un posible registro incompleto al final
+        long registros = 0;
+        int posicion = drenado;
+        while (posicion < escrito) {
+            int longitud = longitudValida(posicion);
+            if (longitud < 0) {
+                logger.warn("Registro inválido en el diario en la posición {}; se descarta el resto", posicion);
+                escrito = posicion;
+                escribirCabecera();
+                buffer.force();
+                break;
+            }
+            posicion += longitud;
+            registros++;
+        }
+        pendientes.set(registros);
+        if (registros > 0) {
+            logger.info("El diario de movimientos tiene {} movimientos pendientes; se reproducirán al iniciar", registros);
+        }
+
+        escritor = new Thread(this::escribirEnLotes, "diario-stock-escritor");
+        escritor.setDaemon(true);
+        escritor.start();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void iniciarDrenado() {
+        drenador = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "diario-stock-drenador"));
+        drenador.scheduleWithFixedDelay(this::drenar, 0, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void cerrar() throws IOException, InterruptedException {
+        activo = false;
+        escritor.join(TimeUnit.SECONDS.toMillis(5));
+        if (drenador != null) {
+            drenador.shutdown();
+            drenador.awaitTermination(30, TimeUnit.SECONDS);
+        }
+        buffer.force();
+        canal.close();
+    }
+
+    /**
+     * Agrega un movimiento al diario y espera a que esté sincronizado en disco. La fecha
+     * del movimiento es la de esta llamada, aunque se aplique en la base más tarde.
+     *
+     * @param movimiento movimiento a registrar
+     * @return true si quedó persistido en el diario; false si no llegó a escribirse
+     * (diario lleno, cerrado o sin respuesta del escritor), en cuyo caso el llamador
+     * puede usar el registro síncrono sin riesgo de aplicarlo dos veces
+     * @throws IllegalStateException si el movimiento quedó en el diario pero no se pudo
+     * sincronizar a disco; se aplicará igualmente al drenar y no debe repetirse
+     */
+    public boolean registrar(SolicitudMovimiento movimiento) {
+        if (!activo) {
+            return false;
+        }
+        Pendiente pendiente = new Pendiente(movimiento, LocalDateTime.now(),
+                new CompletableFuture<>(), new AtomicBoolean());
+        cola.add(pendiente);
+        try {
+            return pendiente.confirmacion().get(5, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            if (pendiente.tomado().compareAndSet(false, true)) {
+                logger.warn("El diario de movimientos no respondió a tiempo; el movimiento no se registró en él");
+                return false;
+            }
+            // El escritor ya lo copió al diario: su resultado llega en cuanto termine el lote
+            return esperar(pendiente);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return esperar(pendiente);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private boolean esperar(Pendiente pendiente) {
+        if (pendiente.tomado().compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            return pendiente.confirmacion().join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public long getPendientes() {
+        return pendientes.get();
+    }
+
+    // --- Escritura (un solo hilo, un force() por lote) ---
+
+    private void escribirEnLotes() {
+        List<Pendiente> lote = new ArrayList<>(tamanoLote);
+        while (activo || !cola.isEmpty()) {
+            try {
+                Pendiente primero = cola.poll(100, TimeUnit.MILLISECONDS);
+                if (primero == null) {
+                    continue;
+                }
+                lote.add(primero);
+                cola.drainTo(lote, tamanoLote - 1);
+                escribir(lote);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Solo llegan aquí movimientos ya copiados al diario (fallo de force()):
+                // se aplicarán al drenar, así que el llamador no debe reintentarlos
+                logger.error("Error sincronizando el diario de movimientos", e);
+                lote.forEach(p -> p.confirmacion().completeExceptionally(new IllegalStateException(
+                        "El movimiento quedó en el diario pero no se pudo sincronizar a disco", e)));
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void escribir(List<Pendiente> lote) {
+        List<Pendiente> aceptados = new ArrayList<>(lote.size());
+        synchronized (this) {
+            for (Pendiente pendiente : lote) {
+                if (!pendiente.tomado().compareAndSet(false, true)) {
+                    continue; // el llamador dejó de esperar
+                }
+                byte[] registro;
+                try {
+                    registro = codificar(secuencia + 1, pendiente.movimiento(), pendiente.fecha());
+                } catch (RuntimeException e) {
+                    logger.warn("Movimiento no válido para el diario: {}", e.getMessage());
+                    pendiente.confirmacion().complete(false);
+                    continue;
+                }
+                if (escrito + registro.length > buffer.capacity()) {
+                    logger.warn("El diario de movimientos está lleno");
+                    pendiente.confirmacion().complete(false);
+                    continue;
+                }
+                buffer.put(escrito, registro);
+                escrito += registro.length;
+                secuencia++;
+                aceptados.add(pendiente);
+            }
+            escribirCabecera();
+            pendientes.addAndGet(aceptados.size());
+        }
+        lote.clear();
+        lote.addAll(aceptados);
+        buffer.force();
+        aceptados.forEach(p -> p.confirmacion().complete(true));
+    }
+
+    // --- Drenado hacia la base de datos ---
+
+    void drenar() {
+        try {
+            while (true) {
+                List<Entrada> lote = new ArrayList<>(tamanoLote);
+                int hasta;
+                synchronized (this) {
+                    int posicion = drenado;
+                    while (posicion < escrito && lote.size() < tamanoLote) {
+                        lote.add(decodificar(posicion));
+                        posicion += buffer.getInt(posicion);
+                    }
+                    hasta = posicion;
+                }
+                if (lote.isEmpty()) {
+                    return;
+                }
+
+                List<ResultadoMovimiento> resultados = transactionTemplate.execute(status -> aplicar(lote));
+                for (ResultadoMovimiento resultado : resultados) {
+                    if (!resultado.exitoso()) {
+                        rechazados.increment();
+                        logger.warn("Movimiento del diario rechazado (producto {}), guardado en diario_stock_rechazado: {}",
+                                resultado.productoId(), resultado.error());
+                    }
+                }
+
+                synchronized (this) {
+                    drenado = hasta;
+                    compactar();
+                    escribirCabecera();
+                    pendientes.addAndGet(-lote.size());
+                }
+                buffer.force();
+            }
+        } catch (RuntimeException e) {
+            logger.error("No se pudo drenar el diario de movimientos; se reintentará", e);
+        }
+    }
+
+    /**
+     * Aplica en la base los registros del lote posteriores a la última secuencia
+     * aplicada, guarda los rechazados y avanza esa marca, todo en la transacción en
+     * curso. El FOR UPDATE serializa la marca por diario.
+     */
+    private List<ResultadoMovimiento> aplicar(List<Entrada> lote) {
+        long aplicada = jdbcTemplate.queryForObject(
+                "SELECT ultima_secuencia FROM diario_stock_aplicado WHERE diario = ? FOR UPDATE", Long.class, idDiario);
+        List<Entrada> aplicables = new ArrayList<>(lote.size());
+        List<SolicitudMovimiento> movimientos = new ArrayList<>(lote.size());
+        List<LocalDateTime> fechas = new ArrayList<>(lote.size());
+        for (Entrada entrada : lote) {
+            if (entrada.secuencia() > aplicada) {
+                aplicables.add(entrada);
+                movimientos.add(entrada.movimiento());
+                fechas.add(entrada.fecha());
+            }
+        }
+        if (movimientos.size() < lote.size()) {
+            logger.info("Se omiten {} movimientos del diario que ya estaban aplicados", lote.size() - movimientos.size());
+        }
+        List<ResultadoMovimiento> resultados = movimientos.isEmpty()
+                ? List.of()
+                : stockServicio.registrarMovimientos(movimientos, fechas);
+
+        List<Object[]> rechazos = new ArrayList<>();
+        for (ResultadoMovimiento resultado : resultados) {
+            if (!resultado.exitoso()) {
+                Entrada entrada = aplicables.get(resultado.indice());
+                SolicitudMovimiento m = entrada.movimiento();
+                rechazos.add(new Object[]{idDiario, entrada.secuencia(), m.productoId(), m.cantidad(), m.tipo().name(),
+                        m.usuario(), Timestamp.valueOf(entrada.fecha()), resultado.error()});
+            }
+        }
+        if (!rechazos.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_RECHAZADO, rechazos);
+        }
+        jdbcTemplate.update("UPDATE diario_stock_aplicado SET ultima_secuencia = ? WHERE diario = ?",
+                lote.get(lote.size() - 1).secuencia(), idDiario);
+        return resultados;
+    }
+
+    /**
+     * Recupera el espacio ya drenado. Solo mueve los registros pendientes al inicio
+     * cuando el destino no se solapa con ellos, para que una caída a mitad de la copia
+     * deje intacta la versión apuntada por la cabecera anterior.
+     */
+    private void compactar() {
+        int longitudPendiente = escrito - drenado;
+        if (longitudPendiente == 0) {
+            escrito = CABECERA;
+            drenado = CABECERA;
+        } else if (drenado > buffer.capacity() / 2 && longitudPendiente <= drenado - CABECERA) {
+            byte[] copia = new byte[longitudPendiente];
+            buffer.get(drenado, copia);
+            buffer.put(CABECERA, copia);
+            buffer.force();
+            drenado = CABECERA;
+            escrito = CABECERA + longitudPendiente;
+        }
+    }
+
+    private void escribirCabecera() {
+        buffer.putLong(0, escrito);
+        buffer.putLong(8, drenado);
+        buffer.putLong(16, secuencia);
+    }
+
+    // --- Codificación de registros ---
+
+    private static byte[] codificar(long secuencia, SolicitudMovimiento m, LocalDateTime fecha) {
+        byte[] usuario = m.usuario() != null ? m.usuario().getBytes(StandardCharsets.UTF_8) : null;
+        if (usuario != null && usuario.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("El nombre de usuario es demasiado largo");
+        }
+        int longitud = PREFIJO_REGISTRO + 8 + 8 + 4 + 1 + 8 + 4 + 2 + (usuario != null ? usuario.length : 0);
+
+        ByteBuffer registro = ByteBuffer.allocate(longitud);
+        registro.putInt(longitud);
+        registro.putInt(0); // CRC, se completa al final
+        registro.putLong(secuencia);
+        registro.putLong(m.productoId());
+        registro.putInt(m.cantidad());
+        registro.put((byte) m.tipo().ordinal());
+        registro.putLong(fecha.toEpochSecond(ZoneOffset.UTC));
+        registro.putInt(fecha.getNano());
+        registro.putShort((short) (usuario != null ? usuario.length : -1));
+        if (usuario != null) {
+            registro.put(usuario);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(registro.array(), PREFIJO_REGISTRO, longitud - PREFIJO_REGISTRO);
+        registro.putInt(4, (int) crc.getValue());
+        return registro.array();
+    }
+
+    private Entrada decodificar(int posicion) {
+        int p = posicion + PREFIJO_REGISTRO + 8;
+        long secuenciaRegistro = buffer.getLong(posicion + PREFIJO_REGISTRO);
+        long productoId = buffer.getLong(p);
+        int cantidad = buffer.getInt(p + 8);
+        TipoMovimiento tipo = TIPOS[buffer.get(p + 12)];
+        long segundos = buffer.getLong(p + 13);
+        int nanos = buffer.getInt(p + 21);
+        short longitudUsuario = buffer.getShort(p + 25);
+        String usuario = null;
+        if (longitudUsuario >= 0) {
+            byte[] bytes = new byte[longitudUsuario];
+            buffer.get(p + 27, bytes);
+            usuario = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new Entrada(secuenciaRegistro, new SolicitudMovimiento(productoId, cantidad, tipo, usuario),
+                LocalDateTime.ofEpochSecond(segundos, nanos, ZoneOffset.UTC));
+    }
+
+    /**
+     * @return la longitud del registro en la posición dada, o -1 si está truncado o dañado
+     */
+    private int longitudValida(int posicion) {
+        if (posicion + PREFIJO_REGISTRO > escrito) {
+            return -1;
+        }
+        int longitud = buffer.getInt(posicion);
+        if (longitud <= PREFIJO_REGISTRO || posicion + longitud > escrito) {
+            return -1;
+        }
+        byte[] cuerpo = new byte[longitud - PREFIJO_REGISTRO];
+        buffer.get(posicion + PREFIJO_REGISTRO, cuerpo);
+        CRC32 crc = new CRC32();
+        crc.update(cuerpo);
+        return (int) crc.getValue() == buffer.getInt(posicion + 4) ? longitud : -1;
+    }
+}
@@ -0,0 +1,26 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+/**
+ * Exportación completa de datos en NDJSON (un objeto JSON por línea), escrita a medida
+ * que se leen las filas: la memoria usada no depende de la cantidad de filas.
+ */
+public interface ExportacionServicio {
+
+    /**
+     * Escribe todos los productos ordenados por ID.
+     */
+    void exportarProductos(OutputStream salida) throws IOException;
+
+    /**
+     * Escribe los movimientos de stock ordenados por fecha e ID.
+     *
+     * @param productoId producto (opcional)
+     * @param desde fecha/hora desde, inclusive (opcional)
+     * @param hasta fecha/hora hasta, inclusive (opcional)
+     */
+    void exportarMovimientos(Long productoId, LocalDateTime desde, LocalDateTime hasta, OutputStream salida) throws IOException;
+}
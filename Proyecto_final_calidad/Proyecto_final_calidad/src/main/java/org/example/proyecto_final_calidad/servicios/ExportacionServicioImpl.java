@@ -0,0 +1,137 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class ExportacionServicioImpl implements ExportacionServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportacionServicioImpl.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    public ExportacionServicioImpl(DataSource dataSource,
+                                   PlatformTransactionManager transactionManager,
+                                   ObjectMapper objectMapper,
+                                   @Value("${app.exportacion.fetch-size:1000}") int fetchSize) {
+        // JdbcTemplate propio: con fetchSize el driver de PostgreSQL usa un cursor y trae
+        // las filas por tandas en vez de cargar todo el resultado en memoria
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(fetchSize);
+        // El cursor solo funciona con autocommit desactivado, es decir, dentro de una transacción
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void exportarProductos(OutputStream salida) throws IOException {
+        String sql = "SELECT id, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo"
+                + " FROM producto ORDER BY id";
+        exportar(sql, List.of(), salida, (rs, json) -> {
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("nombre", rs.getString("nombre"));
+            json.writeStringField("descripcion", rs.getString("descripcion"));
+            json.writeStringField("categoria", rs.getString("categoria"));
+            json.writeNumberField("precio", rs.getBigDecimal("precio"));
+            json.writeNumberField("cantidad", rs.getInt("cantidad"));
+            json.writeNumberField("stockMinimo", rs.getInt("stock_minimo"));
+            json.writeBooleanField("estaActivo", rs.getBoolean("esta_activo"));
+        });
+    }
+
+    @Override
+    public void exportarMovimientos(Long productoId, LocalDateTime desde, LocalDateTime hasta, OutputStream salida) throws IOException {
+        StringBuilder sql = new StringBuilder("""
+                SELECT s.id, s.producto_id, p.nombre, s.tipo, s.cantidad, s.fecha, s.usuario
+                FROM stock s JOIN producto p ON p.id = s.producto_id
+                WHERE TRUE""");
+        List<Object> parametros = new ArrayList<>();
+        if (productoId != null) {
+            sql.append(" AND s.producto_id = ?");
+            parametros.add(productoId);
+        }
+        // Rango sobre fecha para aprovechar la poda de particiones; ambos extremos inclusive,
+        // igual que /api/stock/historial
+        if (desde != null) {
+            sql.append(" AND s.fecha >= ?");
+            parametros.add(Timestamp.valueOf(desde));
+        }
+        if (hasta != null) {
+            sql.append(" AND s.fecha <= ?");
+            parametros.add(Timestamp.valueOf(hasta));
+        }
+        sql.append(" ORDER BY s.fecha, s.id");
+
+        exportar(sql.toString(), parametros, salida, (rs, json) -> {
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeNumberField("productoId", rs.getLong("producto_id"));
+            json.writeStringField("productoNombre", rs.getString("nombre"));
+            json.writeStringField("tipo", rs.getString("tipo"));
+            json.writeNumberField("cantidad", rs.getInt("cantidad"));
+            Timestamp fecha = rs.getTimestamp("fecha");
+            json.writeStringField("fecha", fecha != null ? fecha.toLocalDateTime().toString() : null);
+            json.writeStringField("usuario", rs.getString("usuario"));
+        });
+    }
+
+    @FunctionalInterface
+    private interface EscritorFila {
+        void escribir(ResultSet rs, JsonGenerator json) throws SQLException, IOException;
+    }
+
+    /**
+     * Recorre el resultado con un cursor de solo avance y escribe cada fila como una línea
+     * JSON con el generador de Jackson, sin armar objetos intermedios.
+     */
+    private void exportar(String sql, List<Object> parametros, OutputStream salida, EscritorFila escritor) throws IOException {
+        long inicio = System.currentTimeMillis();
+        long[] filas = {0};
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(salida)) {
+            // El servlet cierra su propio stream
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Sin separador entre valores raíz (Jackson pone un espacio por defecto): cada
+            // línea termina con el '\n' propio y la siguiente empieza directamente con '{'
+            json.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                        try {
+                            json.writeStartObject();
+                            escritor.escribir(rs, json);
+                            json.writeEndObject();
+                            json.writeRaw('\n');
+                            filas[0]++;
+                        } catch (IOException e) {
+                            // El cliente cortó la conexión: se aborta la consulta
+                            throw new UncheckedIOException(e);
+                        }
+                    }, parametros.toArray()));
+        } catch (UncheckedIOException e) {
+            logger.info("Exportación interrumpida tras {} filas: {}", filas[0], e.getCause().getMessage());
+            throw e.getCause();
+        }
+        logger.info("Exportación completada: {} filas en {} ms", filas[0], System.currentTimeMillis() - inicio);
+    }
+}
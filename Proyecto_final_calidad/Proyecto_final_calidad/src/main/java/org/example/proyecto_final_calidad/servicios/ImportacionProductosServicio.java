@@ -0,0 +1,24 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.EstadoImportacion;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+/**
+ * Importación masiva de productos desde CSV, en segundo plano.
+ * Columnas (con encabezado, en cualquier orden): nombre, descripcion, categoria,
+ * precio, cantidad, stockMinimo. Un producto con el mismo nombre se actualiza.
+ */
+public interface ImportacionProductosServicio {
+
+    /**
+     * Copia el archivo y encola la importación.
+     *
+     * @return el estado inicial, con el ID para consultar el progreso
+     */
+    EstadoImportacion iniciar(String nombreArchivo, InputStream contenido) throws IOException;
+
+    Optional<EstadoImportacion> estado(String id);
+}
@@ -0,0 +1,441 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManagerFactory;
+import org.example.proyecto_final_calidad.dto.ErrorImportacion;
+import org.example.proyecto_final_calidad.dto.EstadoImportacion;
+import org.example.proyecto_final_calidad.dto.EstadoImportacion.Fase;
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.CacheSegundoNivelConfig;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class ImportacionProductosServicioImpl implements ImportacionProductosServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportacionProductosServicioImpl.class);
+
+    private static final List<String> COLUMNAS = List.of("nombre", "descripcion", "categoria", "precio", "cantidad", "stockminimo");
+    private static final int MAX_ERRORES = 1_000;
+    private static final long RETENCION_HORAS = 24;
+
+    private static final String SQL_COPY = "COPY producto_importacion"
+            + " (trabajo, linea, nombre, descripcion, categoria, precio, cantidad, stock_minimo) FROM STDIN WITH (FORMAT csv)";
+
+    // Si un nombre se repite dentro del lote gana la última fila
+    private static final String FUENTE = """
+            fuente AS (
+                SELECT DISTINCT ON (nombre) linea, nombre, descripcion, categoria, precio, cantidad, stock_minimo
+                FROM producto_importacion
+                WHERE trabajo = ?
+                ORDER BY nombre, linea DESC
+            )""";
+
+    // Actualiza los productos con el mismo nombre, guarda su revisión de auditoría y un
+    // saldo AJUSTE en el libro si cambió la cantidad (lo que hace ProductoServicio.save).
+    // Una cantidad menor que las unidades reservadas no se aplica (ver SQL_POR_DEBAJO_RESERVADO)
+    private static final String SQL_ACTUALIZAR = "WITH " + FUENTE + """
+            , actualizados AS (
+                UPDATE producto p
+                SET descripcion = f.descripcion, categoria = f.categoria, precio = f.precio,
+                    cantidad = f.cantidad, stock_minimo = f.stock_minimo
+                FROM fuente f, producto anterior
+                WHERE p.nombre = f.nombre AND anterior.id = p.id AND f.cantidad >= p.reservado
+                RETURNING p.id, p.nombre, p.descripcion, p.categoria, p.precio, p.cantidad, p.stock_minimo,
+                          p.esta_activo, p.movimientos, anterior.cantidad AS cantidad_anterior
+            ), auditoria AS (
+                INSERT INTO au_producto (id, rev, revtype, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo)
+                SELECT id, ?, 1, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo
+                FROM actualizados
+            ), ajustes AS (
+                INSERT INTO stock_saldo (producto_id, ultima_secuencia, saldo, tipo, fecha)
+                SELECT a.id, a.movimientos, a.cantidad, 'AJUSTE', NOW()
+                FROM actualizados a
+                WHERE a.cantidad <> a.cantidad_anterior
+            )
+            SELECT id FROM actualizados
+            """;
+
+    // Filas que SQL_ACTUALIZAR no aplicó por quedar debajo de lo reservado. Se consulta en
+    // la misma transacción: las filas actualizadas siguen bloqueadas y su reservado no cambia
+    private static final String SQL_POR_DEBAJO_RESERVADO = "WITH " + FUENTE + """
+            SELECT f.linea, p.reservado
+            FROM fuente f JOIN producto p ON p.nombre = f.nombre
+            WHERE f.cantidad < p.reservado
+            """;
+
+    // Inserta los nombres nuevos con su revisión de auditoría y su saldo INICIAL
+    private static final String SQL_INSERTAR = "WITH " + FUENTE + """
+            , insertados AS (
+                INSERT INTO producto (nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo)
+                SELECT f.nombre, f.descripcion, f.categoria, f.precio, f.cantidad, f.stock_minimo, TRUE
+                FROM fuente f
+                WHERE NOT EXISTS (SELECT 1 FROM producto p WHERE p.nombre = f.nombre)
+                RETURNING id, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo
+            ), auditoria AS (
+                INSERT INTO au_producto (id, rev, revtype, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo)
+                SELECT id, ?, 0, nombre, descripcion, categoria, precio, cantidad, stock_minimo, esta_activo
+                FROM insertados
+            ), iniciales AS (
+                INSERT INTO stock_saldo (producto_id, ultima_secuencia, saldo, tipo, fecha)
+                SELECT id, 0, cantidad, 'INICIAL', NOW()
+                FROM insertados
+            )
+            SELECT id FROM insertados
+            """;
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventos;
+    private final Cache cacheSegundoNivel;
+    private final int tamanoLote;
+    private final int hilos;
+
+    private final Map<String, Trabajo> trabajos = new ConcurrentHashMap<>();
+    private ExecutorService ejecutor;
+
+    public ImportacionProductosServicioImpl(DataSource dataSource,
+                                            JdbcTemplate jdbcTemplate,
+                                            PlatformTransactionManager transactionManager,
+                                            ApplicationEventPublisher eventos,
+                                            EntityManagerFactory entityManagerFactory,
+                                            @Value("${app.productos.importacion.lote:5000}") int tamanoLote,
+                                            @Value("${app.productos.importacion.hilos:1}") int hilos) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventos = eventos;
+        this.cacheSegundoNivel = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.tamanoLote = tamanoLote;
+        this.hilos = hilos;
+    }
+
+    @PostConstruct
+    void iniciarEjecutor() {
+        AtomicInteger contador = new AtomicInteger();
+        ejecutor = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "importacion-productos-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    @Override
+    public EstadoImportacion iniciar(String nombreArchivo, InputStream contenido) throws IOException {
+        // El archivo subido se borra al terminar la petición: se copia antes de encolar
+        Path ruta = Files.createTempFile("importacion-productos-", ".csv");
+        try {
+            Files.copy(contenido, ruta, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(ruta);
+            throw e;
+        }
+
+        limpiarTerminados();
+        Trabajo trabajo = new Trabajo(UUID.randomUUID().toString(), nombreArchivo);
+        trabajos.put(trabajo.id, trabajo);
+        ejecutor.execute(() -> ejecutar(trabajo, ruta));
+        return trabajo.estado();
+    }
+
+    @Override
+    public Optional<EstadoImportacion> estado(String id) {
+        return Optional.ofNullable(trabajos.get(id)).map(Trabajo::estado);
+    }
+
+    private void ejecutar(Trabajo trabajo, Path ruta) {
+        trabajo.fase = Fase.EN_CURSO;
+        try (BufferedReader lector = Files.newBufferedReader(ruta, StandardCharsets.UTF_8)) {
+            procesar(trabajo, new LectorCsv(lector));
+            trabajo.fase = Fase.COMPLETADA;
+            logger.info("Importación {} ({}) completada: {} leídas, {} insertados, {} actualizados, {} rechazadas",
+                    trabajo.id, trabajo.archivo, trabajo.leidas, trabajo.insertados, trabajo.actualizados, trabajo.rechazadas);
+        } catch (Exception e) {
+            // Los lotes ya confirmados se conservan
+            trabajo.falla = e.getMessage();
+            trabajo.fase = Fase.FALLIDA;
+            logger.error("Falló la importación {} ({})", trabajo.id, trabajo.archivo, e);
+        } finally {
+            trabajo.fin = LocalDateTime.now();
+            try {
+                Files.deleteIfExists(ruta);
+            } catch (IOException e) {
+                logger.warn("No se pudo borrar el archivo temporal {}", ruta, e);
+            }
+        }
+    }
+
+    private void procesar(Trabajo trabajo, LectorCsv csv) throws IOException {
+        List<String> encabezado = csv.leer();
+        if (encabezado == null) {
+            throw new IllegalArgumentException("El archivo está vacío");
+        }
+        Map<String, Integer> columnas = new HashMap<>();
+        for (int i = 0; i < encabezado.size(); i++) {
+            columnas.put(normalizarColumna(encabezado.get(i)), i);
+        }
+        List<String> faltantes = COLUMNAS.stream().filter(c -> !columnas.containsKey(c)).toList();
+        if (!faltantes.isEmpty()) {
+            throw new IllegalArgumentException("Faltan columnas en el encabezado: " + String.join(", ", faltantes));
+        }
+
+        List<FilaCsv> lote = new ArrayList<>(tamanoLote);
+        while (true) {
+            long linea = csv.linea();
+            List<String> campos = csv.leer();
+            if (campos == null) {
+                break;
+            }
+            if (campos.size() == 1 && campos.getFirst().isBlank()) {
+                continue;
+            }
+            lote.add(new FilaCsv(linea, campos));
+            trabajo.leidas.incrementAndGet();
+            if (lote.size() == tamanoLote) {
+                procesarLote(trabajo, lote, columnas);
+                lote = new ArrayList<>(tamanoLote);
+            }
+        }
+        if (!lote.isEmpty()) {
+            procesarLote(trabajo, lote, columnas);
+        }
+    }
+
+    /**
+     * Valida el lote en paralelo y carga las filas válidas en una sola transacción:
+     * COPY a la tabla de paso, actualización e inserción en producto y una única
+     * revisión de auditoría para todo el lote.
+     */
+    private void procesarLote(Trabajo trabajo, List<FilaCsv> lote, Map<String, Integer> columnas) {
+        List<FilaValida> validas = lote.parallelStream()
+                .map(fila -> validar(trabajo, fila, columnas))
+                .filter(Objects::nonNull)
+                .toList();
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        List<Long> cambiados = transactionTemplate.execute(status -> {
+            copiarAPaso(trabajo.id, validas);
+
+            Long revision = jdbcTemplate.queryForObject("SELECT nextval('revinfo_seq')", Long.class);
+            jdbcTemplate.update("INSERT INTO revinfo (rev, revtstmp) VALUES (?, ?)", revision.intValue(), System.currentTimeMillis());
+
+            List<Long> actualizados = jdbcTemplate.queryForList(SQL_ACTUALIZAR, Long.class, trabajo.id, revision.intValue());
+            jdbcTemplate.query(SQL_POR_DEBAJO_RESERVADO, rs -> {
+                trabajo.rechazar(rs.getLong("linea"),
+                        "La cantidad no puede ser menor que las unidades reservadas (" + rs.getInt("reservado") + ")");
+            }, trabajo.id);
+            List<Long> insertados = jdbcTemplate.queryForList(SQL_INSERTAR, Long.class, trabajo.id, revision.intValue());
+            jdbcTemplate.update("DELETE FROM producto_importacion WHERE trabajo = ?", trabajo.id);
+
+            List<Long> ids = new ArrayList<>(actualizados);
+            ids.addAll(insertados);
+            if (!actualizados.isEmpty()) {
+                eventos.publishEvent(new ProductoCambiadoEvent(actualizados));
+            }
+            if (!insertados.isEmpty()) {
+                eventos.publishEvent(new ProductoCambiadoEvent(insertados, ProductoCambiadoEvent.Cambio.ALTA));
+            }
+            trabajo.actualizados.addAndGet(actualizados.size());
+            trabajo.insertados.addAndGet(insertados.size());
+            return ids;
+        });
+
+        // Hibernate no ve el SQL nativo: se desalojan los productos y las consultas cacheadas
+        cambiados.forEach(id -> cacheSegundoNivel.evictEntityData(Producto.class, id));
+        cacheSegundoNivel.evictQueryRegion(CacheSegundoNivelConfig.REGION_CONSULTAS_PRODUCTO);
+    }
+
+    private void copiarAPaso(String trabajoId, List<FilaValida> filas) {
+        StringBuilder csv = new StringBuilder(filas.size() * 96);
+        for (FilaValida fila : filas) {
+            Producto p = fila.producto();
+            csv.append(trabajoId).append(',')
+                    .append(fila.linea()).append(',')
+                    .append(entreComillas(p.getNombre())).append(',')
+                    .append(entreComillas(p.getDescripcion())).append(',')
+                    .append(p.getCategoria().name()).append(',')
+                    .append(p.getPrecio()).append(',')
+                    .append(p.getCantidad()).append(',')
+                    .append(p.getStockMinimo()).append('\n');
+        }
+
+        // Conexión de la transacción actual, la misma que usa jdbcTemplate
+        Connection conexion = DataSourceUtils.getConnection(dataSource);
+        try {
+            conexion.unwrap(PGConnection.class).getCopyAPI().copyIn(SQL_COPY, new StringReader(csv.toString()));
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("Falló la carga con COPY: " + e.getMessage(), e);
+        } finally {
+            DataSourceUtils.releaseConnection(conexion, dataSource);
+        }
+    }
+
+    private FilaValida validar(Trabajo trabajo, FilaCsv fila, Map<String, Integer> columnas) {
+        List<String> campos = fila.campos();
+        if (campos.size() < columnas.size()) {
+            trabajo.rechazar(fila.linea(), "Faltan campos: se esperaban " + columnas.size() + " y hay " + campos.size());
+            return null;
+        }
+
+        List<String> errores = new ArrayList<>();
+        Producto producto = new Producto();
+        producto.setNombre(campo(campos, columnas, "nombre"));
+        producto.setDescripcion(campo(campos, columnas, "descripcion"));
+        producto.setCategoria(categoria(campo(campos, columnas, "categoria"), errores));
+        try {
+            producto.setPrecio(Double.parseDouble(campo(campos, columnas, "precio")));
+        } catch (NumberFormatException e) {
+            errores.add("El precio no es un número");
+        }
+        try {
+            producto.setCantidad(Integer.parseInt(campo(campos, columnas, "cantidad")));
+        } catch (NumberFormatException e) {
+            errores.add("La cantidad no es un número entero");
+        }
+        try {
+            producto.setStockMinimo(Integer.parseInt(campo(campos, columnas, "stockminimo")));
+        } catch (NumberFormatException e) {
+            errores.add("El Stock Mínimo no es un número entero");
+        }
+
+        errores.addAll(ProductoServicioImpl.erroresValidacion(producto));
+        // Límites de las columnas de producto, para que una fila no haga fallar el lote entero
+        if (producto.getNombre().length() > 255) {
+            errores.add("El nombre supera los 255 caracteres");
+        }
+        if (producto.getDescripcion().length() > 500) {
+            errores.add("La descripción supera los 500 caracteres");
+        }
+        if (!Double.isFinite(producto.getPrecio()) || producto.getPrecio() >= 100_000_000) {
+            errores.add("El precio supera el máximo admitido");
+        }
+
+        if (!errores.isEmpty()) {
+            trabajo.rechazar(fila.linea(), String.join(", ", errores));
+            return null;
+        }
+        return new FilaValida(fila.linea(), producto);
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> columnas, String columna) {
+        return campos.get(columnas.get(columna)).trim();
+    }
+
+    /**
+     * Acepta el nombre de la constante (ELECTRONICA) o el nombre visible (Electrónica).
+     */
+    private static CategoriaProducto categoria(String valor, List<String> errores) {
+        if (valor.isEmpty()) {
+            return null;
+        }
+        for (CategoriaProducto c : CategoriaProducto.values()) {
+            if (c.name().equalsIgnoreCase(valor) || c.getDisplayName().equalsIgnoreCase(valor)) {
+                return c;
+            }
+        }
+        errores.add("Categoría desconocida: " + valor);
+        return CategoriaProducto.OTROS;
+    }
+
+    private static String normalizarColumna(String columna) {
+        return columna.replace("﻿", "").replace("_", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String entreComillas(String valor) {
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    private void limpiarTerminados() {
+        LocalDateTime limite = LocalDateTime.now().minusHours(RETENCION_HORAS);
+        trabajos.values().removeIf(t -> t.fin != null && t.fin.isBefore(limite));
+    }
+
+    private record FilaCsv(long linea, List<String> campos) {
+    }
+
+    private record FilaValida(long linea, Producto producto) {
+    }
+
+    private static final class Trabajo {
+        final String id;
+        final String archivo;
+        final LocalDateTime inicio = LocalDateTime.now();
+        final AtomicLong leidas = new AtomicLong();
+        final AtomicLong insertados = new AtomicLong();
+        final AtomicLong actualizados = new AtomicLong();
+        final AtomicLong rechazadas = new AtomicLong();
+        final List<ErrorImportacion> errores = new ArrayList<>();
+        volatile Fase fase = Fase.PENDIENTE;
+        volatile LocalDateTime fin;
+        volatile String falla;
+
+        Trabajo(String id, String archivo) {
+            this.id = id;
+            this.archivo = archivo;
+        }
+
+        void rechazar(long linea, String mensaje) {
+            rechazadas.incrementAndGet();
+            synchronized (errores) {
+                if (errores.size() < MAX_ERRORES) {
+                    errores.add(new ErrorImportacion(linea, mensaje));
+                }
+            }
+        }
+
+        EstadoImportacion estado() {
+            List<ErrorImportacion> copia;
+            synchronized (errores) {
+                copia = List.copyOf(errores);
+            }
+            return new EstadoImportacion(id, fase, archivo, leidas.get(), insertados.get(), actualizados.get(),
+                    rechazadas.get(), copia, inicio, fin, falla);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package org.example.proyecto_final_calidad.servicios;
+
+/**
+ * Se publica cuando este nodo pudo perder avisos de invalidación de otros nodos (al
+ * recuperar la conexión de escucha). Los oyentes deben descartar todo lo cacheado.
+ */
+public record InvalidacionCompletaEvent() {
+}
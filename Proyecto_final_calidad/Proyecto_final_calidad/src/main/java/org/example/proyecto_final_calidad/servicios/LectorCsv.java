@@ -0,0 +1,96 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lector de CSV (RFC 4180) registro a registro: separador coma, campos entre comillas
+ * dobles con "" como comilla escapada y saltos de línea permitidos dentro de comillas.
+ */
+class LectorCsv {
+
+    private final Reader entrada;
+    private long linea = 1;
+    private int siguiente = -2;
+
+    LectorCsv(Reader entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * @return línea del archivo en la que empieza el próximo registro
+     */
+    long linea() {
+        return linea;
+    }
+
+    /**
+     * @return los campos del próximo registro, o null al final del archivo
+     */
+    List<String> leer() throws IOException {
+        int c = leerCaracter();
+        if (c == -1) {
+            return null;
+        }
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        while (true) {
+            if (entreComillas) {
+                if (c == -1) {
+                    throw new IOException("Comillas sin cerrar en la línea " + linea);
+                }
+                if (c == '"') {
+                    int d = leerCaracter();
+                    if (d == '"') {
+                        campo.append('"');
+                    } else {
+                        entreComillas = false;
+                        c = d;
+                        continue;
+                    }
+                } else {
+                    if (c == '\n') {
+                        linea++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreComillas = true;
+            } else if (c == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int d = leerCaracter();
+                    if (d != '\n') {
+                        devolver(d);
+                    }
+                }
+                if (c != -1) {
+                    linea++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else {
+                campo.append((char) c);
+            }
+            c = leerCaracter();
+        }
+    }
+
+    private int leerCaracter() throws IOException {
+        if (siguiente != -2) {
+            int c = siguiente;
+            siguiente = -2;
+            return c;
+        }
+        return entrada.read();
+    }
+
+    private void devolver(int c) {
+        siguiente = c;
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.ResultadoConciliacion;
+import org.example.proyecto_final_calidad.model.Producto;
+
+/**
+ * Libro de stock: la tabla de movimientos es la fuente de verdad y se guardan saldos
+ * intermedios por producto para no reproducir el historial completo en cada lectura.
+ */
+public interface LibroStockServicio {
+
+    /**
+     * @return el saldo del producto según el libro: último saldo guardado más los movimientos posteriores
+     */
+    long saldoActual(Long productoId);
+
+    /**
+     * Notifica movimientos recién insertados para un producto; cada N movimientos se
+     * guarda un saldo periódico. Debe llamarse dentro de la transacción del movimiento.
+     */
+    void movimientosRegistrados(Long productoId, int cantidadMovimientos, long ultimaSecuencia);
+
+    /**
+     * Guarda un saldo INICIAL para productos nuevos, o AJUSTE si la cantidad del
+     * producto fue cambiada fuera de un movimiento de stock.
+     */
+    void registrarCantidadProducto(Producto producto);
+
+    /**
+     * Verifica en paralelo, por rangos de ID de producto, que producto.cantidad
+     * coincida con el libro de movimientos.
+     */
+    ResultadoConciliacion conciliar();
+}
@@ -0,0 +1,169 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.proyecto_final_calidad.dto.DiferenciaStock;
+import org.example.proyecto_final_calidad.dto.ResultadoConciliacion;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.model.SaldoStock;
+import org.example.proyecto_final_calidad.model.TipoSaldo;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.repositorio.SaldoStockRepositorio;
+import org.example.proyecto_final_calidad.repositorio.StockRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class LibroStockServicioImpl implements LibroStockServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(LibroStockServicioImpl.class);
+
+    @Autowired
+    private SaldoStockRepositorio saldoStockRepositorio;
+
+    @Autowired
+    private StockRepositorio stockRepositorio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.stock.libro.intervalo:100}")
+    private int intervaloSaldo;
+
+    @Value("${app.stock.conciliacion.hilos:4}")
+    private int hilosConciliacion;
+
+    // Movimientos registrados desde el último saldo periódico, por producto (solo en este nodo)
+    private final Map<Long, AtomicInteger> pendientesPorProducto = new ConcurrentHashMap<>();
+    private final AtomicInteger ultimasDiferencias = new AtomicInteger();
+    private ExecutorService ejecutorConciliacion;
+
+    @PostConstruct
+    void iniciar() {
+        AtomicInteger contador = new AtomicInteger();
+        ejecutorConciliacion = Executors.newFixedThreadPool(hilosConciliacion, r -> {
+            Thread hilo = new Thread(r, "conciliacion-stock-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        Gauge.builder("stock.conciliacion.diferencias", ultimasDiferencias, AtomicInteger::get)
+                .description("Productos con diferencia entre cantidad y libro en la última conciliación")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutorConciliacion.shutdownNow();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long saldoActual(Long productoId) {
+        return saldoStockRepositorio.findFirstByProductoIdOrderByIdDesc(productoId)
+                .map(s -> s.getSaldo() + stockRepositorio.sumarMovimientos(productoId, s.getUltimaSecuencia(), Long.MAX_VALUE))
+                .orElseGet(() -> stockRepositorio.sumarMovimientos(productoId, 0, Long.MAX_VALUE));
+    }
+
+    @Override
+    @Transactional
+    public void movimientosRegistrados(Long productoId, int cantidadMovimientos, long ultimaSecuencia) {
+        AtomicInteger pendientes = pendientesPorProducto.computeIfAbsent(productoId, id -> new AtomicInteger());
+        if (pendientes.addAndGet(cantidadMovimientos) < intervaloSaldo) {
+            return;
+        }
+        pendientes.set(0);
+
+        // El llamador tiene bloqueada la fila del producto y las secuencias se asignan
+        // bajo ese bloqueo: todas las anteriores a ultimaSecuencia ya están confirmadas
+        // o pertenecen a esta transacción.
+        long anteriorSecuencia = 0;
+        long saldo = 0;
+        SaldoStock anterior = saldoStockRepositorio.findFirstByProductoIdOrderByIdDesc(productoId).orElse(null);
+        if (anterior != null) {
+            anteriorSecuencia = anterior.getUltimaSecuencia();
+            saldo = anterior.getSaldo();
+        }
+        saldo += stockRepositorio.sumarMovimientos(productoId, anteriorSecuencia, ultimaSecuencia);
+        saldoStockRepositorio.save(new SaldoStock(productoId, ultimaSecuencia, (int) saldo, TipoSaldo.PERIODICO));
+    }
+
+    @Override
+    @Transactional
+    public void registrarCantidadProducto(Producto producto) {
+        // El llamador acaba de escribir la fila del producto, así que la tiene bloqueada
+        long ultimaSecuencia = productoRepositorio.findUltimaSecuencia(producto.getId());
+        if (ultimaSecuencia == 0 && saldoStockRepositorio.findFirstByProductoIdOrderByIdDesc(producto.getId()).isEmpty()) {
+            saldoStockRepositorio.save(new SaldoStock(producto.getId(), 0L, producto.getCantidad(), TipoSaldo.INICIAL));
+            return;
+        }
+        if (saldoActual(producto.getId()) != producto.getCantidad()) {
+            // La cantidad se editó directamente (formulario o PUT /api/productos)
+            saldoStockRepositorio.save(new SaldoStock(producto.getId(), ultimaSecuencia,
+                    producto.getCantidad(), TipoSaldo.AJUSTE));
+        }
+    }
+
+    @Override
+    public ResultadoConciliacion conciliar() {
+        long inicio = System.currentTimeMillis();
+        Long maxId = productoRepositorio.findMaxId();
+        if (maxId == null) {
+            ultimasDiferencias.set(0);
+            return new ResultadoConciliacion(0, List.of(), System.currentTimeMillis() - inicio);
+        }
+
+        // Rangos contiguos de ID; cada uno es una sola consulta agregada en su propio hilo
+        long tamano = Math.max(1, (maxId + hilosConciliacion - 1) / hilosConciliacion);
+        List<CompletableFuture<List<Object[]>>> tareas = new ArrayList<>();
+        for (long desde = 1; desde <= maxId; desde += tamano) {
+            long d = desde;
+            long h = Math.min(maxId, desde + tamano - 1);
+            tareas.add(CompletableFuture.supplyAsync(() -> saldoStockRepositorio.findDiferenciasEnRango(d, h), ejecutorConciliacion));
+        }
+
+        List<DiferenciaStock> diferencias = new ArrayList<>();
+        for (CompletableFuture<List<Object[]>> tarea : tareas) {
+            for (Object[] fila : tarea.join()) {
+                diferencias.add(new DiferenciaStock(((Number) fila[0]).longValue(),
+                        ((Number) fila[1]).intValue(), ((Number) fila[2]).longValue()));
+            }
+        }
+        ultimasDiferencias.set(diferencias.size());
+
+        ResultadoConciliacion resultado = new ResultadoConciliacion(tareas.size(), diferencias, System.currentTimeMillis() - inicio);
+        if (diferencias.isEmpty()) {
+            logger.info("Conciliación de stock sin diferencias ({} particiones, {} ms)", resultado.particiones(), resultado.milisegundos());
+        } else {
+            logger.warn("Conciliación de stock: {} productos con diferencia: {}", diferencias.size(), diferencias);
+        }
+        return resultado;
+    }
+
+    @Scheduled(cron = "${app.stock.conciliacion.cron:0 0 3 * * *}")
+    public void conciliacionProgramada() {
+        try {
+            conciliar();
+        } catch (RuntimeException e) {
+            logger.error("Falló la conciliación programada de stock", e);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Mantenimiento de las particiones mensuales de stock y au_stock (ver V1_0_6):
+ * crea por adelantado las de los próximos meses para que los movimientos nunca
+ * caigan en la partición default, y archiva las que superan la retención.
+ */
+@Component
+public class ParticionesStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParticionesStock.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int mesesAdelante;
+    private final int retencionMeses;
+
+    public ParticionesStock(JdbcTemplate jdbcTemplate,
+                            @Value("${app.stock.particiones.meses-adelante:3}") int mesesAdelante,
+                            @Value("${app.stock.particiones.retencion-meses:0}") int retencionMeses) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mesesAdelante = mesesAdelante;
+        this.retencionMeses = retencionMeses;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void alIniciar() {
+        mantener();
+    }
+
+    @Scheduled(cron = "${app.stock.particiones.cron:0 30 2 * * *}")
+    public void mantener() {
+        try {
+            Integer creadas = jdbcTemplate.queryForObject("SELECT crear_particiones_stock(?)", Integer.class, mesesAdelante);
+            if (creadas != null && creadas > 0) {
+                logger.info("Particiones de stock creadas: {}", creadas);
+            }
+
+            // retencion-meses = 0 conserva todo el historial en línea
+            if (retencionMeses > 0) {
+                LocalDate antes = LocalDate.now().withDayOfMonth(1).minusMonths(retencionMeses);
+                Integer archivadas = jdbcTemplate.queryForObject("SELECT archivar_particiones_stock(?)", Integer.class, Date.valueOf(antes));
+                if (archivadas != null && archivadas > 0) {
+                    logger.info("Particiones de stock anteriores a {} archivadas: {}", antes, archivadas);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Falló el mantenimiento de particiones de stock", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Se publica cuando cambian (o se eliminan) productos: altas y ediciones, cambios de
+ * cantidad por movimientos de stock y borrados. Los oyentes vuelven a leer los productos.
+ *
+ * @param cambio si los productos son nuevos, se editaron o se eliminaron
+ * @param remoto true si el cambio ocurrió en otro nodo y llegó por {@link BusInvalidacion}
+ */
+public record ProductoCambiadoEvent(Collection<Long> productoIds, Cambio cambio, boolean remoto) {
+
+    public enum Cambio { ALTA, EDICION, BAJA }
+
+    public ProductoCambiadoEvent(Collection<Long> productoIds, Cambio cambio) {
+        this(productoIds, cambio, false);
+    }
+
+    public ProductoCambiadoEvent(Collection<Long> productoIds) {
+        this(productoIds, Cambio.EDICION);
+    }
+
+    public static ProductoCambiadoEvent de(Long productoId) {
+        return new ProductoCambiadoEvent(List.of(productoId));
+    }
+
+    public static ProductoCambiadoEvent alta(Long productoId) {
+        return new ProductoCambiadoEvent(List.of(productoId), Cambio.ALTA);
+    }
+
+    public static ProductoCambiadoEvent baja(Long productoId) {
+        return new ProductoCambiadoEvent(List.of(productoId), Cambio.BAJA);
+    }
+}
@@ -0,0 +1,437 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.RangoPrecio;
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.ModoBusqueda;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Índice invertido en memoria para la búsqueda de productos por contenido
+ * (ModoBusqueda.CONTIENE), para no consultar la base de datos en cada filtro del grid.
+ * <p>
+ * Los textos se dividen en palabras y cada palabra guarda la lista de documentos que la
+ * contienen; las categorías son un BitSet por valor. El texto buscado se resuelve con
+ * las palabras del diccionario (exactas, por prefijo o por contenido) y después se
+ * comprueba sobre el texto completo, así que el resultado es el mismo que el del LIKE
+ * en la base de datos. Se mantiene al día con ProductoCambiadoEvent y se reconstruye
+ * completo de forma periódica; mientras no está listo, la consulta va a la base de datos.
+ */
+@Component
+public class ProductoSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductoSearchIndex.class);
+
+    private static final Collator COLLATOR = Collator.getInstance(Locale.forLanguageTag("es"));
+
+    private static final Map<String, Comparator<Producto>> ORDEN = Map.of(
+            "id", Comparator.comparing(Producto::getId),
+            "nombre", Comparator.comparing(Producto::getNombre, Comparator.nullsLast(COLLATOR)),
+            "descripcion", Comparator.comparing(Producto::getDescripcion, Comparator.nullsLast(COLLATOR)),
+            "categoria", Comparator.comparing(Producto::getCategoria, Comparator.nullsLast(Comparator.comparing(Enum::name))),
+            "precio", Comparator.comparingDouble(Producto::getPrecio),
+            "cantidad", Comparator.comparingInt(Producto::getCantidad),
+            "stockMinimo", Comparator.comparingInt(Producto::getStockMinimo),
+            "estaActivo", Comparator.comparing(Producto::isEstaActivo));
+
+    private final ProductoRepositorio productoRepositorio;
+    private final boolean habilitado;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Indice indice;
+    private volatile boolean listo;
+
+    // Productos cambiados mientras se reconstruye; se vuelven a leer al terminar
+    private final Set<Long> cambiosPendientes = ConcurrentHashMap.newKeySet();
+    private volatile boolean reconstruyendo;
+
+    public ProductoSearchIndex(ProductoRepositorio productoRepositorio,
+                               @Value("${app.productos.indice.habilitado:true}") boolean habilitado) {
+        this.productoRepositorio = productoRepositorio;
+        this.habilitado = habilitado;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void alIniciar() {
+        reconstruirProgramado();
+    }
+
+    /**
+     * Reconstrucción completa: recoge cambios hechos fuera de la aplicación y compacta
+     * los documentos de productos editados o eliminados.
+     */
+    @Scheduled(fixedDelayString = "${app.productos.indice.reconstruccion-ms:600000}",
+            initialDelayString = "${app.productos.indice.reconstruccion-ms:600000}")
+    public void reconstruirProgramado() {
+        if (!habilitado) {
+            return;
+        }
+        try {
+            reconstruir();
+        } catch (RuntimeException e) {
+            logger.error("Falló la reconstrucción del índice de productos", e);
+        }
+    }
+
+    public synchronized void reconstruir() {
+        long inicio = System.currentTimeMillis();
+        Indice nuevo = new Indice();
+        reconstruyendo = true;
+        try {
+            productoRepositorio.findAll().forEach(nuevo::agregar);
+
+            lock.writeLock().lock();
+            try {
+                indice = nuevo;
+                reconstruyendo = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            reconstruyendo = false;
+        }
+        listo = true;
+
+        if (!cambiosPendientes.isEmpty()) {
+            List<Long> ids = new ArrayList<>(cambiosPendientes);
+            cambiosPendientes.removeAll(ids);
+            actualizar(ids);
+        }
+        logger.info("Índice de productos reconstruido: {} productos, {} palabras en {} ms",
+                nuevo.documentosVivos(), nuevo.palabras(), System.currentTimeMillis() - inicio);
+    }
+
+    /**
+     * Otro nodo pudo cambiar productos sin que llegara el aviso: se reconstruye todo.
+     */
+    @EventListener
+    public void invalidacionCompleta(InvalidacionCompletaEvent evento) {
+        reconstruirProgramado();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    public void productoCambiado(ProductoCambiadoEvent evento) {
+        if (!habilitado) {
+            return;
+        }
+        if (reconstruyendo) {
+            cambiosPendientes.addAll(evento.productoIds());
+        }
+        if (listo) {
+            actualizar(evento.productoIds());
+        }
+    }
+
+    private void actualizar(Collection<Long> ids) {
+        List<Producto> productos = productoRepositorio.findAllById(ids);
+        lock.writeLock().lock();
+        try {
+            ids.forEach(indice::quitar);
+            productos.forEach(indice::agregar);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return true si el filtro y el orden se pueden resolver en memoria con el mismo
+     * resultado que la consulta a la base de datos
+     */
+    public boolean puedeResolver(FiltroProducto filtro, Pageable pageable) {
+        if (!listo || filtro.modo() != ModoBusqueda.CONTIENE) {
+            return false;
+        }
+        String termino = filtro.searchTerm();
+        if (termino != null && !termino.trim().isEmpty()) {
+            // Comodines o escape de LIKE, o texto sin palabras: se deja a la base de datos
+            if (termino.indexOf('%') >= 0 || termino.indexOf('_') >= 0 || termino.indexOf('\\') >= 0
+                    || palabras(termino.toLowerCase(Locale.ROOT)).isEmpty()) {
+                return false;
+            }
+        }
+        return pageable.getSort().stream().allMatch(o -> ORDEN.containsKey(o.getProperty()));
+    }
+
+    public List<Producto> buscar(FiltroProducto filtro, Pageable pageable) {
+        List<Producto> encontrados = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet docs = indice.buscar(filtro);
+            for (int d = docs.nextSetBit(0); d >= 0; d = docs.nextSetBit(d + 1)) {
+                encontrados.add(indice.documentos.get(d));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Comparator<Producto> orden = null;
+        for (Sort.Order o : pageable.getSort()) {
+            Comparator<Producto> c = o.isAscending() ? ORDEN.get(o.getProperty()) : ORDEN.get(o.getProperty()).reversed();
+            orden = orden == null ? c : orden.thenComparing(c);
+        }
+        Comparator<Producto> porId = ORDEN.get("id");
+        encontrados.sort(orden == null ? porId : orden.thenComparing(porId));
+
+        // Copias: el grid y los formularios modifican los objetos que reciben
+        return encontrados.stream()
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(ProductoSearchIndex::copiar)
+                .toList();
+    }
+
+    /**
+     * Mismas facetas que ProductoRepositorio.calcularFacetas, calculadas en memoria.
+     */
+    public FacetasProducto facetas(FiltroProducto filtro, double[] limitesPrecio) {
+        FiltroProducto sinCategoria = new FiltroProducto(filtro.searchTerm(), null,
+                filtro.minPrecio(), filtro.maxPrecio(), filtro.minCantidad(), filtro.maxCantidad(), filtro.modo());
+        FiltroProducto sinPrecio = new FiltroProducto(filtro.searchTerm(), filtro.categoria(),
+                null, null, filtro.minCantidad(), filtro.maxCantidad(), filtro.modo());
+
+        Map<CategoriaProducto, Long> porCategoria = new EnumMap<>(CategoriaProducto.class);
+        for (CategoriaProducto c : CategoriaProducto.values()) {
+            porCategoria.put(c, 0L);
+        }
+        long[] porBanda = new long[limitesPrecio.length + 1];
+        long stockBajo = 0;
+        long sinStock = 0;
+        BitSet todos;
+
+        lock.readLock().lock();
+        try {
+            BitSet docs = indice.buscar(sinCategoria);
+            for (int d = docs.nextSetBit(0); d >= 0; d = docs.nextSetBit(d + 1)) {
+                CategoriaProducto c = indice.documentos.get(d).getCategoria();
+                if (c != null) {
+                    porCategoria.merge(c, 1L, Long::sum);
+                }
+            }
+            docs = indice.buscar(sinPrecio);
+            for (int d = docs.nextSetBit(0); d >= 0; d = docs.nextSetBit(d + 1)) {
+                double precio = indice.documentos.get(d).getPrecio();
+                int banda = 0;
+                while (banda < limitesPrecio.length && precio >= limitesPrecio[banda]) {
+                    banda++;
+                }
+                porBanda[banda]++;
+            }
+            todos = indice.buscar(filtro);
+            for (int d = todos.nextSetBit(0); d >= 0; d = todos.nextSetBit(d + 1)) {
+                Producto p = indice.documentos.get(d);
+                if (p.getCantidad() < p.getStockMinimo()) {
+                    stockBajo++;
+                }
+                if (p.getCantidad() == 0) {
+                    sinStock++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new FacetasProducto(todos.cardinality(), porCategoria, RangoPrecio.de(limitesPrecio, porBanda), stockBajo, sinStock);
+    }
+
+    public long contar(FiltroProducto filtro) {
+        lock.readLock().lock();
+        try {
+            return indice.buscar(filtro).cardinality();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Palabras de un texto ya en minúsculas: secuencias de letras y dígitos. */
+    private static List<String> palabras(String texto) {
+        List<String> palabras = new ArrayList<>();
+        int inicio = -1;
+        for (int i = 0; i <= texto.length(); i++) {
+            boolean letra = i < texto.length() && Character.isLetterOrDigit(texto.charAt(i));
+            if (letra && inicio < 0) {
+                inicio = i;
+            } else if (!letra && inicio >= 0) {
+                palabras.add(texto.substring(inicio, i));
+                inicio = -1;
+            }
+        }
+        return palabras;
+    }
+
+    private static String minusculas(String texto) {
+        return texto != null ? texto.toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Producto copiar(Producto origen) {
+        Producto copia = new Producto();
+        copia.setId(origen.getId());
+        copia.setNombre(origen.getNombre());
+        copia.setDescripcion(origen.getDescripcion());
+        copia.setCategoria(origen.getCategoria());
+        copia.setPrecio(origen.getPrecio());
+        copia.setCantidad(origen.getCantidad());
+        copia.setStockMinimo(origen.getStockMinimo());
+        copia.setEstaActivo(origen.isEstaActivo());
+        return copia;
+    }
+
+    /** Lista de enteros creciente sin boxing. */
+    private static final class ListaEnteros {
+        private int[] datos = new int[4];
+        private int tamano;
+
+        void agregar(int valor) {
+            if (tamano == datos.length) {
+                datos = Arrays.copyOf(datos, tamano * 2);
+            }
+            datos[tamano++] = valor;
+        }
+
+        void marcar(BitSet destino) {
+            for (int i = 0; i < tamano; i++) {
+                destino.set(datos[i]);
+            }
+        }
+    }
+
+    /**
+     * Datos del índice. Un producto editado recibe un documento nuevo y el anterior
+     * solo se desmarca en vivos; la reconstrucción periódica los compacta.
+     */
+    private static final class Indice {
+        final List<Producto> documentos = new ArrayList<>();
+        final List<String> textos = new ArrayList<>();
+        final Map<Long, Integer> documentoPorId = new HashMap<>();
+        final TreeMap<String, ListaEnteros> listas = new TreeMap<>();
+        final Map<CategoriaProducto, BitSet> porCategoria = new EnumMap<>(CategoriaProducto.class);
+        final BitSet vivos = new BitSet();
+
+        void agregar(Producto producto) {
+            int doc = documentos.size();
+            Producto copia = copiar(producto);
+            documentos.add(copia);
+            String nombre = minusculas(copia.getNombre());
+            String descripcion = minusculas(copia.getDescripcion());
+            // Separador que ninguna búsqueda puede cruzar (no es letra, dígito ni comodín)
+            textos.add(nombre + '\u0000' + descripcion);
+            documentoPorId.put(copia.getId(), doc);
+            vivos.set(doc);
+
+            Set<String> unicas = new LinkedHashSet<>(palabras(nombre));
+            unicas.addAll(palabras(descripcion));
+            for (String palabra : unicas) {
+                listas.computeIfAbsent(palabra, p -> new ListaEnteros()).agregar(doc);
+            }
+            if (copia.getCategoria() != null) {
+                porCategoria.computeIfAbsent(copia.getCategoria(), c -> new BitSet()).set(doc);
+            }
+        }
+
+        void quitar(Long productoId) {
+            Integer doc = documentoPorId.remove(productoId);
+            if (doc != null) {
+                vivos.clear(doc);
+                documentos.set(doc, null);
+                textos.set(doc, null);
+            }
+        }
+
+        int documentosVivos() {
+            return vivos.cardinality();
+        }
+
+        int palabras() {
+            return listas.size();
+        }
+
+        BitSet buscar(FiltroProducto filtro) {
+            BitSet resultado = (BitSet) vivos.clone();
+            if (filtro.categoria() != null) {
+                resultado.and(porCategoria.getOrDefault(filtro.categoria(), new BitSet()));
+            }
+
+            String termino = filtro.searchTerm();
+            boolean conTexto = termino != null && !termino.trim().isEmpty();
+            String patron = conTexto ? termino.toLowerCase(Locale.ROOT) : null;
+            if (conTexto) {
+                resultado.and(candidatos(palabras(patron)));
+            }
+
+            for (int d = resultado.nextSetBit(0); d >= 0; d = resultado.nextSetBit(d + 1)) {
+                Producto p = documentos.get(d);
+                boolean cumple = (!conTexto || textos.get(d).contains(patron))
+                        && (filtro.minPrecio() == null || filtro.minPrecio() <= 0 || p.getPrecio() >= filtro.minPrecio())
+                        && (filtro.maxPrecio() == null || filtro.maxPrecio() <= 0 || p.getPrecio() <= filtro.maxPrecio())
+                        && (filtro.minCantidad() == null || filtro.minCantidad() <= 0 || p.getCantidad() >= filtro.minCantidad())
+                        && (filtro.maxCantidad() == null || filtro.maxCantidad() <= 0 || p.getCantidad() <= filtro.maxCantidad());
+                if (!cumple) {
+                    resultado.clear(d);
+                }
+            }
+            return resultado;
+        }
+
+        /**
+         * Documentos que pueden contener el texto. En "abc def ghi" las palabras del medio
+         * aparecen enteras en el documento, la última es prefijo de una palabra y la
+         * primera puede ser cualquier parte de una; se usa la opción más selectiva.
+         */
+        private BitSet candidatos(List<String> buscadas) {
+            BitSet candidatos = new BitSet();
+            if (buscadas.size() > 2) {
+                ListaEnteros lista = listas.get(buscadas.get(1));
+                if (lista != null) {
+                    lista.marcar(candidatos);
+                }
+            } else if (buscadas.size() == 2) {
+                String prefijo = buscadas.get(1);
+                NavigableMap<String, ListaEnteros> rango = listas.subMap(prefijo, true, prefijo + Character.MAX_VALUE, false);
+                rango.values().forEach(l -> l.marcar(candidatos));
+            } else {
+                String parte = buscadas.getFirst();
+                Set<ListaEnteros> coinciden = new HashSet<>();
+                listas.forEach((palabra, lista) -> {
+                    if (palabra.contains(parte)) {
+                        coinciden.add(lista);
+                    }
+                });
+                coinciden.forEach(l -> l.marcar(candidatos));
+            }
+            return candidatos;
+        }
+    }
+}
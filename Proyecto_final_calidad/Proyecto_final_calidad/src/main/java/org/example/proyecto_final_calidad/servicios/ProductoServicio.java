@@ -1,7 +1,11 @@
 package org.example.proyecto_final_calidad.servicios;
 
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.PaginaProductos;
 import org.example.proyecto_final_calidad.model.CategoriaProducto;
 import org.example.proyecto_final_calidad.model.Producto;
+import org.springframework.data.domain.Pageable;
 
 import java.util.List;
 import java.util.Optional;
@@ -19,4 +23,8 @@ public interface ProductoServicio {
             Integer minCantidad,
             Integer maxCantidad
     );
+    List<Producto> findByFilters(FiltroProducto filtro, Pageable pageable);
+    long countByFilters(FiltroProducto filtro);
+    Optional<FacetasProducto> calcularFacetas(FiltroProducto filtro);
+    PaginaProductos paginarProductos(FiltroProducto filtro, String orden, String cursor, int pagina, int tamano);
 }
@@ -1,22 +1,53 @@
 package org.example.proyecto_final_calidad.servicios;
+import org.example.proyecto_final_calidad.dto.CursorProducto;
+import org.example.proyecto_final_calidad.dto.FacetasProducto;
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.dto.PaginaProductos;
+import org.example.proyecto_final_calidad.dto.ProductoDto;
 import org.example.proyecto_final_calidad.model.CategoriaProducto;
 import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Service
 public class ProductoServicioImpl implements ProductoServicio {
 
+    private static final Logger logger = LoggerFactory.getLogger(ProductoServicioImpl.class);
+
+    // Campos de orden admitidos por la paginación por clave (no nulos en producto)
+    private static final Set<String> CAMPOS_ORDEN = Set.of("id", "nombre", "precio", "cantidad");
+
     private final ProductoRepositorio repositorio;
+    private final LibroStockServicio libroStock;
+    private final ProductoSearchIndex indice;
+    private final ApplicationEventPublisher eventos;
+    private final double[] limitesPrecio;
+    private final int timeoutFacetasMs;
 
     @Autowired
-    public ProductoServicioImpl(ProductoRepositorio repositorio) {
+    public ProductoServicioImpl(ProductoRepositorio repositorio, LibroStockServicio libroStock,
+                                ProductoSearchIndex indice, ApplicationEventPublisher eventos,
+                                @Value("${app.productos.facetas.limites-precio:10,50,100,500,1000}") double[] limitesPrecio,
+                                @Value("${app.productos.facetas.timeout-ms:500}") int timeoutFacetasMs) {
         this.repositorio = repositorio;
+        this.libroStock = libroStock;
+        this.indice = indice;
+        this.eventos = eventos;
+        this.limitesPrecio = limitesPrecio;
+        this.timeoutFacetasMs = timeoutFacetasMs;
     }
 
     @Override
@@ -30,18 +61,71 @@ public class ProductoServicioImpl implements ProductoServicio {
     }
 
     @Override
+    @Transactional
     public Producto save(Producto producto) {
         // Validate product before saving
         validateProduct(producto);
-        return repositorio.save(producto);
+
+        Producto actual = producto.getId() != null ? repositorio.findById(producto.getId()).orElse(null) : null;
+        if (actual == null) {
+            Producto guardado = repositorio.saveAndFlush(producto);
+            libroStock.registrarCantidadProducto(guardado);
+            eventos.publishEvent(ProductoCambiadoEvent.alta(guardado.getId()));
+            return guardado;
+        }
+
+        // La cantidad del formulario puede ser vieja: solo se cambia si quien edita la
+        // modificó, y solo si en la base sigue siendo la que vio al cargar el producto
+        int esperada = producto.cantidadCargada() != null ? producto.cantidadCargada() : actual.getCantidad();
+        if (producto.getCantidad() == esperada) {
+            // Con @DynamicUpdate la cantidad no entra en el UPDATE del resto de los campos
+            producto.setCantidad(actual.getCantidad());
+            Producto guardado = repositorio.save(producto);
+            eventos.publishEvent(ProductoCambiadoEvent.de(guardado.getId()));
+            return guardado;
+        }
+
+        // Con la fila bloqueada ningún movimiento puede cambiar la cantidad antes del
+        // commit, y el AJUSTE del libro se corta en la última secuencia de movimientos
+        int cantidad = repositorio.bloquearCantidad(producto.getId());
+        if (cantidad != esperada) {
+            throw new IllegalArgumentException("La cantidad del producto cambió a " + cantidad
+                    + " mientras se editaba; vuelva a cargarlo");
+        }
+        int reservado = repositorio.findReservado(producto.getId());
+        if (producto.getCantidad() < reservado) {
+            throw new IllegalArgumentException(
+                    "La cantidad no puede ser menor que las unidades reservadas (" + reservado + ")");
+        }
+        Producto guardado = repositorio.saveAndFlush(producto);
+        libroStock.registrarCantidadProducto(guardado);
+        eventos.publishEvent(ProductoCambiadoEvent.de(guardado.getId()));
+        return guardado;
     }
 
     @Override
+    @Transactional
     public void deleteById(Long id) {
-        repositorio.deleteById(id);
+        // Solo se avisa la baja si el producto existía: los contadores la descuentan
+        repositorio.findById(id).ifPresent(producto -> {
+            repositorio.delete(producto);
+            eventos.publishEvent(ProductoCambiadoEvent.baja(id));
+        });
     }
 
     private void validateProduct(Producto producto) {
+        List<String> errors = erroresValidacion(producto);
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Error de validación: " + String.join(", ", errors));
+        }
+    }
+
+    /**
+     * Reglas de validación de un producto; también las usa la importación masiva.
+     *
+     * @return los errores encontrados, vacía si el producto es válido
+     */
+    static List<String> erroresValidacion(Producto producto) {
         List<String> errors = new ArrayList<>();
 
         // Name validation
@@ -73,9 +157,7 @@ public class ProductoServicioImpl implements ProductoServicio {
             errors.add("El Stock Mínimo no puede ser negativo");
         }
 
-        if (!errors.isEmpty()) {
-            throw new IllegalArgumentException("Error de validación: " + String.join(", ", errors));
-        }
+        return errors;
     }
 
     @Override
@@ -97,4 +179,109 @@ public class ProductoServicioImpl implements ProductoServicio {
                 maxCantidad
         );
     }
+
+    @Override
+    public List<Producto> findByFilters(FiltroProducto filtro, Pageable pageable) {
+        if (indice.puedeResolver(filtro, pageable)) {
+            return indice.buscar(filtro, pageable);
+        }
+        return repositorio.findByFilters(filtro, pageable);
+    }
+
+    @Override
+    public long countByFilters(FiltroProducto filtro) {
+        if (indice.puedeResolver(filtro, Pageable.unpaged())) {
+            return indice.contar(filtro);
+        }
+        return repositorio.countByFilters(filtro);
+    }
+
+    /**
+     * Página del catálogo como DTO. Sin cursor se usa la página indicada (con total);
+     * con cursor se sigue desde la posición anterior, con el orden guardado en el cursor,
+     * sin OFFSET ni COUNT, así que las páginas profundas cuestan lo mismo que la primera.
+     *
+     * @param orden "campo" o "campo,asc|desc"; campo entre id, nombre, precio y cantidad
+     */
+    @Override
+    public PaginaProductos paginarProductos(FiltroProducto filtro, String orden, String cursor, int pagina, int tamano) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        if (pagina < 0) {
+            throw new IllegalArgumentException("La página no puede ser negativa");
+        }
+
+        CursorProducto posicion = null;
+        String campo = "id";
+        boolean ascendente = true;
+        if (cursor != null && !cursor.isBlank()) {
+            posicion = CursorProducto.decodificar(cursor);
+            campo = posicion.campo();
+            ascendente = posicion.ascendente();
+            if (!CAMPOS_ORDEN.contains(campo) || !valorValido(campo, posicion.valor())) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        } else if (orden != null && !orden.isBlank()) {
+            String[] partes = orden.split(",");
+            campo = partes[0].trim();
+            if (!CAMPOS_ORDEN.contains(campo)) {
+                throw new IllegalArgumentException("No se puede ordenar por " + campo + " (use " + String.join(", ", CAMPOS_ORDEN) + ")");
+            }
+            ascendente = partes.length < 2 || !"desc".equalsIgnoreCase(partes[1].trim());
+        }
+
+        // Se pide una fila de más para saber si existe una página siguiente
+        int offset = posicion == null ? pagina * tamano : 0;
+        List<ProductoDto> filas = repositorio.findProductos(filtro, campo, ascendente, posicion, offset, tamano + 1);
+        Integer numeroPagina = posicion == null ? pagina : null;
+        Long total = posicion == null ? countByFilters(filtro) : null;
+
+        if (filas.size() <= tamano) {
+            return new PaginaProductos(filas, numeroPagina, total, null);
+        }
+        List<ProductoDto> productos = new ArrayList<>(filas.subList(0, tamano));
+        ProductoDto ultimo = productos.get(tamano - 1);
+        String siguiente = new CursorProducto(campo, ascendente, ultimo.id(), valorOrden(campo, ultimo)).codificar();
+        return new PaginaProductos(productos, numeroPagina, total, siguiente);
+    }
+
+    private static String valorOrden(String campo, ProductoDto producto) {
+        return switch (campo) {
+            case "nombre" -> producto.nombre();
+            case "precio" -> String.valueOf(producto.precio());
+            case "cantidad" -> String.valueOf(producto.cantidad());
+            default -> String.valueOf(producto.id());
+        };
+    }
+
+    private static boolean valorValido(String campo, String valor) {
+        try {
+            switch (campo) {
+                case "precio" -> Double.parseDouble(valor);
+                case "cantidad" -> Integer.parseInt(valor);
+                default -> { }
+            }
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return las facetas del filtro, o vacío si la consulta superó el tiempo máximo
+     * (los resultados siguen disponibles sin facetas)
+     */
+    @Override
+    public Optional<FacetasProducto> calcularFacetas(FiltroProducto filtro) {
+        if (indice.puedeResolver(filtro, Pageable.unpaged())) {
+            return Optional.of(indice.facetas(filtro, limitesPrecio));
+        }
+        try {
+            return Optional.of(repositorio.calcularFacetas(filtro, limitesPrecio, timeoutFacetasMs));
+        } catch (QueryTimeoutException e) {
+            logger.warn("Facetas de productos omitidas: la consulta superó {} ms ({})", timeoutFacetasMs, filtro);
+            return Optional.empty();
+        }
+    }
 }
@@ -0,0 +1,164 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.example.proyecto_final_calidad.dto.Reserva;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reservas de stock guardadas en stock_reserva, con su total por producto en
+ * producto.reservado (ver V1_0_15). La retención se valida en la base con un UPDATE
+ * condicional sobre cantidad - reservado, igual que las salidas, así que una salida
+ * concurrente no puede colarse entre la comprobación y la reserva, y todos los nodos
+ * ven las mismas reservas. El precio es que reservar bloquea la fila del producto hasta
+ * el commit de su transacción (un UPDATE y un INSERT), igual que una salida.
+ */
+@Component
+public class ReservasStock {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReservasStock.class);
+
+    private static final RowMapper<Reserva> RESERVA = (rs, i) -> new Reserva(rs.getString("id"),
+            rs.getLong("producto_id"), rs.getInt("cantidad"), rs.getString("usuario"),
+            rs.getTimestamp("expira").toLocalDateTime());
+
+    // Quien elimina la fila de una reserva descuenta su cantidad de producto.reservado
+    private static final String SQL_LIBERAR_VENCIDAS = """
+            WITH vencidas AS (
+                DELETE FROM stock_reserva WHERE expira <= ?
+                RETURNING producto_id, cantidad
+            ), liberadas AS (
+                UPDATE producto p
+                SET reservado = p.reservado - v.total
+                FROM (SELECT producto_id, SUM(cantidad) AS total FROM vencidas GROUP BY producto_id) v
+                WHERE p.id = v.producto_id
+            )
+            SELECT COUNT(*) FROM vencidas
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Duration vigencia;
+
+    private final AtomicInteger activas = new AtomicInteger();
+    private Counter rechazadas;
+    private Counter vencidas;
+
+    public ReservasStock(JdbcTemplate jdbcTemplate,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${app.stock.reservas.vigencia-segundos:900}") long vigenciaSegundos) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.vigencia = Duration.ofSeconds(vigenciaSegundos);
+    }
+
+    @PostConstruct
+    void iniciar() {
+        rechazadas = Counter.builder("stock.reservas.rechazadas")
+                .description("Reservas rechazadas por falta de stock disponible")
+                .register(meterRegistry);
+        vencidas = Counter.builder("stock.reservas.vencidas")
+                .description("Reservas liberadas por vencimiento")
+                .register(meterRegistry);
+        Gauge.builder("stock.reservas.activas", activas, AtomicInteger::get)
+                .description("Reservas de stock vigentes en todos los nodos, según el último barrido")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reserva unidades si la cantidad del producto menos lo ya reservado alcanza. La
+     * comprobación y la retención son un solo UPDATE condicional, en la misma
+     * transacción que guarda la reserva.
+     */
+    public Reserva reservar(Long productoId, int cantidad, String usuario) {
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor que cero");
+        }
+        LocalDateTime ahora = LocalDateTime.now();
+        Reserva reserva = new Reserva(UUID.randomUUID().toString(), productoId, cantidad, usuario, ahora.plus(vigencia));
+        return transactionTemplate.execute(status -> {
+            int filas = jdbcTemplate.update(
+                    "UPDATE producto SET reservado = reservado + ? WHERE id = ? AND cantidad - reservado >= ?",
+                    cantidad, productoId, cantidad);
+            if (filas == 0) {
+                Integer existe = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM producto WHERE id = ?", Integer.class, productoId);
+                if (existe == null || existe == 0) {
+                    throw new IllegalArgumentException("Producto no encontrado");
+                }
+                rechazadas.increment();
+                throw new IllegalArgumentException("No hay suficiente stock disponible para reservar");
+            }
+            jdbcTemplate.update(
+                    "INSERT INTO stock_reserva (id, producto_id, cantidad, usuario, creada, expira) VALUES (?, ?, ?, ?, ?, ?)",
+                    reserva.id(), productoId, cantidad, usuario, Timestamp.valueOf(ahora), Timestamp.valueOf(reserva.expira()));
+            return reserva;
+        });
+    }
+
+    /**
+     * Elimina la reserva y devuelve sus unidades a lo disponible, dentro de la
+     * transacción actual. Si otra transacción la está confirmando o liberando, espera a
+     * que termine y después no la encuentra. Se toma aunque haya vencido; el llamador
+     * decide si la rechaza (y revierte).
+     *
+     * @return la reserva eliminada, vacía si no existía
+     */
+    public Optional<Reserva> tomar(String id) {
+        List<Reserva> eliminadas = jdbcTemplate.query(
+                "DELETE FROM stock_reserva WHERE id = ? RETURNING id, producto_id, cantidad, usuario, expira", RESERVA, id);
+        if (eliminadas.isEmpty()) {
+            return Optional.empty();
+        }
+        Reserva reserva = eliminadas.getFirst();
+        jdbcTemplate.update("UPDATE producto SET reservado = reservado - ? WHERE id = ?",
+                reserva.cantidad(), reserva.productoId());
+        return Optional.of(reserva);
+    }
+
+    /**
+     * Libera una reserva sin mover stock.
+     *
+     * @return true si la reserva existía
+     */
+    public boolean liberar(String id) {
+        Boolean liberada = transactionTemplate.execute(status -> tomar(id).isPresent());
+        return Boolean.TRUE.equals(liberada);
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.reservas.barrido-ms:10000}")
+    public void liberarVencidas() {
+        try {
+            Integer liberadas = jdbcTemplate.queryForObject(SQL_LIBERAR_VENCIDAS, Integer.class,
+                    Timestamp.valueOf(LocalDateTime.now()));
+            Integer vigentes = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM stock_reserva", Integer.class);
+            activas.set(vigentes != null ? vigentes : 0);
+            if (liberadas != null && liberadas > 0) {
+                vencidas.increment(liberadas);
+                logger.info("Reservas de stock vencidas liberadas: {}", liberadas);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("No se pudieron liberar las reservas vencidas", e);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.ResultadoReconstruccion;
+import org.example.proyecto_final_calidad.dto.ResumenDiario;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Resúmenes diarios de movimientos de stock (tabla stock_resumen_diario).
+ */
+public interface ResumenStockServicio {
+
+    /**
+     * Suma movimientos al resumen del día. Debe llamarse dentro de la transacción
+     * que inserta los movimientos, para que el resumen se confirme con ellos.
+     */
+    void acumular(Long productoId, LocalDate dia, TipoMovimiento tipo, int movimientos, long cantidad);
+
+    /**
+     * @param productoId producto (opcional)
+     * @param tipo tipo de movimiento (opcional)
+     * @return resúmenes en el rango de días, ambos inclusive, ordenados por día y producto
+     */
+    List<ResumenDiario> obtenerResumen(LocalDate desde, LocalDate hasta, Long productoId, TipoMovimiento tipo);
+
+    /**
+     * Recalcula los resúmenes del rango de días desde la tabla stock, por bloques en paralelo.
+     *
+     * @throws IllegalArgumentException si el rango supera el máximo de días por llamada
+     * (app.stock.resumen.max-dias) o incluye días cuyos movimientos ya se archivaron
+     * (sus resúmenes son lo único que queda de esos días)
+     */
+    ResultadoReconstruccion reconstruir(LocalDate desde, LocalDate hasta);
+}
@@ -0,0 +1,187 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.proyecto_final_calidad.dto.ResultadoReconstruccion;
+import org.example.proyecto_final_calidad.dto.ResumenDiario;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class ResumenStockServicioImpl implements ResumenStockServicio {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumenStockServicioImpl.class);
+
+    private static final String SQL_ACUMULAR = """
+            INSERT INTO stock_resumen_diario (producto_id, dia, tipo, movimientos, cantidad)
+            VALUES (?, ?, ?, ?, ?)
+            ON CONFLICT (producto_id, dia, tipo) DO UPDATE
+            SET movimientos = stock_resumen_diario.movimientos + EXCLUDED.movimientos,
+                cantidad = stock_resumen_diario.cantidad + EXCLUDED.cantidad
+            """;
+
+    private static final String SQL_RECONSTRUIR = """
+            INSERT INTO stock_resumen_diario (producto_id, dia, tipo, movimientos, cantidad)
+            SELECT producto_id, fecha::date, tipo, COUNT(*), SUM(cantidad)
+            FROM stock
+            WHERE fecha >= ? AND fecha < ? AND tipo IS NOT NULL
+            GROUP BY producto_id, fecha::date, tipo
+            ON CONFLICT (producto_id, dia, tipo) DO UPDATE
+            SET movimientos = EXCLUDED.movimientos, cantidad = EXCLUDED.cantidad
+            """;
+
+    // Día siguiente al último mes de stock archivado por archivar_particiones_stock (V1_0_6)
+    private static final String SQL_PRIMER_DIA_EN_LINEA = """
+            SELECT MAX(to_date(right(c.relname, 7), 'YYYY_MM') + interval '1 month')::date
+            FROM pg_class c
+            JOIN pg_namespace n ON n.oid = c.relnamespace
+            WHERE n.nspname = 'archivo' AND c.relname ~ '^stock_p[0-9]{4}_[0-9]{2}$'
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int diasPorBloque;
+    private final int hilos;
+    private final int maxDias;
+
+    private ExecutorService ejecutor;
+
+    public ResumenStockServicioImpl(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    @Value("${app.stock.resumen.dias-por-bloque:7}") int diasPorBloque,
+                                    @Value("${app.stock.resumen.hilos:4}") int hilos,
+                                    @Value("${app.stock.resumen.max-dias:92}") int maxDias) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.diasPorBloque = diasPorBloque;
+        this.hilos = hilos;
+        this.maxDias = maxDias;
+    }
+
+    @PostConstruct
+    void iniciarEjecutor() {
+        AtomicInteger contador = new AtomicInteger();
+        ejecutor = Executors.newFixedThreadPool(hilos, r -> {
+            Thread hilo = new Thread(r, "resumen-stock-" + contador.incrementAndGet());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+    }
+
+    @PreDestroy
+    void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    @Override
+    public void acumular(Long productoId, LocalDate dia, TipoMovimiento tipo, int movimientos, long cantidad) {
+        jdbcTemplate.update(SQL_ACUMULAR, productoId, Date.valueOf(dia), tipo.name(), movimientos, cantidad);
+    }
+
+    @Override
+    public List<ResumenDiario> obtenerResumen(LocalDate desde, LocalDate hasta, Long productoId, TipoMovimiento tipo) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT producto_id, dia, tipo, movimientos, cantidad FROM stock_resumen_diario WHERE dia BETWEEN ? AND ?");
+        List<Object> parametros = new ArrayList<>(List.of(Date.valueOf(desde), Date.valueOf(hasta)));
+        if (productoId != null) {
+            sql.append(" AND producto_id = ?");
+            parametros.add(productoId);
+        }
+        if (tipo != null) {
+            sql.append(" AND tipo = ?");
+            parametros.add(tipo.name());
+        }
+        sql.append(" ORDER BY dia, producto_id, tipo");
+
+        return jdbcTemplate.query(sql.toString(), (rs, i) -> new ResumenDiario(
+                rs.getLong("producto_id"),
+                rs.getDate("dia").toLocalDate(),
+                TipoMovimiento.valueOf(rs.getString("tipo")),
+                rs.getLong("movimientos"),
+                rs.getLong("cantidad")), parametros.toArray());
+    }
+
+    /**
+     * Cada bloque de días se recalcula en su propia transacción (borra y vuelve a
+     * insertar sus resúmenes), así que los bloques son independientes y pueden ir
+     * en paralelo. Pensado para días cerrados: un movimiento confirmado mientras se
+     * reconstruye su mismo día puede quedar fuera del resumen. Los días de particiones
+     * archivadas se rechazan: borrar sus resúmenes no tendría de dónde recalcularlos.
+     * La llamada espera a todos los bloques, así que el rango se limita a maxDias días;
+     * un período más largo se reconstruye en varias llamadas.
+     */
+    @Override
+    public ResultadoReconstruccion reconstruir(LocalDate desde, LocalDate hasta) {
+        if (desde.isAfter(hasta)) {
+            throw new IllegalArgumentException("La fecha desde no puede ser posterior a la fecha hasta");
+        }
+        if (ChronoUnit.DAYS.between(desde, hasta) >= maxDias) {
+            throw new IllegalArgumentException("El rango no puede superar " + maxDias
+                    + " días por llamada; divídalo en varias reconstrucciones");
+        }
+        verificarEnLinea(desde);
+        long inicio = System.currentTimeMillis();
+
+        List<CompletableFuture<Integer>> bloques = new ArrayList<>();
+        for (LocalDate d = desde; !d.isAfter(hasta); d = d.plusDays(diasPorBloque)) {
+            LocalDate primerDia = d;
+            LocalDate ultimoDia = d.plusDays(diasPorBloque - 1L).isAfter(hasta) ? hasta : d.plusDays(diasPorBloque - 1L);
+            bloques.add(CompletableFuture.supplyAsync(() -> reconstruirBloque(primerDia, ultimoDia), ejecutor));
+        }
+
+        long filas = 0;
+        try {
+            for (CompletableFuture<Integer> bloque : bloques) {
+                filas += bloque.join();
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+        ResultadoReconstruccion resultado = new ResultadoReconstruccion(bloques.size(), filas, System.currentTimeMillis() - inicio);
+        logger.info("Resúmenes diarios de stock reconstruidos de {} a {}: {}", desde, hasta, resultado);
+        return resultado;
+    }
+
+    private void verificarEnLinea(LocalDate desde) {
+        Date primerDia = jdbcTemplate.queryForObject(SQL_PRIMER_DIA_EN_LINEA, Date.class);
+        if (primerDia != null && desde.isBefore(primerDia.toLocalDate())) {
+            throw new IllegalArgumentException("Los movimientos anteriores a " + primerDia.toLocalDate()
+                    + " están archivados; la reconstrucción debe empezar en esa fecha o después");
+        }
+    }
+
+    private int reconstruirBloque(LocalDate primerDia, LocalDate ultimoDia) {
+        Integer filas = transactionTemplate.execute(status -> {
+            // Se vuelve a comprobar por si el mantenimiento archivó un mes entretanto
+            verificarEnLinea(primerDia);
+            jdbcTemplate.update("DELETE FROM stock_resumen_diario WHERE dia BETWEEN ? AND ?",
+                    Date.valueOf(primerDia), Date.valueOf(ultimoDia));
+            // Rango semiabierto sobre fecha para aprovechar la poda de particiones
+            return jdbcTemplate.update(SQL_RECONSTRUIR,
+                    Timestamp.valueOf(primerDia.atStartOfDay()),
+                    Timestamp.valueOf(ultimoDia.plusDays(1).atStartOfDay()));
+        });
+        return filas != null ? filas : 0;
+    }
+}
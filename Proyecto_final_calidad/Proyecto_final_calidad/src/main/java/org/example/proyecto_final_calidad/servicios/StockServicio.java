@@ -1,15 +1,37 @@
 package org.example.proyecto_final_calidad.servicios;
 
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.dto.PaginaHistorial;
+import org.example.proyecto_final_calidad.dto.Reserva;
+import org.example.proyecto_final_calidad.dto.ResultadoMovimiento;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
 import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.model.Stock;
 import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface StockServicio {
     void registrarMovimiento(Producto producto, int cantidad, TipoMovimiento tipo, String usuario);
+    List<ResultadoMovimiento> registrarMovimientos(List<SolicitudMovimiento> movimientos);
+
+    /**
+     * Igual que {@link #registrarMovimientos(List)}, pero con la fecha de cada movimiento.
+     * Solo para movimientos ya fechados por la aplicación (diario write-behind); la
+     * carga masiva de la API siempre usa la hora de registro.
+     */
+    List<ResultadoMovimiento> registrarMovimientos(List<SolicitudMovimiento> movimientos, List<LocalDateTime> fechas);
     List<Stock> obtenerHistorialPorProducto(Long productoId);
     List<Stock> obtenerHistorial();
     List<Stock> filtrarMovimientos(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin);
+    PaginaHistorial paginarMovimientos(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                       String cursor, int tamano);
+    List<MovimientoStockDto> filtrarMovimientos(FiltroStock filtro, Pageable pageable);
+    long contarMovimientos(FiltroStock filtro);
+    Reserva reservar(Long productoId, int cantidad, String usuario);
+    void confirmarReserva(String reservaId, String usuario);
+    void liberarReserva(String reservaId);
 }
@@ -1,15 +1,38 @@
 package org.example.proyecto_final_calidad.servicios;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.example.proyecto_final_calidad.dto.CursorHistorial;
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.dto.PaginaHistorial;
+import org.example.proyecto_final_calidad.dto.Reserva;
+import org.example.proyecto_final_calidad.dto.ResultadoMovimiento;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
 import org.example.proyecto_final_calidad.model.Producto;
 import org.example.proyecto_final_calidad.model.Stock;
 import org.example.proyecto_final_calidad.model.TipoMovimiento;
 import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
 import org.example.proyecto_final_calidad.repositorio.StockRepositorio;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @Service
 public class StockServicioImpl implements StockServicio {
@@ -20,26 +43,253 @@ public class StockServicioImpl implements StockServicio {
     @Autowired
     private StockRepositorio stockRepositorio;
 
+    @Autowired
+    private LibroStockServicio libroStock;
+
+    @Autowired
+    private ResumenStockServicio resumenStock;
+
+    @Autowired
+    private ReservasStock reservasStock;
+
+    @Autowired
+    private ApplicationEventPublisher eventos;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<TipoMovimiento, Counter> ajustesAplicados = new EnumMap<>(TipoMovimiento.class);
+    private final Map<TipoMovimiento, Counter> ajustesRechazados = new EnumMap<>(TipoMovimiento.class);
+    private Timer tiempoAjuste;
+
+    @PostConstruct
+    void registrarMetricas() {
+        for (TipoMovimiento tipo : TipoMovimiento.values()) {
+            ajustesAplicados.put(tipo, Counter.builder("stock.ajuste.aplicados")
+                    .description("Movimientos de stock aplicados")
+                    .tag("tipo", tipo.name())
+                    .register(meterRegistry));
+            ajustesRechazados.put(tipo, Counter.builder("stock.ajuste.rechazados")
+                    .description("Ajustes cuyo UPDATE condicional no afectó filas (stock insuficiente o concurrencia)")
+                    .tag("tipo", tipo.name())
+                    .register(meterRegistry));
+        }
+        tiempoAjuste = Timer.builder("stock.ajuste.tiempo")
+                .description("Duración del UPDATE condicional sobre producto.cantidad")
+                .register(meterRegistry);
+    }
+
     @Override
+    @Transactional
     public void registrarMovimiento(Producto producto, int cantidad, TipoMovimiento tipo, String usuario) {
-        if (tipo == TipoMovimiento.SALIDA && producto.getCantidad() < cantidad) {
-            throw new IllegalArgumentException("No hay suficiente stock disponible");
+        if (cantidad <= 0) {
+            throw new IllegalArgumentException("La cantidad debe ser mayor que cero");
+        }
+
+        // El ajuste se aplica en la base de datos con un único UPDATE condicional:
+        // no se lee la cantidad actual en Java, así que no hay actualizaciones perdidas
+        // y el bloqueo de fila dura solo lo que dura la sentencia.
+        // Una salida normal no puede tomar unidades retenidas por reservas vigentes
+        // (producto.reservado, evaluado en el mismo UPDATE)
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        int filas = tipo == TipoMovimiento.ENTRADA
+                ? productoRepositorio.incrementarCantidad(producto.getId(), cantidad)
+                : productoRepositorio.descontarCantidad(producto.getId(), cantidad);
+        muestra.stop(tiempoAjuste);
+
+        if (filas == 0) {
+            // Igual que ReservasStock.reservar: sin filas, el producto no existe o el stock no alcanza
+            if (tipo == TipoMovimiento.SALIDA && productoRepositorio.existsById(producto.getId())) {
+                ajustesRechazados.get(tipo).increment();
+                throw new IllegalArgumentException("No hay suficiente stock disponible");
+            }
+            throw new IllegalArgumentException("Producto no encontrado");
         }
+        ajustesAplicados.get(tipo).increment();
 
-        int nuevaCantidad = tipo == TipoMovimiento.ENTRADA
-                ? producto.getCantidad() + cantidad
-                : producto.getCantidad() - cantidad;
+        // Mantiene coherente la instancia del llamador con el valor que dejó el UPDATE. La
+        // fila sigue bloqueada por esta transacción, así que nadie la cambió después; la
+        // cantidad de la instancia puede ser anterior a otros movimientos
+        producto.setCantidad(productoRepositorio.findCantidad(producto.getId()).orElseThrow());
 
-        producto.setCantidad(nuevaCantidad);
-        productoRepositorio.save(producto);
+        guardarMovimiento(producto.getId(), cantidad, tipo, usuario);
+    }
 
+    private void guardarMovimiento(Long productoId, int cantidad, TipoMovimiento tipo, String usuario) {
         Stock movimiento = new Stock();
-        movimiento.setProducto(producto);
+        movimiento.setProducto(productoRepositorio.getReferenceById(productoId));
         movimiento.setCantidad(cantidad);
         movimiento.setTipo(tipo);
         movimiento.setFecha(LocalDateTime.now());
         movimiento.setUsuario(usuario);
+        movimiento.setSecuencia(productoRepositorio.reservarSecuencias(productoId, 1));
         stockRepositorio.save(movimiento);
+        libroStock.movimientosRegistrados(productoId, 1, movimiento.getSecuencia());
+        resumenStock.acumular(productoId, movimiento.getFecha().toLocalDate(), tipo, 1, cantidad);
+        eventos.publishEvent(ProductoCambiadoEvent.de(productoId));
+    }
+
+    @Override
+    public Reserva reservar(Long productoId, int cantidad, String usuario) {
+        // ReservasStock usa su propia transacción corta: un UPDATE condicional y un INSERT
+        return reservasStock.reservar(productoId, cantidad, usuario);
+    }
+
+    @Override
+    @Transactional
+    public void confirmarReserva(String reservaId, String usuario) {
+        // El DELETE bloquea la fila de la reserva: una segunda confirmación espera y luego
+        // no encuentra nada. Si algo falla después, el rollback deja la reserva vigente.
+        Reserva reserva = reservasStock.tomar(reservaId)
+                .filter(r -> !r.vencida(LocalDateTime.now()))
+                .orElseThrow(() -> new IllegalArgumentException("Reserva no encontrada o vencida"));
+
+        // tomar() ya restó esta reserva de producto.reservado, que ahora es el total de las
+        // demás: la salida solo puede usar sus propias unidades y las libres
+        int filas = productoRepositorio.descontarCantidad(reserva.productoId(), reserva.cantidad());
+        if (filas == 0) {
+            ajustesRechazados.get(TipoMovimiento.SALIDA).increment();
+            throw new IllegalArgumentException("No hay suficiente stock disponible");
+        }
+        ajustesAplicados.get(TipoMovimiento.SALIDA).increment();
+        guardarMovimiento(reserva.productoId(), reserva.cantidad(), TipoMovimiento.SALIDA,
+                usuario != null ? usuario : reserva.usuario());
+    }
+
+    @Override
+    public void liberarReserva(String reservaId) {
+        if (!reservasStock.liberar(reservaId)) {
+            throw new IllegalArgumentException("Reserva no encontrada o vencida");
+        }
+    }
+
+    @Override
+    @Transactional
+    public List<ResultadoMovimiento> registrarMovimientos(List<SolicitudMovimiento> movimientos) {
+        return registrarMovimientos(movimientos, null);
+    }
+
+    @Override
+    @Transactional
+    public List<ResultadoMovimiento> registrarMovimientos(List<SolicitudMovimiento> movimientos, List<LocalDateTime> fechas) {
+        if (fechas != null && fechas.size() != movimientos.size()) {
+            throw new IllegalArgumentException("Debe haber una fecha por movimiento");
+        }
+        ResultadoMovimiento[] resultados = new ResultadoMovimiento[movimientos.size()];
+
+        // Agrupa por producto conservando el orden de llegada. El TreeMap recorre los
+        // productos por ID, de modo que dos cargas concurrentes bloquean filas en el
+        // mismo orden y no pueden entrar en deadlock.
+        Map<Long, List<Integer>> indicesPorProducto = new TreeMap<>();
+        for (int i = 0; i < movimientos.size(); i++) {
+            SolicitudMovimiento m = movimientos.get(i);
+            if (m == null || m.productoId() == null || m.tipo() == null) {
+                resultados[i] = ResultadoMovimiento.fallo(i, m != null ? m.productoId() : null, "Movimiento incompleto");
+            } else if (m.cantidad() <= 0) {
+                resultados[i] = ResultadoMovimiento.fallo(i, m.productoId(), "La cantidad debe ser mayor que cero");
+            } else {
+                indicesPorProducto.computeIfAbsent(m.productoId(), id -> new ArrayList<>()).add(i);
+            }
+        }
+
+        Map<Long, Integer> existencias = new HashMap<>();
+        if (!indicesPorProducto.isEmpty()) {
+            for (Object[] fila : productoRepositorio.findDisponiblesByIdIn(indicesPorProducto.keySet())) {
+                existencias.put((Long) fila[0], ((Number) fila[1]).intValue());
+            }
+        }
+
+        LocalDateTime fecha = LocalDateTime.now();
+        List<Stock> nuevos = new ArrayList<>();
+
+        for (Map.Entry<Long, List<Integer>> entrada : indicesPorProducto.entrySet()) {
+            Long productoId = entrada.getKey();
+            Integer disponible = existencias.get(productoId);
+            if (disponible == null) {
+                for (int i : entrada.getValue()) {
+                    resultados[i] = ResultadoMovimiento.fallo(i, productoId, "Producto no encontrado");
+                }
+                continue;
+            }
+
+            // Simula los movimientos en orden para decidir cuáles caben en el stock actual,
+            // sin tocar las unidades retenidas por reservas
+            int saldo = disponible;
+            int neto = 0;
+            List<Integer> aceptados = new ArrayList<>();
+            for (int i : entrada.getValue()) {
+                SolicitudMovimiento m = movimientos.get(i);
+                if (saldo + m.delta() < 0) {
+                    ajustesRechazados.get(m.tipo()).increment();
+                    resultados[i] = ResultadoMovimiento.fallo(i, productoId, "No hay suficiente stock disponible");
+                } else {
+                    saldo += m.delta();
+                    neto += m.delta();
+                    aceptados.add(i);
+                }
+            }
+            if (aceptados.isEmpty()) {
+                continue;
+            }
+
+            // Un solo UPDATE condicional por producto con el cambio neto del lote; vuelve a
+            // comprobar lo reservado por si cambió desde la lectura
+            if (productoRepositorio.ajustarCantidad(productoId, neto) == 0) {
+                for (int i : aceptados) {
+                    ajustesRechazados.get(movimientos.get(i).tipo()).increment();
+                    resultados[i] = ResultadoMovimiento.fallo(i, productoId,
+                            "El stock cambió durante la carga; no hay suficiente stock disponible");
+                }
+                continue;
+            }
+
+            // Secuencias consecutivas para los movimientos aceptados, con la fila ya bloqueada
+            long secuencia = productoRepositorio.reservarSecuencias(productoId, aceptados.size()) - aceptados.size();
+            Producto referencia = productoRepositorio.getReferenceById(productoId);
+            for (int i : aceptados) {
+                SolicitudMovimiento m = movimientos.get(i);
+                Stock movimiento = new Stock();
+                movimiento.setProducto(referencia);
+                movimiento.setCantidad(m.cantidad());
+                movimiento.setTipo(m.tipo());
+                movimiento.setFecha(fechas != null ? fechas.get(i) : fecha);
+                movimiento.setUsuario(m.usuario());
+                movimiento.setSecuencia(++secuencia);
+                nuevos.add(movimiento);
+                ajustesAplicados.get(m.tipo()).increment();
+                resultados[i] = ResultadoMovimiento.exito(i, productoId);
+            }
+        }
+
+        // Los INSERT se envían en lotes JDBC (ver hibernate.jdbc.batch_size)
+        stockRepositorio.saveAll(nuevos);
+
+        // Se avisa al libro una vez por producto con la última secuencia del lote
+        // y se acumula un solo upsert de resumen por (producto, día, tipo), en orden fijo
+        // para que dos cargas concurrentes no se bloqueen en orden cruzado
+        record ClaveResumen(Long productoId, LocalDate dia, TipoMovimiento tipo) {
+        }
+        Map<Long, int[]> porProducto = new TreeMap<>();
+        Map<Long, Long> ultimoPorProducto = new HashMap<>();
+        Map<ClaveResumen, long[]> porResumen = new TreeMap<>(Comparator.comparing(ClaveResumen::productoId)
+                .thenComparing(ClaveResumen::dia).thenComparing(ClaveResumen::tipo));
+        for (Stock s : nuevos) {
+            Long productoId = s.getProducto().getId();
+            porProducto.computeIfAbsent(productoId, id -> new int[1])[0]++;
+            ultimoPorProducto.merge(productoId, s.getSecuencia(), Long::max);
+            long[] totales = porResumen.computeIfAbsent(
+                    new ClaveResumen(productoId, s.getFecha().toLocalDate(), s.getTipo()), k -> new long[2]);
+            totales[0]++;
+            totales[1] += s.getCantidad();
+        }
+        porProducto.forEach((productoId, n) ->
+                libroStock.movimientosRegistrados(productoId, n[0], ultimoPorProducto.get(productoId)));
+        porResumen.forEach((clave, totales) ->
+                resumenStock.acumular(clave.productoId(), clave.dia(), clave.tipo(), (int) totales[0], totales[1]));
+        if (!porProducto.isEmpty()) {
+            eventos.publishEvent(new ProductoCambiadoEvent(List.copyOf(porProducto.keySet())));
+        }
+        return Arrays.asList(resultados);
     }
 
     @Override
@@ -57,4 +307,44 @@ public class StockServicioImpl implements StockServicio {
         return stockRepositorio.findByFilters(productoId, tipo, fechaInicio, fechaFin);
     }
 
+    @Override
+    public List<MovimientoStockDto> filtrarMovimientos(FiltroStock filtro, Pageable pageable) {
+        return stockRepositorio.findMovimientos(filtro, pageable);
+    }
+
+    @Override
+    public long contarMovimientos(FiltroStock filtro) {
+        return stockRepositorio.countByFilters(filtro);
+    }
+
+    @Override
+    public PaginaHistorial paginarMovimientos(Long productoId, TipoMovimiento tipo, LocalDateTime fechaInicio, LocalDateTime fechaFin,
+                                              String cursor, int tamano) {
+        if (tamano <= 0) {
+            throw new IllegalArgumentException("El tamaño de página debe ser mayor que cero");
+        }
+        CursorHistorial posicion = cursor != null && !cursor.isBlank() ? CursorHistorial.decodificar(cursor) : null;
+
+        // Se pide una fila de más para saber si existe una página siguiente
+        List<MovimientoStockDto> filas;
+        if (productoId == null && tipo == null && fechaInicio == null && fechaFin == null) {
+            PageRequest limite = PageRequest.of(0, tamano + 1);
+            filas = posicion == null
+                    ? stockRepositorio.findMovimientos(limite)
+                    : stockRepositorio.findMovimientosDespuesDe(posicion.fecha(), posicion.id(), limite);
+        } else {
+            filas = stockRepositorio.findMovimientos(new FiltroStock(productoId, tipo, fechaInicio, fechaFin),
+                    posicion != null ? posicion.fecha() : null,
+                    posicion != null ? posicion.id() : null,
+                    tamano + 1);
+        }
+
+        if (filas.size() <= tamano) {
+            return new PaginaHistorial(filas, null);
+        }
+        List<MovimientoStockDto> pagina = filas.subList(0, tamano);
+        MovimientoStockDto ultimo = pagina.get(tamano - 1);
+        return new PaginaHistorial(new ArrayList<>(pagina), new CursorHistorial(ultimo.fecha(), ultimo.id()).codificar());
+    }
+
 }
@@ -0,0 +1,14 @@
+package org.example.proyecto_final_calidad.servicios;
+
+/**
+ * Se publica cuando se revoca un token JWT antes de su expiración.
+ *
+ * @param jti identificador del token revocado
+ * @param remoto true si la revocación ocurrió en otro nodo y llegó por {@link BusInvalidacion}
+ */
+public record TokenRevocadoEvent(String jti, boolean remoto) {
+
+    public TokenRevocadoEvent(String jti) {
+        this(jti, false);
+    }
+}
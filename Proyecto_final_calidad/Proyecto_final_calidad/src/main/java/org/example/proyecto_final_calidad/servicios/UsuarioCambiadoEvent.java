@@ -0,0 +1,18 @@
+package org.example.proyecto_final_calidad.servicios;
+
+/**
+ * Se publica cuando se crea o modifica un usuario (datos, rol, contraseña o estado).
+ *
+ * @param alta true si el usuario es nuevo
+ * @param remoto true si el cambio ocurrió en otro nodo y llegó por {@link BusInvalidacion}
+ */
+public record UsuarioCambiadoEvent(Long usuarioId, String username, boolean alta, boolean remoto) {
+
+    public UsuarioCambiadoEvent(Long usuarioId, String username, boolean alta) {
+        this(usuarioId, username, alta, false);
+    }
+
+    public UsuarioCambiadoEvent(Long usuarioId, String username) {
+        this(usuarioId, username, false);
+    }
+}
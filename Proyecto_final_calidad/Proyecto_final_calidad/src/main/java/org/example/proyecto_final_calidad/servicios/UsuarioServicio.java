@@ -0,0 +1,11 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.model.User;
+
+public interface UsuarioServicio {
+
+    /**
+     * Guarda el usuario y avisa del cambio a las cachés de este y los demás nodos.
+     */
+    User save(User user);
+}
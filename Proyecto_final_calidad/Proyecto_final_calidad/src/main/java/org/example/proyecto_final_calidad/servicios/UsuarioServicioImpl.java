@@ -0,0 +1,28 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.model.User;
+import org.example.proyecto_final_calidad.repositorio.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class UsuarioServicioImpl implements UsuarioServicio {
+
+    private final UserRepository repositorio;
+    private final ApplicationEventPublisher eventos;
+
+    public UsuarioServicioImpl(UserRepository repositorio, ApplicationEventPublisher eventos) {
+        this.repositorio = repositorio;
+        this.eventos = eventos;
+    }
+
+    @Override
+    @Transactional
+    public User save(User user) {
+        boolean alta = user.getId() == null;
+        User guardado = repositorio.save(user);
+        eventos.publishEvent(new UsuarioCambiadoEvent(guardado.getId(), guardado.getUsername(), alta));
+        return guardado;
+    }
+}
@@ -0,0 +1,15 @@
+-- V1.0.10__create_producto_importacion.sql
+-- Tabla de paso de la importación masiva de productos. Cada lote se carga con COPY,
+-- se vuelca a producto en la misma transacción y se borra al confirmar, así que no
+-- necesita WAL: si el servidor cae solo se pierden filas de lotes sin confirmar.
+CREATE UNLOGGED TABLE IF NOT EXISTS producto_importacion (
+    trabajo VARCHAR(36) NOT NULL,
+    linea INT NOT NULL,
+    nombre VARCHAR(255) NOT NULL,
+    descripcion VARCHAR(500),
+    categoria VARCHAR(255),
+    precio DECIMAL(10,2) NOT NULL,
+    cantidad INT NOT NULL,
+    stock_minimo INT NOT NULL,
+    PRIMARY KEY (trabajo, linea)
+);
@@ -0,0 +1,5 @@
+-- V1.0.11__users_password_longitud.sql
+-- Los hashes llevan el prefijo del algoritmo ({bcrypt}, {pbkdf2@SpringSecurity_v5_8}) y
+-- PBKDF2 ocupa más de 120 caracteres: se amplía la columna también en la auditoría.
+ALTER TABLE users ALTER COLUMN password TYPE VARCHAR(255);
+ALTER TABLE au_users ALTER COLUMN password TYPE VARCHAR(255);
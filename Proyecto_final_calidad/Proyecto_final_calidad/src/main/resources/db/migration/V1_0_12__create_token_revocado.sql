@@ -0,0 +1,9 @@
+-- V1.0.12__create_token_revocado.sql
+-- Identificadores (jti) de tokens JWT revocados antes de expirar. Cada nodo los carga en
+-- un filtro de Bloom en memoria; las filas se purgan cuando el token ya expiró.
+CREATE TABLE IF NOT EXISTS token_revocado (
+    jti VARCHAR(64) PRIMARY KEY,
+    expira TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_token_revocado_expira ON token_revocado(expira);
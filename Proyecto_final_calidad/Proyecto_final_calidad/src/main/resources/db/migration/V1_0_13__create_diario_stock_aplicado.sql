@@ -0,0 +1,8 @@
+-- V1.0.13__create_diario_stock_aplicado.sql
+-- Última secuencia aplicada de cada diario local de movimientos (modo write-behind).
+-- DiarioMovimientos la actualiza en la misma transacción que inserta el lote, así que
+-- al reproducir el diario tras una caída se saltan los registros ya aplicados.
+CREATE TABLE IF NOT EXISTS diario_stock_aplicado (
+    diario VARCHAR(36) PRIMARY KEY,
+    ultima_secuencia BIGINT NOT NULL
+);
@@ -0,0 +1,85 @@
+-- V1.0.14__stock_secuencia_producto.sql
+-- Los ids de stock salen de una secuencia que cada nodo reserva en bloques de 50
+-- (V1_0_3), así que no siguen el orden de commit: un movimiento confirmado después
+-- puede tener un id menor y quedar fuera de un saldo para siempre. El libro pasa a
+-- usar una secuencia por producto (producto.movimientos) que se incrementa con la
+-- fila del producto bloqueada, en la misma transacción que inserta el movimiento.
+
+ALTER TABLE producto ADD COLUMN IF NOT EXISTS movimientos BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE stock ADD COLUMN IF NOT EXISTS secuencia BIGINT;
+ALTER TABLE au_stock ADD COLUMN IF NOT EXISTS secuencia BIGINT;
+
+-- Los movimientos existentes se numeran en orden de id (el criterio que usaba el libro)
+UPDATE stock s
+SET secuencia = n.secuencia
+FROM (
+    SELECT id, fecha, row_number() OVER (PARTITION BY producto_id ORDER BY id) AS secuencia
+    FROM stock
+) n
+WHERE s.id = n.id AND s.fecha = n.fecha;
+
+ALTER TABLE stock ALTER COLUMN secuencia SET NOT NULL;
+
+UPDATE producto p
+SET movimientos = COALESCE((SELECT MAX(s.secuencia) FROM stock s WHERE s.producto_id = p.id), 0);
+
+-- Cada saldo pasa a cubrir los movimientos hasta una secuencia. Los movimientos de
+-- particiones ya archivadas no están en stock: sus saldos CIERRE quedan en 0 y los
+-- movimientos que siguen en stock se suman a partir de ellos.
+ALTER TABLE stock_saldo ADD COLUMN IF NOT EXISTS ultima_secuencia BIGINT;
+
+UPDATE stock_saldo ss
+SET ultima_secuencia = (SELECT COUNT(*) FROM stock s
+                        WHERE s.producto_id = ss.producto_id AND s.id <= ss.ultimo_movimiento_id);
+
+ALTER TABLE stock_saldo ALTER COLUMN ultima_secuencia SET NOT NULL;
+ALTER TABLE stock_saldo DROP COLUMN ultimo_movimiento_id;
+
+DROP INDEX IF EXISTS idx_stock_producto_id;
+CREATE INDEX IF NOT EXISTS idx_stock_producto_secuencia ON stock (producto_id, secuencia);
+
+-- El saldo CIERRE previo al archivado se corta en la última secuencia de la partición
+CREATE OR REPLACE FUNCTION archivar_particiones_stock(antes date) RETURNS int AS $$
+DECLARE
+    p record;
+    archivadas int := 0;
+BEGIN
+    CREATE SCHEMA IF NOT EXISTS archivo;
+    FOR p IN
+        SELECT c.relname AS particion, pt.relname AS padre
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class pt ON pt.oid = i.inhparent
+        WHERE pt.oid IN ('stock'::regclass, 'au_stock'::regclass)
+          AND c.relname ~ '_p[0-9]{4}_[0-9]{2}$'
+          AND to_date(right(c.relname, 7), 'YYYY_MM') + interval '1 month' <= antes
+        ORDER BY c.relname
+    LOOP
+        IF p.padre = 'stock' THEN
+            EXECUTE format($q$
+                INSERT INTO stock_saldo (producto_id, ultima_secuencia, saldo, tipo, fecha)
+                SELECT c.producto_id, c.corte,
+                       COALESCE(b.saldo, 0) + (
+                           SELECT COALESCE(SUM(CASE WHEN s.tipo = 'ENTRADA' THEN s.cantidad ELSE -s.cantidad END), 0)
+                           FROM stock s
+                           WHERE s.producto_id = c.producto_id
+                             AND s.secuencia > COALESCE(b.ultima_secuencia, 0)
+                             AND s.secuencia <= c.corte),
+                       'CIERRE', NOW()
+                FROM (SELECT producto_id, MAX(secuencia) AS corte FROM %I GROUP BY producto_id) c
+                LEFT JOIN (
+                    SELECT DISTINCT ON (producto_id) producto_id, ultima_secuencia, saldo
+                    FROM stock_saldo
+                    WHERE tipo <> 'PERIODICO'
+                    ORDER BY producto_id, id DESC
+                ) b ON b.producto_id = c.producto_id
+                WHERE COALESCE(b.ultima_secuencia, 0) < c.corte
+            $q$, p.particion);
+        END IF;
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', p.padre, p.particion);
+        EXECUTE format('ALTER TABLE %I SET SCHEMA archivo', p.particion);
+        archivadas := archivadas + 1;
+    END LOOP;
+    RETURN archivadas;
+END;
+$$ LANGUAGE plpgsql;
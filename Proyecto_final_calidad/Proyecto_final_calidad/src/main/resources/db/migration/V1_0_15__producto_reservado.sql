@@ -0,0 +1,22 @@
+-- V1.0.15__producto_reservado.sql
+-- Unidades retenidas por reservas vigentes, junto a la cantidad del producto. Las
+-- reservas y las salidas se validan con UPDATE condicionales sobre
+-- cantidad - reservado, así que la retención vale en todos los nodos y ninguna salida
+-- concurrente puede tomar unidades reservadas. Invariante: reservado es la suma de las
+-- filas de stock_reserva del producto; quien elimina una fila descuenta su cantidad.
+-- Desde esta versión stock_reserva es la fuente de verdad de las reservas: ReservasStock
+-- ya no guarda copia en memoria (el comentario de V1_0_8 describe el diseño anterior).
+
+ALTER TABLE producto ADD COLUMN IF NOT EXISTS reservado INT NOT NULL DEFAULT 0;
+
+DELETE FROM stock_reserva WHERE expira <= NOW();
+
+UPDATE producto p
+SET reservado = r.total
+FROM (SELECT producto_id, SUM(cantidad) AS total FROM stock_reserva GROUP BY producto_id) r
+WHERE p.id = r.producto_id;
+
+-- Ninguna escritura puede dejar la cantidad por debajo de lo reservado (ediciones,
+-- importaciones): las reservas vigentes siempre se pueden confirmar. NOT VALID porque
+-- las reservas en memoria anteriores no se validaban contra la cantidad
+ALTER TABLE producto ADD CONSTRAINT chk_producto_reservado CHECK (cantidad >= reservado) NOT VALID;
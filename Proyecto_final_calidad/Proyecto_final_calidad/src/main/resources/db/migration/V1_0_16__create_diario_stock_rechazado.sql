@@ -0,0 +1,20 @@
+-- V1.0.16__create_diario_stock_rechazado.sql
+-- Movimientos del diario write-behind que la base rechazó al drenarlos (stock
+-- insuficiente, producto eliminado). El llamador ya recibió la confirmación del diario,
+-- así que quedan aquí para que un operador los revise y los corrija a mano.
+-- DiarioMovimientos los inserta en la misma transacción que avanza la secuencia aplicada.
+CREATE TABLE IF NOT EXISTS diario_stock_rechazado (
+    id BIGSERIAL PRIMARY KEY,
+    diario VARCHAR(36) NOT NULL,
+    secuencia BIGINT NOT NULL,
+    producto_id BIGINT,
+    cantidad INT NOT NULL,
+    tipo VARCHAR(255) NOT NULL,  -- EnumType.STRING
+    usuario VARCHAR(255),
+    fecha TIMESTAMP NOT NULL,
+    motivo VARCHAR(500),
+    rechazado TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_diario_stock_rechazado UNIQUE (diario, secuencia)
+);
+
+CREATE INDEX IF NOT EXISTS idx_diario_stock_rechazado_fecha ON diario_stock_rechazado (rechazado);
@@ -0,0 +1,5 @@
+-- V1.0.3__stock_id_secuencia.sql
+-- Stock usa GenerationType.SEQUENCE (allocationSize = 50) en lugar de IDENTITY para
+-- permitir INSERT por lotes. El incremento de la secuencia debe coincidir con el
+-- allocationSize; el DEFAULT de la columna sigue funcionando para inserts manuales.
+ALTER SEQUENCE IF EXISTS stock_id_seq INCREMENT BY 50;
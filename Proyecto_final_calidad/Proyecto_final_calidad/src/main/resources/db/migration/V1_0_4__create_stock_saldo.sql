@@ -0,0 +1,28 @@
+-- V1.0.4__create_stock_saldo.sql
+-- Libro de stock: la tabla stock es la fuente de verdad y stock_saldo guarda saldos
+-- intermedios por producto. Saldo actual = último saldo + movimientos con id posterior.
+CREATE TABLE IF NOT EXISTS stock_saldo (
+    id BIGSERIAL PRIMARY KEY,
+    producto_id BIGINT NOT NULL,
+    ultimo_movimiento_id BIGINT NOT NULL,
+    saldo INT NOT NULL,
+    tipo VARCHAR(20) NOT NULL,  -- EnumType.STRING (INICIAL, PERIODICO, AJUSTE)
+    fecha TIMESTAMP NOT NULL,
+    CONSTRAINT fk_stock_saldo_producto FOREIGN KEY (producto_id)
+    REFERENCES producto (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_saldo_producto ON stock_saldo (producto_id, id DESC);
+
+-- Reproducción de movimientos de un producto a partir de un id
+CREATE INDEX IF NOT EXISTS idx_stock_producto_id ON stock (producto_id, id);
+
+-- Saldo de partida: la cantidad actual de cada producto, tomada después de su último movimiento
+INSERT INTO stock_saldo (producto_id, ultimo_movimiento_id, saldo, tipo, fecha)
+SELECT p.id,
+       COALESCE((SELECT MAX(s.id) FROM stock s WHERE s.producto_id = p.id), 0),
+       p.cantidad,
+       'INICIAL',
+       NOW()
+FROM producto p
+WHERE NOT EXISTS (SELECT 1 FROM stock_saldo ss WHERE ss.producto_id = p.id);
@@ -0,0 +1,7 @@
+-- V1.0.5__stock_indice_fecha.sql
+-- Paginación por clave del historial: ORDER BY fecha DESC, id DESC con
+-- WHERE (fecha, id) < (:fecha, :id) recorre el índice sin OFFSET.
+CREATE INDEX IF NOT EXISTS idx_stock_fecha_id ON stock (fecha DESC, id DESC);
+
+-- Historial filtrado por producto
+CREATE INDEX IF NOT EXISTS idx_stock_producto_fecha_id ON stock (producto_id, fecha DESC, id DESC);
@@ -0,0 +1,178 @@
+-- V1.0.6__stock_particionado.sql
+-- Convierte stock y au_stock en tablas particionadas por mes sobre fecha.
+-- Cada mes es una partición <tabla>_pYYYY_MM; las filas sin partición (o con fecha
+-- nula en au_stock) van a <tabla>_default. ParticionesStock crea los meses futuros
+-- y, si hay retención configurada, archiva los antiguos en el esquema archivo.
+
+-- Crea la partición del mes indicado, moviendo antes las filas que hayan caído en default
+CREATE OR REPLACE FUNCTION crear_particion_mes(tabla text, mes date) RETURNS boolean AS $$
+DECLARE
+    inicio date := date_trunc('month', mes)::date;
+    fin date := (date_trunc('month', mes) + interval '1 month')::date;
+    particion text := tabla || '_p' || to_char(inicio, 'YYYY_MM');
+BEGIN
+    IF to_regclass(particion) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', particion, tabla);
+    EXECUTE format('INSERT INTO %I SELECT * FROM %I WHERE fecha >= %L AND fecha < %L',
+                   particion, tabla || '_default', inicio, fin);
+    EXECUTE format('DELETE FROM %I WHERE fecha >= %L AND fecha < %L', tabla || '_default', inicio, fin);
+    EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   tabla, particion, inicio, fin);
+    RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Asegura las particiones de stock y au_stock desde el mes actual hasta meses_adelante
+CREATE OR REPLACE FUNCTION crear_particiones_stock(meses_adelante int) RETURNS int AS $$
+DECLARE
+    creadas int := 0;
+    i int;
+BEGIN
+    FOR i IN 0..meses_adelante LOOP
+        IF crear_particion_mes('stock', (date_trunc('month', now()) + make_interval(months => i))::date) THEN
+            creadas := creadas + 1;
+        END IF;
+        IF crear_particion_mes('au_stock', (date_trunc('month', now()) + make_interval(months => i))::date) THEN
+            creadas := creadas + 1;
+        END IF;
+    END LOOP;
+    RETURN creadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Desacopla las particiones mensuales que terminan antes de la fecha indicada y las
+-- mueve al esquema archivo. Antes de sacar movimientos de stock se guarda un saldo
+-- CIERRE por producto, calculado con el propio libro, para que el saldo y la
+-- conciliación no necesiten reproducir las filas archivadas.
+CREATE OR REPLACE FUNCTION archivar_particiones_stock(antes date) RETURNS int AS $$
+DECLARE
+    p record;
+    archivadas int := 0;
+BEGIN
+    CREATE SCHEMA IF NOT EXISTS archivo;
+    FOR p IN
+        SELECT c.relname AS particion, pt.relname AS padre
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        JOIN pg_class pt ON pt.oid = i.inhparent
+        WHERE pt.oid IN ('stock'::regclass, 'au_stock'::regclass)
+          AND c.relname ~ '_p[0-9]{4}_[0-9]{2}$'
+          AND to_date(right(c.relname, 7), 'YYYY_MM') + interval '1 month' <= antes
+        ORDER BY c.relname
+    LOOP
+        IF p.padre = 'stock' THEN
+            EXECUTE format($q$
+                INSERT INTO stock_saldo (producto_id, ultimo_movimiento_id, saldo, tipo, fecha)
+                SELECT c.producto_id, c.corte,
+                       COALESCE(b.saldo, 0) + (
+                           SELECT COALESCE(SUM(CASE WHEN s.tipo = 'ENTRADA' THEN s.cantidad ELSE -s.cantidad END), 0)
+                           FROM stock s
+                           WHERE s.producto_id = c.producto_id
+                             AND s.id > COALESCE(b.ultimo_movimiento_id, 0)
+                             AND s.id <= c.corte),
+                       'CIERRE', NOW()
+                FROM (SELECT producto_id, MAX(id) AS corte FROM %I GROUP BY producto_id) c
+                LEFT JOIN (
+                    SELECT DISTINCT ON (producto_id) producto_id, ultimo_movimiento_id, saldo
+                    FROM stock_saldo
+                    WHERE tipo <> 'PERIODICO'
+                    ORDER BY producto_id, id DESC
+                ) b ON b.producto_id = c.producto_id
+                WHERE COALESCE(b.ultimo_movimiento_id, 0) < c.corte
+            $q$, p.particion);
+        END IF;
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', p.padre, p.particion);
+        EXECUTE format('ALTER TABLE %I SET SCHEMA archivo', p.particion);
+        archivadas := archivadas + 1;
+    END LOOP;
+    RETURN archivadas;
+END;
+$$ LANGUAGE plpgsql;
+
+-- stock ---------------------------------------------------------------------------
+
+DROP INDEX IF EXISTS idx_stock_producto_id;
+DROP INDEX IF EXISTS idx_stock_fecha_id;
+DROP INDEX IF EXISTS idx_stock_producto_fecha_id;
+
+ALTER TABLE stock RENAME TO stock_old;
+ALTER TABLE stock_old RENAME CONSTRAINT stock_pkey TO stock_old_pkey;
+
+-- La clave primaria de una tabla particionada debe incluir la columna de partición
+CREATE TABLE stock (
+    id BIGINT NOT NULL DEFAULT nextval('stock_id_seq'),
+    producto_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    tipo VARCHAR(255),  -- EnumType.STRING
+    fecha TIMESTAMP NOT NULL,
+    usuario VARCHAR(255),
+    CONSTRAINT stock_pkey PRIMARY KEY (id, fecha),
+    CONSTRAINT fk_stock_producto FOREIGN KEY (producto_id)
+    REFERENCES producto (id) ON DELETE CASCADE
+) PARTITION BY RANGE (fecha);
+
+CREATE TABLE stock_default PARTITION OF stock DEFAULT;
+
+-- au_stock ------------------------------------------------------------------------
+
+ALTER TABLE au_stock RENAME TO au_stock_old;
+ALTER TABLE au_stock_old RENAME CONSTRAINT au_stock_pkey TO au_stock_old_pkey;
+
+-- Envers deja fecha nula en las revisiones de borrado, por eso au_stock no puede
+-- tener una clave primaria que incluya fecha; (id, rev) queda como índice.
+CREATE TABLE au_stock (
+    id BIGINT NOT NULL,
+    rev INT NOT NULL,
+    revtype SMALLINT,
+    producto_id BIGINT,
+    cantidad INT,
+    tipo VARCHAR(255),
+    fecha TIMESTAMP,
+    usuario VARCHAR(255)
+) PARTITION BY RANGE (fecha);
+
+CREATE TABLE au_stock_default PARTITION OF au_stock DEFAULT;
+
+-- Particiones para los meses con datos y los próximos tres ----------------------------
+
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    SELECT date_trunc('month', MIN(fecha))::date INTO mes
+    FROM (SELECT fecha FROM stock_old UNION ALL SELECT fecha FROM au_stock_old) f
+    WHERE fecha IS NOT NULL AND fecha >= TIMESTAMP '2000-01-01';
+
+    WHILE mes IS NOT NULL AND mes < date_trunc('month', now())::date LOOP
+        PERFORM crear_particion_mes('stock', mes);
+        PERFORM crear_particion_mes('au_stock', mes);
+        mes := (mes + interval '1 month')::date;
+    END LOOP;
+    PERFORM crear_particiones_stock(3);
+END;
+$$;
+
+-- Los movimientos antiguos sin fecha quedan en la partición default con fecha 1970-01-01
+INSERT INTO stock (id, producto_id, cantidad, tipo, fecha, usuario)
+SELECT id, producto_id, cantidad, tipo, COALESCE(fecha, TIMESTAMP '1970-01-01'), usuario
+FROM stock_old;
+
+INSERT INTO au_stock (id, rev, revtype, producto_id, cantidad, tipo, fecha, usuario)
+SELECT id, rev, revtype, producto_id, cantidad, tipo, fecha, usuario
+FROM au_stock_old;
+
+-- La secuencia era de stock_old.id (BIGSERIAL); se traspasa antes de eliminarla
+ALTER SEQUENCE stock_id_seq OWNED BY NONE;
+DROP TABLE stock_old;
+DROP TABLE au_stock_old;
+ALTER SEQUENCE stock_id_seq OWNED BY stock.id;
+
+-- Índices (se crean en cada partición, también en las que se creen después)
+CREATE INDEX IF NOT EXISTS idx_stock_producto_id ON stock (producto_id, id);
+CREATE INDEX IF NOT EXISTS idx_stock_fecha_id ON stock (fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_stock_producto_fecha_id ON stock (producto_id, fecha DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_au_stock_id_rev ON au_stock (id, rev);
+CREATE INDEX IF NOT EXISTS idx_au_stock_rev ON au_stock (rev);
@@ -0,0 +1,23 @@
+-- V1.0.7__create_stock_resumen_diario.sql
+-- Totales de movimientos por producto, día y tipo. Se actualizan con un upsert en la
+-- misma transacción de cada movimiento; los reportes leen esta tabla y no stock.
+CREATE TABLE IF NOT EXISTS stock_resumen_diario (
+    producto_id BIGINT NOT NULL,
+    dia DATE NOT NULL,
+    tipo VARCHAR(20) NOT NULL,  -- EnumType.STRING (ENTRADA, SALIDA)
+    movimientos BIGINT NOT NULL,
+    cantidad BIGINT NOT NULL,
+    PRIMARY KEY (producto_id, dia, tipo),
+    CONSTRAINT fk_stock_resumen_producto FOREIGN KEY (producto_id)
+    REFERENCES producto (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_resumen_dia ON stock_resumen_diario (dia);
+
+-- Carga inicial desde el historial existente
+INSERT INTO stock_resumen_diario (producto_id, dia, tipo, movimientos, cantidad)
+SELECT producto_id, fecha::date, tipo, COUNT(*), SUM(cantidad)
+FROM stock
+WHERE tipo IS NOT NULL
+GROUP BY producto_id, fecha::date, tipo
+ON CONFLICT (producto_id, dia, tipo) DO NOTHING;
@@ -0,0 +1,15 @@
+-- V1.0.8__create_stock_reserva.sql
+-- Reservas de stock vigentes. La fuente para consultas es la memoria de ReservasStock;
+-- esta tabla solo permite recuperarlas al reiniciar y serializa la confirmación.
+CREATE TABLE IF NOT EXISTS stock_reserva (
+    id VARCHAR(36) PRIMARY KEY,
+    producto_id BIGINT NOT NULL,
+    cantidad INT NOT NULL,
+    usuario VARCHAR(255),
+    creada TIMESTAMP NOT NULL,
+    expira TIMESTAMP NOT NULL,
+    CONSTRAINT fk_stock_reserva_producto FOREIGN KEY (producto_id)
+    REFERENCES producto (id) ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_stock_reserva_expira ON stock_reserva (expira);
@@ -0,0 +1,17 @@
+-- V1.0.9__producto_busqueda.sql
+-- Búsqueda de productos sin recorrer toda la tabla:
+--  * busqueda: tsvector generado (nombre con peso A, descripción con peso B) para
+--    la búsqueda de texto completo en español, con su índice GIN.
+--  * índices GIN de trigramas sobre lower(nombre) y lower(descripcion): sirven tanto
+--    al LIKE '%texto%' de la búsqueda por contenido como a la similitud (%) por nombre.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+ALTER TABLE producto ADD COLUMN IF NOT EXISTS busqueda tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('spanish', coalesce(nombre, '')), 'A') ||
+        setweight(to_tsvector('spanish', coalesce(descripcion, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_producto_busqueda ON producto USING GIN (busqueda);
+CREATE INDEX IF NOT EXISTS idx_producto_nombre_trgm ON producto USING GIN (lower(nombre) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_producto_descripcion_trgm ON producto USING GIN (lower(descripcion) gin_trgm_ops);
@@ -0,0 +1,93 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.model.ModoBusqueda;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Versión reducida de la comparación de latencia entre la búsqueda LIKE y la de texto
+ * completo: 1000 productos, 10 de ellos con una palabra propia del test. Ambos modos
+ * deben encontrar esos 10; la mediana de cada uno queda en el log. Consulta el
+ * repositorio directamente para no pasar por el índice en memoria.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class BusquedaTextoLatenciaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(BusquedaTextoLatenciaTest.class);
+
+    private static final int PRODUCTOS = 1000;
+    private static final int MARCADOS = 10;
+    private static final int REPETICIONES = 50;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    private ProductosDePrueba productos;
+    private String termino;
+    private final Set<Long> marcados = new HashSet<>();
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        termino = "marca" + Long.toString(System.nanoTime(), 36);
+        for (int i = 0; i < MARCADOS; i++) {
+            marcados.add(productos.crear(termino, 1).getId());
+        }
+        for (int i = MARCADOS; i < PRODUCTOS; i++) {
+            productos.crear("relleno", 1);
+        }
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void ambosModosEncuentranLoMismoYSeMiden() {
+        FiltroProducto like = filtro(ModoBusqueda.CONTIENE);
+        FiltroProducto textoCompleto = filtro(ModoBusqueda.TEXTO_COMPLETO);
+        Pageable pagina = PageRequest.of(0, 50);
+
+        assertEquals(marcados, ids(productoRepositorio.findByFilters(like, pagina)));
+        assertTrue(ids(productoRepositorio.findByFilters(textoCompleto, pagina)).containsAll(marcados));
+
+        double msLike = Latencia.medianaMs(REPETICIONES, () -> productoRepositorio.findByFilters(like, pagina));
+        double msTexto = Latencia.medianaMs(REPETICIONES, () -> productoRepositorio.findByFilters(textoCompleto, pagina));
+        logger.info("Búsqueda entre {} productos (mediana de {}): LIKE {} ms, texto completo {} ms",
+                productoRepositorio.count(), REPETICIONES, String.format("%.2f", msLike), String.format("%.2f", msTexto));
+    }
+
+    private FiltroProducto filtro(ModoBusqueda modo) {
+        return new FiltroProducto(termino, null, null, null, null, null, modo);
+    }
+
+    private static Set<Long> ids(List<Producto> encontrados) {
+        return encontrados.stream().map(Producto::getId).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,77 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que las lecturas repetidas de productos salgan de la caché de segundo
+ * nivel sin ir a la base de datos.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = ContadorSentencias.PROPIEDAD)
+public class CacheSegundoNivelTest {
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private ProductosDePrueba productos;
+    private Long productoId;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        productoId = productos.crear("caché", 1).getId();
+
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        ContadorSentencias.reiniciar();
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void segundaLecturaPorIdNoConsultaLaBaseDeDatos() {
+        productoServicio.findById(productoId);
+        assertEquals(1, ContadorSentencias.contar());
+
+        ContadorSentencias.reiniciar();
+        assertTrue(productoServicio.findById(productoId).isPresent());
+
+        assertEquals(0, ContadorSentencias.contar());
+    }
+
+    @Test
+    public void listaDeActivosSaleDeLaCacheDeConsultas() {
+        productoRepositorio.findAllByEstaActivo(true);
+        assertEquals(1, ContadorSentencias.contar());
+
+        ContadorSentencias.reiniciar();
+        List<Producto> activos = productoRepositorio.findAllByEstaActivo(true);
+
+        assertEquals(0, ContadorSentencias.contar());
+        assertTrue(activos.stream().anyMatch(p -> productoId.equals(p.getId())));
+    }
+}
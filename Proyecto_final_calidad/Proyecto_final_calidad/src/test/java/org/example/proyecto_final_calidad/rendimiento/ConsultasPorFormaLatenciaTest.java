@@ -0,0 +1,78 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compara la búsqueda filtrada por la named query de su forma con la misma búsqueda
+ * armada con Criteria en cada llamada. Un orden sin distinguir mayúsculas no tiene
+ * forma guardada y toma el camino Criteria; el filtro deja pocas filas para que la
+ * diferencia sea el armado y la traducción de la consulta, no la base de datos.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ConsultasPorFormaLatenciaTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsultasPorFormaLatenciaTest.class);
+
+    private static final int PRODUCTOS = 5;
+    private static final int REPETICIONES = 500;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    private ProductosDePrueba productos;
+    private FiltroProducto filtro;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        String termino = "forma" + Long.toString(System.nanoTime(), 36);
+        for (int i = 0; i < PRODUCTOS; i++) {
+            productos.crear(termino, 1);
+        }
+        filtro = new FiltroProducto(termino, CategoriaProducto.OTROS, 0.5, 10.0, 1, null);
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void formaGuardadaFrenteACriteria() {
+        PageRequest porForma = PageRequest.of(0, 20, Sort.by("nombre"));
+        PageRequest porCriteria = PageRequest.of(0, 20, Sort.by(Sort.Order.asc("nombre").ignoreCase()));
+
+        List<Producto> guardada = productoRepositorio.findByFilters(filtro, porForma);
+        List<Producto> criteria = productoRepositorio.findByFilters(filtro, porCriteria);
+        assertEquals(PRODUCTOS, guardada.size());
+        assertEquals(guardada.stream().map(Producto::getId).toList(), criteria.stream().map(Producto::getId).toList());
+
+        double msForma = Latencia.medianaMs(REPETICIONES, () -> productoRepositorio.findByFilters(filtro, porForma));
+        double msCriteria = Latencia.medianaMs(REPETICIONES, () -> productoRepositorio.findByFilters(filtro, porCriteria));
+        logger.info("Búsqueda con todos los filtros (mediana de {}): forma guardada {} ms, Criteria {} ms",
+                REPETICIONES, String.format("%.3f", msForma), String.format("%.3f", msCriteria));
+    }
+}
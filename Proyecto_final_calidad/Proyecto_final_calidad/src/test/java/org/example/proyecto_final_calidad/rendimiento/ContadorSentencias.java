@@ -0,0 +1,31 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Cuenta las sentencias SQL que Hibernate prepara en el hilo actual. Las estadísticas
+ * de la SessionFactory son globales y también suman las consultas de las tareas en
+ * segundo plano (conciliación, métricas, índices); este contador solo ve las del test.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    /** Propiedad para {@code @SpringBootTest} que registra este inspector */
+    public static final String PROPIEDAD = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+            + "org.example.proyecto_final_calidad.rendimiento.ContadorSentencias";
+
+    private static final ThreadLocal<int[]> SENTENCIAS = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        SENTENCIAS.get()[0]++;
+        return sql;
+    }
+
+    public static void reiniciar() {
+        SENTENCIAS.get()[0] = 0;
+    }
+
+    public static int contar() {
+        return SENTENCIAS.get()[0];
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.example.proyecto_final_calidad.servicios.ExportacionServicio;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.example.proyecto_final_calidad.servicios.StockServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica los bytes exactos de la exportación NDJSON: un objeto por línea, sin
+ * separadores entre líneas y con salto de línea final.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ExportacionNdjsonTest {
+
+    @Autowired
+    private ExportacionServicio exportacionServicio;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private StockServicio stockServicio;
+
+    private ProductosDePrueba productos;
+    private Long productoId;
+    private String nombre;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        Producto producto = productos.crear("exportación", 0);
+        productoId = producto.getId();
+        nombre = producto.getNombre();
+
+        stockServicio.registrarMovimientos(List.of(
+                new SolicitudMovimiento(productoId, 5, TipoMovimiento.ENTRADA, "test"),
+                new SolicitudMovimiento(productoId, 2, TipoMovimiento.SALIDA, "test")));
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void cadaMovimientoEsUnaLineaSinSeparadores() throws IOException {
+        // Mismo orden que la exportación (fecha e ID ascendentes)
+        List<MovimientoStockDto> movimientos = stockServicio.paginarMovimientos(productoId, null, null, null, null, 10)
+                .movimientos().reversed();
+        StringBuilder esperado = new StringBuilder();
+        for (MovimientoStockDto m : movimientos) {
+            esperado.append("{\"id\":").append(m.id())
+                    .append(",\"productoId\":").append(productoId)
+                    .append(",\"productoNombre\":\"").append(nombre).append('"')
+                    .append(",\"tipo\":\"").append(m.tipo()).append('"')
+                    .append(",\"cantidad\":").append(m.cantidad())
+                    .append(",\"fecha\":\"").append(m.fecha()).append('"')
+                    .append(",\"usuario\":\"test\"}\n");
+        }
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacionServicio.exportarMovimientos(productoId, null, null, salida);
+
+        assertEquals(2, movimientos.size());
+        assertEquals(esperado.toString(), salida.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void hastaEsInclusiveComoEnElHistorial() throws IOException {
+        MovimientoStockDto ultimo = stockServicio.paginarMovimientos(productoId, null, null, null, null, 10)
+                .movimientos().getFirst();
+
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        exportacionServicio.exportarMovimientos(productoId, ultimo.fecha(), ultimo.fecha(), salida);
+
+        List<MovimientoStockDto> historial = stockServicio.paginarMovimientos(productoId, null,
+                ultimo.fecha(), ultimo.fecha(), null, 10).movimientos();
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(historial.size(), lineas.length);
+        assertTrue(lineas[lineas.length - 1].startsWith("{\"id\":" + ultimo.id() + ","));
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Versión reducida de la medición de heap por sesión de los grids: con 1000 productos
+ * y 20 sesiones, cada sesión retiene lo que tendría su grid. Con el proveedor lazy es
+ * la página visible; con setItems(findAll()) era el catálogo entero.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class HeapPorSesionTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(HeapPorSesionTest.class);
+
+    private static final int PRODUCTOS = 1000;
+    private static final int SESIONES = 20;
+    private static final int PAGINA = 50;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    private ProductosDePrueba productos;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        for (int i = 0; i < PRODUCTOS; i++) {
+            productos.crear("heap", 1);
+        }
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void gridLazyRetieneSoloLaPaginaVisible() {
+        long lazy = heapPorSesion(() -> productoServicio.findByFilters(FiltroProducto.vacio(), PageRequest.of(0, PAGINA)), PAGINA);
+        long completo = heapPorSesion(productoServicio::findAll, PRODUCTOS);
+
+        logger.info("Heap por sesión con {} productos: lazy {} KB, findAll {} KB",
+                productoServicio.countByFilters(FiltroProducto.vacio()), lazy / 1024, completo / 1024);
+        assertTrue("La página lazy ocupa " + lazy + " bytes por sesión y findAll " + completo,
+                lazy * 2 < completo);
+    }
+
+    /**
+     * Bytes de heap que quedan retenidos por sesión tras cargar un grid en cada una.
+     *
+     * @param minimo filas que debe tener como mínimo cada carga
+     */
+    private static long heapPorSesion(Supplier<List<Producto>> carga, int minimo) {
+        carga.get(); // calienta cachés y clases antes de medir
+        long antes = heapUsado();
+        List<List<Producto>> sesiones = new ArrayList<>();
+        for (int i = 0; i < SESIONES; i++) {
+            sesiones.add(carga.get());
+        }
+        long despues = heapUsado();
+
+        assertEquals(SESIONES, sesiones.size());
+        assertTrue(sesiones.stream().allMatch(filas -> filas.size() >= minimo));
+        return Math.max(0, despues - antes) / SESIONES;
+    }
+
+    private static long heapUsado() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.dto.FiltroStock;
+import org.example.proyecto_final_calidad.dto.MovimientoStockDto;
+import org.example.proyecto_final_calidad.dto.PaginaHistorial;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.example.proyecto_final_calidad.servicios.StockServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifica que leer una página del historial de stock cueste una sola sentencia SQL
+ * (sin N+1 sobre producto) y que el cursor continúe donde terminó la página anterior.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = ContadorSentencias.PROPIEDAD)
+public class HistorialStockConsultasTest {
+
+    private static final int MOVIMIENTOS = 45;
+    private static final int TAMANO_PAGINA = 20;
+
+    @Autowired
+    private StockServicio stockServicio;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    private ProductosDePrueba productos;
+    private Long productoId;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        productoId = productos.crear("historial", 0).getId();
+
+        // Cantidades 1..45 en orden de registro: el historial las devuelve de la 45 a la 1
+        List<SolicitudMovimiento> movimientos = new ArrayList<>();
+        for (int i = 1; i <= MOVIMIENTOS; i++) {
+            movimientos.add(new SolicitudMovimiento(productoId, i, TipoMovimiento.ENTRADA, "test"));
+        }
+        stockServicio.registrarMovimientos(movimientos);
+        ContadorSentencias.reiniciar();
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void paginaDelGridEsUnaSolaConsulta() {
+        List<MovimientoStockDto> pagina = stockServicio.filtrarMovimientos(
+                new FiltroStock(productoId, null, null, null), PageRequest.of(0, 50));
+
+        assertEquals(1, ContadorSentencias.contar());
+        assertEquals(MOVIMIENTOS, pagina.size());
+        assertTrue(pagina.stream().allMatch(m -> productoId.equals(m.productoId()) && m.productoNombre() != null));
+    }
+
+    @Test
+    public void ordenarPorNombreDeProductoNoAgregaConsultas() {
+        List<MovimientoStockDto> pagina = stockServicio.filtrarMovimientos(
+                new FiltroStock(productoId, null, null, null), PageRequest.of(0, 50, Sort.by("producto.nombre")));
+
+        assertEquals(1, ContadorSentencias.contar());
+        assertEquals(MOVIMIENTOS, pagina.size());
+    }
+
+    @Test
+    public void paginasDeUnProductoSiguenElCursor() {
+        PaginaHistorial primera = stockServicio.paginarMovimientos(productoId, null, null, null, null, TAMANO_PAGINA);
+        assertEquals(1, ContadorSentencias.contar());
+        assertEquals(List.of(45, 44, 43, 42, 41, 40, 39, 38, 37, 36, 35, 34, 33, 32, 31, 30, 29, 28, 27, 26),
+                cantidades(primera));
+        assertNotNull(primera.siguienteCursor());
+
+        PaginaHistorial segunda = stockServicio.paginarMovimientos(productoId, null, null, null,
+                primera.siguienteCursor(), TAMANO_PAGINA);
+        assertEquals(2, ContadorSentencias.contar());
+        assertEquals(List.of(25, 24, 23, 22, 21, 20, 19, 18, 17, 16, 15, 14, 13, 12, 11, 10, 9, 8, 7, 6),
+                cantidades(segunda));
+        assertNotNull(segunda.siguienteCursor());
+
+        PaginaHistorial tercera = stockServicio.paginarMovimientos(productoId, null, null, null,
+                segunda.siguienteCursor(), TAMANO_PAGINA);
+        assertEquals(3, ContadorSentencias.contar());
+        assertEquals(List.of(5, 4, 3, 2, 1), cantidades(tercera));
+        assertNull(tercera.siguienteCursor());
+    }
+
+    @Test
+    public void paginasDelHistorialCompletoSonUnaConsultaCadaUna() {
+        // Sin filtros la página incluye otros productos; los movimientos recién creados son
+        // los más nuevos, y la página siguiente debe empezar justo después del cursor
+        PaginaHistorial primera = stockServicio.paginarMovimientos(null, null, null, null, null, TAMANO_PAGINA);
+        assertEquals(1, ContadorSentencias.contar());
+        assertEquals(TAMANO_PAGINA, primera.movimientos().size());
+        assertNotNull(primera.siguienteCursor());
+
+        PaginaHistorial segunda = stockServicio.paginarMovimientos(null, null, null, null,
+                primera.siguienteCursor(), TAMANO_PAGINA);
+        assertEquals(2, ContadorSentencias.contar());
+        assertEquals(TAMANO_PAGINA, segunda.movimientos().size());
+
+        MovimientoStockDto ultimoDeLaPrimera = primera.movimientos().get(TAMANO_PAGINA - 1);
+        MovimientoStockDto primeroDeLaSegunda = segunda.movimientos().getFirst();
+        assertTrue(primeroDeLaSegunda.fecha().isBefore(ultimoDeLaPrimera.fecha())
+                || primeroDeLaSegunda.fecha().equals(ultimoDeLaPrimera.fecha())
+                && primeroDeLaSegunda.id() < ultimoDeLaPrimera.id());
+    }
+
+    private static List<Integer> cantidades(PaginaHistorial pagina) {
+        return pagina.movimientos().stream().map(MovimientoStockDto::cantidad).toList();
+    }
+}
@@ -0,0 +1,85 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.ProyectoFinalCalidadApplication;
+import org.example.proyecto_final_calidad.servicios.BusInvalidacion;
+import org.example.proyecto_final_calidad.servicios.ProductoCambiadoEvent;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Levanta dos contextos de la aplicación contra la misma base de datos (la de
+ * application.properties) y verifica que un cambio de producto en un nodo llegue
+ * al otro como evento remoto.
+ */
+public class InvalidacionEntreNodosTest {
+
+    private ConfigurableApplicationContext nodoA;
+    private ConfigurableApplicationContext nodoB;
+    private final LinkedBlockingQueue<ProductoCambiadoEvent> recibidosEnB = new LinkedBlockingQueue<>();
+    private ProductosDePrueba productos;
+
+    @Before
+    public void setup() throws InterruptedException {
+        nodoA = iniciarNodo();
+        nodoB = iniciarNodo();
+        nodoB.addApplicationListener(ApplicationListener.<ProductoCambiadoEvent>forPayload(evento -> {
+            if (evento.remoto()) {
+                recibidosEnB.add(evento);
+            }
+        }));
+        esperarEscucha(nodoA);
+        esperarEscucha(nodoB);
+    }
+
+    @After
+    public void cerrar() {
+        if (productos != null) {
+            productos.eliminar();
+        }
+        if (nodoA != null) {
+            nodoA.close();
+        }
+        if (nodoB != null) {
+            nodoB.close();
+        }
+    }
+
+    @Test
+    public void cambioDeProductoLlegaAlOtroNodo() throws InterruptedException {
+        assertNotEquals(nodoA.getBean(BusInvalidacion.class).nodo(), nodoB.getBean(BusInvalidacion.class).nodo());
+
+        productos = new ProductosDePrueba(nodoA.getBean(ProductoServicio.class));
+        Long id = productos.crear("invalidación", 1).getId();
+
+        ProductoCambiadoEvent evento = recibidosEnB.poll(10, TimeUnit.SECONDS);
+        assertNotNull("El nodo B no recibió el aviso", evento);
+        assertTrue(evento.productoIds().contains(id));
+    }
+
+    private static ConfigurableApplicationContext iniciarNodo() {
+        return new SpringApplicationBuilder(ProyectoFinalCalidadApplication.class)
+                .web(WebApplicationType.NONE)
+                .run();
+    }
+
+    private static void esperarEscucha(ConfigurableApplicationContext nodo) throws InterruptedException {
+        BusInvalidacion bus = nodo.getBean(BusInvalidacion.class);
+        for (int i = 0; i < 100 && !bus.escuchando(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue("El nodo no empezó a escuchar avisos", bus.escuchando());
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import java.util.Arrays;
+
+/**
+ * Latencia de una acción repetida, tras unas vueltas de calentamiento para que la
+ * primera traducción de la consulta y el JIT no entren en la medición.
+ */
+public final class Latencia {
+
+    private static final int CALENTAMIENTO = 10;
+
+    private Latencia() {
+    }
+
+    /**
+     * @return mediana en milisegundos de {@code repeticiones} ejecuciones
+     */
+    public static double medianaMs(int repeticiones, Runnable accion) {
+        for (int i = 0; i < CALENTAMIENTO; i++) {
+            accion.run();
+        }
+        long[] tiempos = new long[repeticiones];
+        for (int i = 0; i < repeticiones; i++) {
+            long inicio = System.nanoTime();
+            accion.run();
+            tiempos[i] = System.nanoTime() - inicio;
+        }
+        Arrays.sort(tiempos);
+        return tiempos[repeticiones / 2] / 1e6;
+    }
+}
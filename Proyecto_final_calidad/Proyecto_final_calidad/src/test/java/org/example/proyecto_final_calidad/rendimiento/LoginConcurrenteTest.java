@@ -0,0 +1,130 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.example.proyecto_final_calidad.model.Role;
+import org.example.proyecto_final_calidad.model.User;
+import org.example.proyecto_final_calidad.repositorio.UserRepository;
+import org.example.proyecto_final_calidad.security.AuthenticationExecutor;
+import org.example.proyecto_final_calidad.servicios.UsuarioServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Mide logins concurrentes contra el pool de autenticación (2 hilos, cola de 8):
+ * dentro de la capacidad todos terminan, por encima se rechazan en lugar de encolarse,
+ * y un hash antiguo sin prefijo se rehace en el primer login. Usa la base de datos
+ * configurada en application.properties.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"app.auth.hilos=2", "app.auth.cola=8"})
+public class LoginConcurrenteTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginConcurrenteTest.class);
+
+    private static final String CLAVE = "clave-de-prueba-123";
+
+    @Autowired
+    private AuthenticationExecutor authenticationExecutor;
+
+    @Autowired
+    private UsuarioServicio usuarioServicio;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User usuario;
+
+    @Before
+    public void setup() {
+        // Hash con el formato anterior: BCrypt sin prefijo de algoritmo
+        usuario = usuarioServicio.save(new User("login-" + System.nanoTime(),
+                new BCryptPasswordEncoder().encode(CLAVE), null, Role.CLIENTE));
+    }
+
+    @After
+    public void limpiar() {
+        userRepository.deleteById(usuario.getId());
+    }
+
+    @Test
+    public void loginsDentroDeLaCapacidadTerminanTodos() {
+        login().join();
+        Timer timer = meterRegistry.get("auth.login").tag("resultado", "ok").timer();
+        long previos = timer.count();
+
+        long inicio = System.nanoTime();
+        List<CompletableFuture<Authentication>> logins = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            logins.add(login());
+        }
+        logins.forEach(CompletableFuture::join);
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        assertEquals(previos + 10, timer.count());
+        StringBuilder percentiles = new StringBuilder();
+        for (ValueAtPercentile p : timer.takeSnapshot().percentileValues()) {
+            percentiles.append(String.format(" p%.0f=%.1fms", p.percentile() * 100, p.value(TimeUnit.MILLISECONDS)));
+        }
+        logger.info("10 logins en {} s ({} logins/s);{}", String.format("%.2f", segundos),
+                String.format("%.1f", 10 / segundos), percentiles);
+    }
+
+    @Test
+    public void loginsPorEncimaDeLaCapacidadSeRechazan() {
+        Counter contador = meterRegistry.get("auth.login.rechazados").counter();
+        Timer timer = meterRegistry.get("auth.login").tag("resultado", "ok").timer();
+        double rechazadosPrevios = contador.count();
+        long previos = timer.count();
+
+        List<CompletableFuture<Authentication>> aceptados = new ArrayList<>();
+        int rechazados = 0;
+        for (int i = 0; i < 40; i++) {
+            try {
+                aceptados.add(login());
+            } catch (RejectedExecutionException e) {
+                rechazados++;
+            }
+        }
+        aceptados.forEach(CompletableFuture::join);
+
+        assertTrue("Ningún login fue rechazado", rechazados > 0);
+        assertEquals(rechazados, contador.count() - rechazadosPrevios, 0);
+        assertEquals(previos + aceptados.size(), timer.count());
+    }
+
+    @Test
+    public void hashAntiguoSeRehaceAlIniciarSesion() {
+        login().join();
+
+        String hash = userRepository.findById(usuario.getId()).orElseThrow().getPassword();
+        assertTrue(hash, hash.startsWith("{bcrypt}"));
+    }
+
+    private CompletableFuture<Authentication> login() {
+        return authenticationExecutor.authenticate(usuario.getUsername(), CLAVE);
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Productos que un test crea en la base de datos configurada en application.properties.
+ * Cada uno lleva un nombre único; {@link #eliminar()} los borra al terminar junto con
+ * sus movimientos y saldos (las claves foráneas borran en cascada).
+ */
+public class ProductosDePrueba {
+
+    private final ProductoServicio productoServicio;
+    private final List<Long> creados = new ArrayList<>();
+
+    public ProductosDePrueba(ProductoServicio productoServicio) {
+        this.productoServicio = productoServicio;
+    }
+
+    /**
+     * @param nombre parte del nombre que identifica al test
+     * @param cantidad stock inicial
+     * @return el producto guardado, activo, sin stock mínimo
+     */
+    public Producto crear(String nombre, int cantidad) {
+        Producto producto = new Producto();
+        producto.setNombre("Prueba " + nombre + " " + System.nanoTime());
+        producto.setDescripcion("Producto de prueba");
+        producto.setCategoria(CategoriaProducto.OTROS);
+        producto.setPrecio(1.0);
+        producto.setCantidad(cantidad);
+        producto.setStockMinimo(0);
+        Producto guardado = productoServicio.save(producto);
+        creados.add(guardado.getId());
+        return guardado;
+    }
+
+    public void eliminar() {
+        creados.forEach(productoServicio::deleteById);
+        creados.clear();
+    }
+}
@@ -0,0 +1,115 @@
+package org.example.proyecto_final_calidad.rendimiento;
+
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.example.proyecto_final_calidad.servicios.ProductoServicio;
+import org.example.proyecto_final_calidad.servicios.StockServicio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Salidas concurrentes sobre un mismo producto: el UPDATE condicional deja pasar solo
+ * las que alcanzan, la cantidad nunca queda negativa, cada instancia recibe el valor
+ * que dejó su propio UPDATE y un producto inexistente no se informa como falta de stock.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SalidasConcurrentesTest {
+
+    private static final int STOCK = 10;
+    private static final int SALIDAS = 25;
+
+    @Autowired
+    private StockServicio stockServicio;
+
+    @Autowired
+    private ProductoServicio productoServicio;
+
+    @Autowired
+    private ProductoRepositorio productoRepositorio;
+
+    private ProductosDePrueba productos;
+    private Long productoId;
+
+    @Before
+    public void setup() {
+        productos = new ProductosDePrueba(productoServicio);
+        productoId = productos.crear("salidas", STOCK).getId();
+    }
+
+    @After
+    public void limpiar() {
+        productos.eliminar();
+    }
+
+    @Test
+    public void salidasConcurrentesNoDejanStockNegativo() throws Exception {
+        ExecutorService hilos = Executors.newFixedThreadPool(SALIDAS);
+        CountDownLatch largada = new CountDownLatch(1);
+        List<Future<String>> resultados = new ArrayList<>();
+        try {
+            for (int i = 0; i < SALIDAS; i++) {
+                // Cada hilo con su propia instancia, todas cargadas con la cantidad inicial
+                Producto producto = productoServicio.findById(productoId).orElseThrow();
+                resultados.add(hilos.submit(() -> {
+                    largada.await();
+                    try {
+                        stockServicio.registrarMovimiento(producto, 1, TipoMovimiento.SALIDA, "test");
+                        return "ok " + producto.getCantidad();
+                    } catch (IllegalArgumentException e) {
+                        return e.getMessage();
+                    }
+                }));
+            }
+            largada.countDown();
+
+            List<String> aplicadas = new ArrayList<>();
+            int rechazadas = 0;
+            for (Future<String> resultado : resultados) {
+                String r = resultado.get();
+                if (r.startsWith("ok ")) {
+                    aplicadas.add(r.substring(3));
+                } else {
+                    assertEquals("No hay suficiente stock disponible", r);
+                    rechazadas++;
+                }
+            }
+
+            assertEquals(STOCK, aplicadas.size());
+            assertEquals(SALIDAS - STOCK, rechazadas);
+            // Cada salida vio el valor de su UPDATE: de 9 a 0, sin repetidos
+            assertEquals(List.of("0", "1", "2", "3", "4", "5", "6", "7", "8", "9"), aplicadas.stream().sorted().toList());
+            assertEquals(Integer.valueOf(0), productoRepositorio.findCantidad(productoId).orElseThrow());
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    public void salidaDeProductoInexistenteNoEsFaltaDeStock() {
+        Producto inexistente = new Producto();
+        inexistente.setId(-1L);
+        try {
+            stockServicio.registrarMovimiento(inexistente, 1, TipoMovimiento.SALIDA, "test");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Producto no encontrado", e.getMessage());
+            return;
+        }
+        throw new AssertionError("La salida de un producto inexistente no falló");
+    }
+}
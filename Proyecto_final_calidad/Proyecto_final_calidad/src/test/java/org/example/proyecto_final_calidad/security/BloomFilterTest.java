@@ -0,0 +1,35 @@
+package org.example.proyecto_final_calidad.security;
+
+import org.junit.Test;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the Bloom filter has no false negatives and stays near its configured
+ * false positive rate.
+ */
+public class BloomFilterTest {
+
+    @Test
+    public void addedValuesAreAlwaysFoundAndOthersRarely() {
+        BloomFilter filter = new BloomFilter(10_000, 0.001);
+        String[] added = new String[10_000];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = UUID.randomUUID().toString();
+            filter.put(added[i]);
+        }
+
+        for (String value : added) {
+            assertTrue(filter.mightContain(value));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain(UUID.randomUUID().toString())) {
+                falsePositives++;
+            }
+        }
+        assertTrue("False positives: " + falsePositives, falsePositives < 500);
+    }
+}
@@ -0,0 +1,86 @@
+package org.example.proyecto_final_calidad.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.proyecto_final_calidad.model.Role;
+import org.example.proyecto_final_calidad.model.User;
+import org.example.proyecto_final_calidad.servicios.UsuarioCambiadoEvent;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a verified token is served from the cache without a second user
+ * lookup, that a change to the user evicts it and that revocation applies to hits.
+ */
+public class JwtTokenCacheTest {
+
+    private final JwtUtils jwtUtils = new JwtUtils("claveDePruebaParaFirmarTokensJwtDeAlMenos256Bits", 60_000, 120_000);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final TokenRevocationList revocationList = mock(TokenRevocationList.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private JwtTokenCache cache;
+    private User user;
+    private String token;
+
+    @Before
+    public void setup() {
+        cache = new JwtTokenCache(jwtUtils, userDetailsService, revocationList, meterRegistry, 100, 300);
+        user = new User("empleado", "password123", "empleado@example.com", Role.EMPLEADO);
+        user.setId(7L);
+        when(userDetailsService.loadUserByUsername("empleado")).thenReturn(user);
+        token = jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities()));
+    }
+
+    @Test
+    public void warmTokenSkipsUserLookup() {
+        assertEquals(Role.EMPLEADO, cache.authenticate(token).orElseThrow().getRole());
+        assertEquals(Role.EMPLEADO, cache.authenticate(token).orElseThrow().getRole());
+
+        verify(userDetailsService, times(1)).loadUserByUsername("empleado");
+        assertEquals(1, meterRegistry.get("jwt.verification").timer().count());
+    }
+
+    @Test
+    public void userChangeEvictsToken() {
+        cache.authenticate(token);
+
+        user.setRole(Role.ADMINISTRADOR);
+        cache.userChanged(new UsuarioCambiadoEvent(7L, "empleado"));
+
+        assertEquals(Role.ADMINISTRADOR, cache.authenticate(token).orElseThrow().getRole());
+        verify(userDetailsService, times(2)).loadUserByUsername("empleado");
+    }
+
+    @Test
+    public void disabledUserIsRejected() {
+        user.setEnabled(false);
+
+        assertFalse(cache.authenticate(token).isPresent());
+    }
+
+    @Test
+    public void revokedTokenIsRejectedEvenWhenCached() {
+        cache.authenticate(token);
+
+        String jti = jwtUtils.parseJwtToken(token).orElseThrow().getId();
+        when(revocationList.isRevoked(jti)).thenReturn(true);
+
+        assertFalse(cache.authenticate(token).isPresent());
+    }
+
+    @Test
+    public void invalidTokenIsRejected() {
+        assertFalse(cache.authenticate(token + "x").isPresent());
+        assertTrue(cache.authenticate(token).isPresent());
+    }
+}
@@ -0,0 +1,83 @@
+package org.example.proyecto_final_calidad.security;
+
+import io.jsonwebtoken.Claims;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the precomputed key and parser accept their own tokens and reject
+ * tokens signed with another key, already expired or of the wrong type.
+ */
+public class JwtUtilsTest {
+
+    private static final String SECRET = "claveDePruebaParaFirmarTokensJwtDeAlMenos256Bits";
+
+    private final JwtUtils jwtUtils = new JwtUtils(SECRET, 60_000, 120_000);
+
+    @Test
+    public void validTokenIsParsedOnce() {
+        String token = jwtUtils.generateJwtToken(authentication("admin"));
+
+        Optional<Claims> claims = jwtUtils.parseJwtToken(token);
+
+        assertTrue(claims.isPresent());
+        assertEquals("admin", claims.get().getSubject());
+        assertEquals("admin", jwtUtils.getUsernameFromJwtToken(token));
+        assertTrue(jwtUtils.validateJwtToken(token));
+    }
+
+    @Test
+    public void tokenSignedWithAnotherKeyIsRejected() {
+        JwtUtils otherKey = new JwtUtils(SECRET + "Distinta", 60_000, 120_000);
+        String token = otherKey.generateJwtToken(authentication("admin"));
+
+        assertFalse(jwtUtils.parseJwtToken(token).isPresent());
+        assertFalse(jwtUtils.validateJwtToken(token));
+    }
+
+    @Test
+    public void expiredTokenIsRejected() {
+        String token = new JwtUtils(SECRET, -1_000, 120_000).generateJwtToken(authentication("admin"));
+
+        assertFalse(jwtUtils.parseJwtToken(token).isPresent());
+    }
+
+    @Test
+    public void malformedTokenIsRejected() {
+        assertFalse(jwtUtils.parseJwtToken("no.es.un-token").isPresent());
+        assertFalse(jwtUtils.parseJwtToken("").isPresent());
+    }
+
+    @Test
+    public void refreshTokenIsNotAnAccessToken() {
+        String refresh = jwtUtils.generateRefreshToken("admin");
+
+        assertFalse(jwtUtils.parseJwtToken(refresh).isPresent());
+        assertEquals("admin", jwtUtils.parseRefreshToken(refresh).orElseThrow().getSubject());
+        assertFalse(jwtUtils.parseRefreshToken(jwtUtils.generateJwtToken("admin")).isPresent());
+    }
+
+    @Test
+    public void everyTokenHasItsOwnId() {
+        String id1 = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken("admin")).orElseThrow().getId();
+        String id2 = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken("admin")).orElseThrow().getId();
+
+        assertNotNull(id1);
+        assertNotEquals(id1, id2);
+    }
+
+    private static UsernamePasswordAuthenticationToken authentication(String username) {
+        User principal = new User(username, "", List.of());
+        return new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.proyecto_final_calidad.security;
+
+import org.example.proyecto_final_calidad.model.Role;
+import org.example.proyecto_final_calidad.model.User;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that a refresh token yields a new pair once and is refused afterwards, and
+ * that disabled users cannot refresh.
+ */
+public class RefreshTokenServiceTest {
+
+    private final JwtUtils jwtUtils = new JwtUtils("claveDePruebaParaFirmarTokensJwtDeAlMenos256Bits", 60_000, 120_000);
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final TokenRevocationList revocationList = mock(TokenRevocationList.class);
+    private final Set<String> revoked = new HashSet<>();
+
+    private RefreshTokenService service;
+    private User user;
+
+    @Before
+    public void setup() {
+        service = new RefreshTokenService(jwtUtils, userDetailsService, revocationList);
+        user = new User("empleado", "password123", "empleado@example.com", Role.EMPLEADO);
+        when(userDetailsService.loadUserByUsername("empleado")).thenReturn(user);
+        when(revocationList.isRevoked(anyString())).thenAnswer(i -> revoked.contains(i.<String>getArgument(0)));
+        when(revocationList.revoke(anyString(), any(Date.class))).thenAnswer(i -> revoked.add(i.getArgument(0)));
+    }
+
+    @Test
+    public void refreshTokenIsRotated() {
+        RefreshTokenService.TokenPair pair = service.issue("empleado");
+
+        RefreshTokenService.TokenPair renewed = service.refresh(pair.refreshToken()).orElseThrow();
+
+        assertEquals("empleado", jwtUtils.parseJwtToken(renewed.accessToken()).orElseThrow().getSubject());
+        assertFalse(service.refresh(pair.refreshToken()).isPresent());
+        assertTrue(service.refresh(renewed.refreshToken()).isPresent());
+    }
+
+    @Test
+    public void accessTokenCannotRefresh() {
+        assertFalse(service.refresh(service.issue("empleado").accessToken()).isPresent());
+    }
+
+    @Test
+    public void disabledUserCannotRefresh() {
+        user.setEnabled(false);
+
+        assertFalse(service.refresh(service.issue("empleado").refreshToken()).isPresent());
+    }
+}
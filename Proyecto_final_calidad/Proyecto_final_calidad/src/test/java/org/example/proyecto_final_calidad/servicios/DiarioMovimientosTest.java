@@ -0,0 +1,199 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.proyecto_final_calidad.dto.ResultadoMovimiento;
+import org.example.proyecto_final_calidad.dto.SolicitudMovimiento;
+import org.example.proyecto_final_calidad.model.TipoMovimiento;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reproducción del diario write-behind tras un reinicio: lo no drenado se aplica, un
+ * registro dañado corta el diario, lo ya aplicado en la base se omite y los rechazos
+ * quedan guardados. La base se simula con un JdbcTemplate en memoria.
+ */
+public class DiarioMovimientosTest {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private final StockServicio stockServicio = mock(StockServicio.class);
+    private final BaseFalsa base = new BaseFalsa();
+    private final List<List<SolicitudMovimiento>> aplicados = new ArrayList<>();
+    private final Set<Integer> productosSinStock = new HashSet<>();
+
+    private String archivo;
+    private DiarioMovimientos diario;
+
+    @Before
+    public void setup() throws Exception {
+        archivo = carpeta.newFolder().toPath().resolve("diario.dat").toString();
+        when(stockServicio.registrarMovimientos(anyList(), anyList())).thenAnswer(i -> {
+            List<SolicitudMovimiento> movimientos = List.copyOf(i.getArgument(0));
+            aplicados.add(movimientos);
+            List<ResultadoMovimiento> resultados = new ArrayList<>();
+            for (int j = 0; j < movimientos.size(); j++) {
+                Long id = movimientos.get(j).productoId();
+                resultados.add(productosSinStock.contains(id.intValue())
+                        ? ResultadoMovimiento.fallo(j, id, "No hay suficiente stock disponible")
+                        : ResultadoMovimiento.exito(j, id));
+            }
+            return resultados;
+        });
+    }
+
+    @After
+    public void cerrar() throws Exception {
+        if (diario != null) {
+            diario.cerrar();
+        }
+    }
+
+    @Test
+    public void reproduceAlReabrirLoQueNoSeDreno() throws Exception {
+        abrir();
+        registrar(1, 2, 3);
+        reabrir();
+
+        assertEquals(3, diario.getPendientes());
+        diario.drenar();
+
+        assertEquals(List.of(1L, 2L, 3L), productosAplicados());
+        assertEquals(0, diario.getPendientes());
+        assertEquals(Long.valueOf(3), base.ultimaSecuencia());
+    }
+
+    @Test
+    public void registroDanadoMarcaElFinalDelDiario() throws Exception {
+        abrir();
+        registrar(1, 2);
+        diario.cerrar();
+        try (RandomAccessFile raf = new RandomAccessFile(archivo, "rw")) {
+            // Cabecera de 40 bytes; el segundo registro empieza tras la longitud del primero
+            raf.seek(40);
+            int primero = raf.readInt();
+            long posicion = 40 + primero + 20;
+            raf.seek(posicion);
+            int original = raf.read();
+            raf.seek(posicion);
+            raf.write(original ^ 0xFF);
+        }
+        diario = nuevo();
+
+        assertEquals(1, diario.getPendientes());
+        diario.drenar();
+        assertEquals(List.of(1L), productosAplicados());
+    }
+
+    @Test
+    public void omiteLosMovimientosYaAplicados() throws Exception {
+        abrir();
+        registrar(1, 2, 3);
+        // Caída entre el commit del lote y la actualización de la cabecera del diario
+        base.aplicadas.replaceAll((id, secuencia) -> 2L);
+        reabrir();
+
+        diario.drenar();
+
+        assertEquals(List.of(3L), productosAplicados());
+        assertEquals(Long.valueOf(3), base.ultimaSecuencia());
+    }
+
+    @Test
+    public void guardaLosRechazadosParaRevision() throws Exception {
+        productosSinStock.add(2);
+        abrir();
+        registrar(1, 2);
+
+        diario.drenar();
+
+        assertEquals(1, base.rechazados.size());
+        Object[] rechazado = base.rechazados.getFirst();
+        assertEquals(2L, rechazado[1]);
+        assertEquals(2L, rechazado[2]);
+        assertEquals("No hay suficiente stock disponible", rechazado[7]);
+        assertEquals(0, diario.getPendientes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rechazaUnaCapacidadQueNoCabeEnElBuffer() {
+        new DiarioMovimientos(stockServicio, base, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), archivo, 2048, 10, 1000);
+    }
+
+    private void abrir() throws Exception {
+        diario = nuevo();
+    }
+
+    private void reabrir() throws Exception {
+        diario.cerrar();
+        diario = nuevo();
+    }
+
+    private DiarioMovimientos nuevo() throws Exception {
+        DiarioMovimientos d = new DiarioMovimientos(stockServicio, base, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), archivo, 1, 10, 1000);
+        d.abrir();
+        return d;
+    }
+
+    private void registrar(int... productos) {
+        for (int producto : productos) {
+            assertTrue(diario.registrar(new SolicitudMovimiento((long) producto, 1, TipoMovimiento.SALIDA, "cajero")));
+        }
+    }
+
+    private List<Long> productosAplicados() {
+        return aplicados.stream().flatMap(List::stream).map(SolicitudMovimiento::productoId).toList();
+    }
+
+    /** Tablas diario_stock_aplicado y diario_stock_rechazado en memoria */
+    private static final class BaseFalsa extends JdbcTemplate {
+        final Map<String, Long> aplicadas = new HashMap<>();
+        final List<Object[]> rechazados = new ArrayList<>();
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (sql.startsWith("INSERT INTO diario_stock_aplicado")) {
+                aplicadas.putIfAbsent((String) args[0], 0L);
+            } else if (sql.startsWith("UPDATE diario_stock_aplicado")) {
+                aplicadas.put((String) args[1], (Long) args[0]);
+            }
+            return 1;
+        }
+
+        @Override
+        public <T> T queryForObject(String sql, Class<T> tipo, Object... args) {
+            return tipo.cast(aplicadas.get((String) args[0]));
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> args) {
+            rechazados.addAll(args);
+            return new int[args.size()];
+        }
+
+        Long ultimaSecuencia() {
+            return aplicadas.values().iterator().next();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.example.proyecto_final_calidad.dto.ErrorImportacion;
+import org.example.proyecto_final_calidad.dto.EstadoImportacion;
+import org.example.proyecto_final_calidad.dto.EstadoImportacion.Fase;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Validación de la importación de productos antes de llegar a la base de datos:
+ * encabezado normalizado, columnas faltantes, filas con campos de menos o valores
+ * inválidos y la línea del archivo informada para cada rechazo.
+ */
+public class ImportacionProductosServicioImplTest {
+
+    private static final String ENCABEZADO = "\uFEFF Nombre ,Descripcion,CATEGORIA,precio,Cantidad,Stock_Minimo\n";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private ImportacionProductosServicioImpl servicio;
+
+    @Before
+    public void setup() {
+        EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+        SessionFactory sessionFactory = mock(SessionFactory.class);
+        when(entityManagerFactory.unwrap(SessionFactory.class)).thenReturn(sessionFactory);
+        when(sessionFactory.getCache()).thenReturn(mock(Cache.class));
+        servicio = new ImportacionProductosServicioImpl(mock(DataSource.class), jdbcTemplate, transactionManager,
+                mock(ApplicationEventPublisher.class), entityManagerFactory, 10, 1);
+        servicio.iniciarEjecutor();
+    }
+
+    @After
+    public void cerrar() {
+        servicio.detener();
+    }
+
+    @Test
+    public void rechazaFilasInvalidasConSuLinea() throws Exception {
+        EstadoImportacion estado = importar(ENCABEZADO
+                + "Teclado,Mecánico\n"
+                + "\n"
+                + "\"Mouse\ninalámbrico\",Con cable,ELECTRONICA,abc,1,0\n"
+                + "Silla,De oficina,Muebles,10,1,0\n"
+                + "Pelota,Tamaño oficial,Deportes,10,-1,0\n");
+
+        assertEquals(Fase.COMPLETADA, estado.fase());
+        assertEquals(4, estado.filasLeidas());
+        assertEquals(4, estado.rechazadas());
+        List<ErrorImportacion> errores = estado.errores().stream()
+                .sorted(Comparator.comparingLong(ErrorImportacion::linea)).toList();
+        assertEquals(List.of(2L, 4L, 6L, 7L), errores.stream().map(ErrorImportacion::linea).toList());
+        assertEquals("Faltan campos: se esperaban 6 y hay 2", errores.get(0).mensaje());
+        assertEquals("El precio no es un número", errores.get(1).mensaje());
+        assertEquals("Categoría desconocida: Muebles", errores.get(2).mensaje());
+        assertEquals("La cantidad no puede ser negativa", errores.get(3).mensaje());
+        // Ninguna fila válida: no se abre transacción ni se escribe nada
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+
+    @Test
+    public void encabezadoSinColumnasObligatoriasFalla() throws Exception {
+        EstadoImportacion estado = importar("nombre,precio\nTeclado,10\n");
+
+        assertEquals(Fase.FALLIDA, estado.fase());
+        assertEquals("Faltan columnas en el encabezado: descripcion, categoria, cantidad, stockminimo", estado.falla());
+        assertEquals(0, estado.filasLeidas());
+    }
+
+    @Test
+    public void archivoVacioFalla() throws Exception {
+        EstadoImportacion estado = importar("");
+
+        assertEquals(Fase.FALLIDA, estado.fase());
+        assertEquals("El archivo está vacío", estado.falla());
+    }
+
+    private EstadoImportacion importar(String csv) throws Exception {
+        String id = servicio.iniciar("productos.csv", new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8))).id();
+        for (int i = 0; i < 100; i++) {
+            EstadoImportacion estado = servicio.estado(id).orElseThrow();
+            if (estado.fin() != null) {
+                return estado;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("La importación no terminó");
+    }
+}
@@ -0,0 +1,63 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Lectura de CSV: campos entre comillas con comas y comillas escapadas, saltos de
+ * línea dentro de comillas, líneas en blanco, CRLF y la línea en la que empieza cada
+ * registro.
+ */
+public class LectorCsvTest {
+
+    @Test
+    public void camposEntreComillasConComasYComillasEscapadas() throws IOException {
+        LectorCsv csv = lector("\"a,b\",\"dice \"\"hola\"\"\",c\n");
+
+        assertEquals(List.of("a,b", "dice \"hola\"", "c"), csv.leer());
+        assertNull(csv.leer());
+    }
+
+    @Test
+    public void comillaEnMedioDeUnCampoEsLiteral() throws IOException {
+        assertEquals(List.of("pantalla 15\"", "x"), lector("pantalla 15\",x").leer());
+    }
+
+    @Test
+    public void saltoDeLineaEntreComillasNoCortaElRegistro() throws IOException {
+        LectorCsv csv = lector("\"primera\nsegunda\",x\nsiguiente,y\n");
+
+        assertEquals(1, csv.linea());
+        assertEquals(List.of("primera\nsegunda", "x"), csv.leer());
+        assertEquals(3, csv.linea());
+        assertEquals(List.of("siguiente", "y"), csv.leer());
+        assertNull(csv.leer());
+    }
+
+    @Test
+    public void lineasEnBlancoYCrlf() throws IOException {
+        LectorCsv csv = lector("a,b\r\n\r\nc,\r\nd,e");
+
+        assertEquals(List.of("a", "b"), csv.leer());
+        assertEquals(List.of(""), csv.leer());
+        assertEquals(3, csv.linea());
+        assertEquals(List.of("c", ""), csv.leer());
+        assertEquals(List.of("d", "e"), csv.leer());
+        assertNull(csv.leer());
+    }
+
+    @Test(expected = IOException.class)
+    public void comillasSinCerrarEsUnError() throws IOException {
+        lector("\"sin cerrar,x\n").leer();
+    }
+
+    private static LectorCsv lector(String texto) {
+        return new LectorCsv(new StringReader(texto));
+    }
+}
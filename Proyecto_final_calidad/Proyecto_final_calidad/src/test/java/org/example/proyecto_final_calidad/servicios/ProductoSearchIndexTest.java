@@ -0,0 +1,136 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.FiltroProducto;
+import org.example.proyecto_final_calidad.model.CategoriaProducto;
+import org.example.proyecto_final_calidad.model.ModoBusqueda;
+import org.example.proyecto_final_calidad.model.Producto;
+import org.example.proyecto_final_calidad.repositorio.ProductoRepositorio;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Búsqueda en el índice de productos en memoria: coincidencias por prefijo y por parte
+ * de palabra, filtro por categoría, orden con desempate por ID, los términos que se
+ * dejan a la base de datos y los cambios recibidos durante una reconstrucción.
+ */
+public class ProductoSearchIndexTest {
+
+    private final ProductoRepositorio productoRepositorio = mock(ProductoRepositorio.class);
+    private final List<Producto> catalogo = new ArrayList<>();
+
+    private ProductoSearchIndex indice;
+
+    @Before
+    public void setup() {
+        catalogo.add(producto(1L, "Teclado mecánico", "Teclas retroiluminadas", CategoriaProducto.ELECTRONICA, 50.0));
+        catalogo.add(producto(2L, "Mouse inalámbrico", "Cable usb tipo c incluido", CategoriaProducto.ELECTRONICA, 20.0));
+        catalogo.add(producto(3L, "Camiseta", "Algodón, talla única", CategoriaProducto.ROPA, 20.0));
+        catalogo.add(producto(4L, "Pelota", "Tamaño oficial", CategoriaProducto.DEPORTES, 20.0));
+        when(productoRepositorio.findAll()).thenReturn(catalogo);
+        indice = new ProductoSearchIndex(productoRepositorio, true);
+    }
+
+    @Test
+    public void buscaPorParteYPorPrefijoDePalabra() {
+        indice.reconstruir();
+
+        assertEquals(List.of(1L), ids(buscar("clado")));
+        assertEquals(List.of(1L), ids(buscar("do mec")));
+        assertEquals(List.of(2L), ids(buscar("ble usb ti")));
+        assertEquals(List.of(1L, 2L), ids(buscar("ico")));
+        // El texto no cruza de nombre a descripción
+        assertEquals(List.of(), ids(buscar("mecánico teclas")));
+        assertEquals(0, indice.contar(filtro("inexistente", null)));
+    }
+
+    @Test
+    public void filtraPorCategoria() {
+        indice.reconstruir();
+
+        assertEquals(List.of(1L, 2L), ids(indice.buscar(filtro(null, CategoriaProducto.ELECTRONICA), PageRequest.of(0, 10))));
+        assertEquals(List.of(3L), ids(indice.buscar(filtro("a", CategoriaProducto.ROPA), PageRequest.of(0, 10))));
+        assertEquals(0, indice.contar(filtro(null, CategoriaProducto.HOGAR)));
+    }
+
+    @Test
+    public void ordenaYDesempataPorId() {
+        indice.reconstruir();
+        FiltroProducto todos = filtro(null, null);
+
+        // Tres productos con el mismo precio: quedan por ID ascendente después del más caro
+        assertEquals(List.of(1L, 2L, 3L, 4L), ids(indice.buscar(todos, PageRequest.of(0, 10, Sort.by(Sort.Order.desc("precio"))))));
+        assertEquals(List.of(3L, 4L), ids(indice.buscar(todos, PageRequest.of(1, 2, Sort.by("precio").descending()))));
+        assertEquals(List.of(3L, 2L, 4L, 1L), ids(indice.buscar(todos, PageRequest.of(0, 10, Sort.by("nombre")))));
+    }
+
+    @Test
+    public void dejaALaBaseDeDatosLoQueNoPuedeResolver() {
+        Pageable pagina = PageRequest.of(0, 10);
+        assertFalse("Sin reconstruir todavía", indice.puedeResolver(filtro("mouse", null), pagina));
+
+        indice.reconstruir();
+
+        assertTrue(indice.puedeResolver(filtro("mouse", null), pagina));
+        assertFalse(indice.puedeResolver(filtro("50%", null), pagina));
+        assertFalse(indice.puedeResolver(filtro("tipo_c", null), pagina));
+        assertFalse(indice.puedeResolver(filtro("usb\\c", null), pagina));
+        assertFalse(indice.puedeResolver(filtro("--", null), pagina));
+        assertFalse(indice.puedeResolver(new FiltroProducto("mouse", null, null, null, null, null,
+                ModoBusqueda.TEXTO_COMPLETO), pagina));
+        assertFalse(indice.puedeResolver(filtro("mouse", null), PageRequest.of(0, 10, Sort.by("proveedor"))));
+    }
+
+    @Test
+    public void cambiosDuranteLaReconstruccionSeAplicanAlTerminar() {
+        Producto editado = producto(2L, "Ratón inalámbrico", "Cable usb tipo c incluido", CategoriaProducto.ELECTRONICA, 20.0);
+        when(productoRepositorio.findAll()).thenAnswer(i -> {
+            // El aviso llega mientras se lee el catálogo con el nombre anterior
+            indice.productoCambiado(new ProductoCambiadoEvent(List.of(2L)));
+            return catalogo;
+        });
+        when(productoRepositorio.findAllById(any())).thenReturn(List.of(editado));
+
+        indice.reconstruir();
+
+        assertEquals(List.of(2L), ids(buscar("ratón")));
+        assertEquals(List.of(), ids(buscar("mouse")));
+        assertEquals(4, indice.contar(filtro(null, null)));
+    }
+
+    private List<Producto> buscar(String termino) {
+        return indice.buscar(filtro(termino, null), PageRequest.of(0, 10));
+    }
+
+    private static FiltroProducto filtro(String termino, CategoriaProducto categoria) {
+        return new FiltroProducto(termino, categoria, null, null, null, null);
+    }
+
+    private static List<Long> ids(List<Producto> productos) {
+        return productos.stream().map(Producto::getId).toList();
+    }
+
+    private static Producto producto(Long id, String nombre, String descripcion, CategoriaProducto categoria, double precio) {
+        Producto producto = new Producto();
+        producto.setId(id);
+        producto.setNombre(nombre);
+        producto.setDescripcion(descripcion);
+        producto.setCategoria(categoria);
+        producto.setPrecio(precio);
+        producto.setCantidad(1);
+        producto.setStockMinimo(0);
+        return producto;
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.proyecto_final_calidad.servicios;
+
+import org.example.proyecto_final_calidad.dto.ResultadoReconstruccion;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * Límite de días por llamada de la reconstrucción de resúmenes: un rango más largo se
+ * rechaza antes de tocar la base de datos y uno dentro del límite se divide en bloques.
+ */
+public class ResumenStockServicioImplTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    private ResumenStockServicioImpl servicio;
+
+    @Before
+    public void setup() {
+        servicio = new ResumenStockServicioImpl(jdbcTemplate, mock(PlatformTransactionManager.class), 7, 2, 30);
+        servicio.iniciarEjecutor();
+    }
+
+    @After
+    public void cerrar() {
+        servicio.detener();
+    }
+
+    @Test
+    public void rangoMasLargoQueElLimiteSeRechaza() {
+        try {
+            servicio.reconstruir(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 31));
+            fail("Se aceptó un rango de 31 días con límite de 30");
+        } catch (IllegalArgumentException e) {
+            assertEquals("El rango no puede superar 30 días por llamada; divídalo en varias reconstrucciones", e.getMessage());
+        }
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void rangoDentroDelLimiteSeDivideEnBloques() {
+        // 30 días, ambos extremos incluidos: cuatro bloques de 7 y uno de 2
+        ResultadoReconstruccion resultado = servicio.reconstruir(LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 30));
+
+        assertEquals(5, resultado.bloques());
+    }
+}